@@ -0,0 +1,128 @@
+package io.github.isoteriktech.xgdx.physics2d.benchmark;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.physics.box2d.Box2D;
+import com.badlogic.gdx.utils.Array;
+import io.github.isoteriktech.xgdx.GameObject;
+import io.github.isoteriktech.xgdx.Scene;
+import io.github.isoteriktech.xgdx.physics2d.Collision2d;
+import io.github.isoteriktech.xgdx.physics2d.Physics2d;
+import io.github.isoteriktech.xgdx.physics2d.PhysicsManager2d;
+import io.github.isoteriktech.xgdx.physics2d.RigidBody2d;
+import io.github.isoteriktech.xgdx.physics2d.colliders.BoxCollider;
+import io.github.isoteriktech.xgdx.physics2d.colliders.CircleCollider;
+import io.github.isoteriktech.xgdx.physics2d.colliders.PolygonCollider;
+import io.github.isoteriktech.xgdx.physics2d.utils.Box2dUtil;
+
+/**
+ * A headless scene used by the benchmarks. Bodies are laid out on a grid inside a boundary box and cycle through
+ * {@link BoxCollider}, {@link CircleCollider} and {@link PolygonCollider} setups, so a few steps produce a dense pile with
+ * plenty of contacts.
+ *
+ * @author isoteriksoftware
+ */
+public class BenchmarkScene extends Scene {
+    /** The fixed time step every benchmark steps with */
+    public static final float TIME_STEP = 1f / 60f;
+
+    private static boolean initialized;
+
+    public final PhysicsManager2d physicsManager2d;
+    public final Array<RigidBody2d> rigidBodies = new Array<>();
+
+    /**
+     * Creates a new scene.
+     * @param bodyCount the number of {@link RigidBody2d} objects to create
+     * @param plainObjectsPerBody the number of game objects without physics components to add for every physics object
+     */
+    public BenchmarkScene(int bodyCount, int plainObjectsPerBody) {
+        physicsManager2d = PhysicsManager2d.setup(this);
+        physicsManager2d.setPhysicsTimeStep(TIME_STEP);
+
+        // Keep the pile wide and shallow so big scenes don't turn into one deep stack; every cell is 1x1 world units
+        int columns = (int)Math.ceil(Math.sqrt(bodyCount) * 4);
+        int rows = (bodyCount + columns - 1) / columns;
+        float worldWidth = columns * 1.25f + 2;
+        Box2dUtil.createBoundaryBox(physicsManager2d.getPhysicsWorld(), worldWidth, rows * 1.25f * 4 + 2, .2f);
+
+        MathUtils.random.setSeed(42);
+        for (int i = 0; i < bodyCount; i++) {
+            GameObject go = GameObject.newInstance("Body" + i);
+            go.transform.setPosition(1 + (i % columns) * 1.25f, 1 + (i / columns) * 1.25f);
+            go.transform.setSize(1, 1);
+            go.transform.setRotation(MathUtils.random(0, 180));
+
+            RigidBody2d rigidBody2d = new RigidBody2d(RigidBody2d.DynamicBody, physicsManager2d);
+            go.addComponent(rigidBody2d);
+
+            switch (i % 3) {
+                case 0:
+                    go.addComponent(new BoxCollider());
+                    break;
+                case 1:
+                    go.addComponent(new CircleCollider());
+                    break;
+                default:
+                    go.addComponent(new PolygonCollider(new float[]{ -.5f, -.5f, .5f, -.5f, .4f, .3f, 0, .5f, -.4f, .3f }));
+                    break;
+            }
+
+            // Half of the bodies listen for physics events
+            if (i % 2 == 0)
+                go.addComponent(new CountingListener());
+
+            addGameObject(go);
+            rigidBodies.add(rigidBody2d);
+
+            for (int j = 0; j < plainObjectsPerBody; j++)
+                addGameObject(GameObject.newInstance("Plain" + i + "_" + j));
+        }
+    }
+
+    /**
+     * Steps the scene's physics a number of times so bodies settle into contact with each other.
+     * @param steps the number of steps
+     */
+    public void settle(int steps) {
+        for (int i = 0; i < steps; i++)
+            physicsManager2d.update(TIME_STEP);
+    }
+
+    /**
+     * Boots a headless libGDX application and loads the Box2D desktop natives. Safe to call more than once.
+     */
+    public static synchronized void initHeadless() {
+        if (initialized)
+            return;
+
+        new HeadlessApplication(new ApplicationAdapter() {}, new HeadlessApplicationConfiguration());
+        Box2D.init();
+        initialized = Gdx.app != null;
+    }
+
+    /**
+     * A listener that does a trivial amount of work so its callbacks cannot be optimized away.
+     */
+    public static class CountingListener extends Physics2d {
+        public int updates, enters, exits;
+
+        @Override
+        public void fixedUpdate2d(float timeStep) {
+            updates++;
+        }
+
+        @Override
+        public void onCollisionEnter2d(Collision2d collision) {
+            enters++;
+        }
+
+        @Override
+        public void onCollisionExit2d(Collision2d collision) {
+            exits++;
+        }
+    }
+}
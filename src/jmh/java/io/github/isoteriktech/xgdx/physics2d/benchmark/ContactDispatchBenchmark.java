@@ -0,0 +1,63 @@
+package io.github.isoteriktech.xgdx.physics2d.benchmark;
+
+import com.badlogic.gdx.physics.box2d.Contact;
+import com.badlogic.gdx.utils.Array;
+import io.github.isoteriktech.xgdx.physics2d.PhysicsManager2d;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of the {@link PhysicsManager2d#beginContact(Contact)}/{@link PhysicsManager2d#endContact(Contact)} dispatch,
+ * in nanoseconds per callback. The contacts are taken from a settled pile and replayed without stepping the world, so they stay valid.
+ *
+ * @author isoteriksoftware
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ContactDispatchBenchmark {
+    static final int CALLBACKS_PER_INVOCATION = 100;
+
+    @Param({"100", "1000", "5000", "20000"})
+    public int bodyCount;
+
+    private BenchmarkScene scene;
+    private Contact[] contacts;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        BenchmarkScene.initHeadless();
+        scene = new BenchmarkScene(bodyCount, 0);
+        scene.settle(120);
+
+        Array<Contact> contactList = scene.physicsManager2d.getPhysicsWorld().getContactList();
+        contacts = contactList.toArray(Contact.class);
+        if (contacts.length == 0)
+            throw new IllegalStateException("The benchmark scene produced no contacts!");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        scene.physicsManager2d.destroy();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CALLBACKS_PER_INVOCATION)
+    public void beginAndEndContact() {
+        PhysicsManager2d physicsManager2d = scene.physicsManager2d;
+        Contact[] contacts = this.contacts;
+        int cursor = this.cursor;
+        for (int i = 0; i < CALLBACKS_PER_INVOCATION; i += 2) {
+            physicsManager2d.beginContact(contacts[cursor]);
+            physicsManager2d.endContact(contacts[cursor]);
+            if (++cursor == contacts.length)
+                cursor = 0;
+        }
+
+        this.cursor = cursor;
+    }
+}
@@ -0,0 +1,93 @@
+package io.github.isoteriktech.xgdx.physics2d.benchmark;
+
+import io.github.isoteriktech.xgdx.GameObject;
+import io.github.isoteriktech.xgdx.Scene;
+import io.github.isoteriktech.xgdx.physics2d.BodyBatch;
+import io.github.isoteriktech.xgdx.physics2d.PhysicsManager2d;
+import io.github.isoteriktech.xgdx.physics2d.PhysicsMaterial2d;
+import io.github.isoteriktech.xgdx.physics2d.RigidBody2d;
+import io.github.isoteriktech.xgdx.physics2d.colliders.BoxCollider;
+import io.github.isoteriktech.xgdx.physics2d.colliders.CircleCollider;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time it takes to load 10k physics objects into an empty scene, one component at a time and in bulk through
+ * {@link PhysicsManager2d#createBodies(BodyBatch, GameObject[])}. Both load the same objects: alternating boxes and circles
+ * on a grid, with a few shared materials.
+ *
+ * @author isoteriksoftware
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 20)
+public class LoadBenchmark {
+    private static final int BODY_COUNT = 10000;
+
+    private Scene scene;
+    private PhysicsManager2d physicsManager2d;
+    private GameObject[] gameObjects;
+    private BodyBatch batch;
+
+    @Setup(Level.Trial)
+    public void setupBatch() {
+        BenchmarkScene.initHeadless();
+
+        batch = new BodyBatch(BODY_COUNT);
+        for (int i = 0; i < 4; i++)
+            batch.addMaterial(new PhysicsMaterial2d(.2f * i, .1f * i, 1 + i));
+
+        int columns = 100;
+        for (int i = 0; i < BODY_COUNT; i++) {
+            batch.add((i % columns) * 1.25f, (i / columns) * 1.25f, 1, 1, 0, RigidBody2d.DynamicBody, i % 4,
+                    i % 2 == 0 ? BodyBatch.BOX : BodyBatch.CIRCLE);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void setupScene() {
+        scene = new Scene();
+        physicsManager2d = PhysicsManager2d.setup(scene);
+
+        gameObjects = new GameObject[BODY_COUNT];
+        for (int i = 0; i < BODY_COUNT; i++)
+            gameObjects[i] = GameObject.newInstance("Body" + i);
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown() {
+        physicsManager2d.destroy();
+    }
+
+    @Benchmark
+    public Scene addComponentLoad() {
+        for (int i = 0; i < BODY_COUNT; i++) {
+            GameObject go = gameObjects[i];
+            go.transform.setPosition(batch.x[i], batch.y[i]);
+            go.transform.setSize(batch.width[i], batch.height[i]);
+            go.transform.setRotation(batch.rotation[i]);
+
+            if (batch.colliderKind[i] == BodyBatch.BOX)
+                go.addComponent(new BoxCollider(batch.width[i], batch.height[i]));
+            else
+                go.addComponent(new CircleCollider(batch.width[i] * .5f));
+
+            go.addComponent(new RigidBody2d(batch.bodyType[i], batch.materials.get(batch.material[i]), physicsManager2d));
+            scene.addGameObject(go);
+        }
+
+        return scene;
+    }
+
+    @Benchmark
+    public Scene batchLoad() {
+        physicsManager2d.createBodies(batch, gameObjects);
+        for (int i = 0; i < BODY_COUNT; i++)
+            scene.addGameObject(gameObjects[i]);
+
+        return scene;
+    }
+}
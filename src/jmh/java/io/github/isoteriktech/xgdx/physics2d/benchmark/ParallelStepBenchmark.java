@@ -0,0 +1,71 @@
+package io.github.isoteriktech.xgdx.physics2d.benchmark;
+
+import io.github.isoteriktech.xgdx.physics2d.RigidBody2d;
+import io.github.isoteriktech.xgdx.physics2d.concurrent.ParallelWorldStepper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how stepping many independent worlds scales with {@link ParallelWorldStepper}, against stepping them one after the other on
+ * a single thread. Every world is a pile of its own whose bodies are kept awake, so every step does the same amount of work.
+ *
+ * @author isoteriksoftware
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ParallelStepBenchmark {
+    @Param({"1", "2", "4", "8", "16", "32", "64"})
+    public int worldCount;
+
+    @Param({"250"})
+    public int bodiesPerWorld;
+
+    private BenchmarkScene[] scenes;
+    private ParallelWorldStepper stepper;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        BenchmarkScene.initHeadless();
+
+        scenes = new BenchmarkScene[worldCount];
+        for (int i = 0; i < worldCount; i++) {
+            scenes[i] = new BenchmarkScene(bodiesPerWorld, 0);
+            scenes[i].settle(60);
+            for (RigidBody2d rigidBody2d : scenes[i].rigidBodies)
+                rigidBody2d.getBody().setSleepingAllowed(false);
+
+            // Both benchmarks defer contact events, so they only differ in how the worlds are stepped
+            scenes[i].physicsManager2d.setDeferContactEvents(true);
+        }
+
+        stepper = new ParallelWorldStepper();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (BenchmarkScene scene : scenes)
+            scene.physicsManager2d.destroy();
+    }
+
+    @Benchmark
+    public void sequential() {
+        for (BenchmarkScene scene : scenes)
+            scene.physicsManager2d.update(BenchmarkScene.TIME_STEP);
+    }
+
+    @Benchmark
+    public void parallel() {
+        if (stepper.size() == 0) {
+            for (BenchmarkScene scene : scenes)
+                stepper.add(scene.physicsManager2d);
+        }
+
+        stepper.step(BenchmarkScene.TIME_STEP);
+        for (BenchmarkScene scene : scenes)
+            scene.physicsManager2d.update(BenchmarkScene.TIME_STEP);
+    }
+}
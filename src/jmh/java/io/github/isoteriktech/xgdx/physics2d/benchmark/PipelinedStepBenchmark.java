@@ -0,0 +1,72 @@
+package io.github.isoteriktech.xgdx.physics2d.benchmark;
+
+import io.github.isoteriktech.xgdx.physics2d.RigidBody2d;
+import io.github.isoteriktech.xgdx.physics2d.concurrent.PipelinedPhysicsStepper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time of a whole frame, one fixed step plus a fixed amount of render work, when the step blocks the frame and when it runs on
+ * the physics thread of a {@link PipelinedPhysicsStepper} while the frame is rendered. The bodies are kept awake, so every step does the
+ * same amount of work.
+ *
+ * @author isoteriksoftware
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PipelinedStepBenchmark {
+    @Param({"1000", "4000"})
+    public int bodyCount;
+
+    /* Blackhole tokens standing in for rendering a frame */
+    @Param({"250000"})
+    public long renderWork;
+
+    private BenchmarkScene blocking, pipelined;
+    private PipelinedPhysicsStepper stepper;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        BenchmarkScene.initHeadless();
+
+        blocking = createScene();
+        pipelined = createScene();
+        stepper = new PipelinedPhysicsStepper(pipelined.physicsManager2d);
+    }
+
+    private BenchmarkScene createScene() {
+        BenchmarkScene scene = new BenchmarkScene(bodyCount, 0);
+        scene.settle(60);
+        for (RigidBody2d rigidBody2d : scene.rigidBodies)
+            rigidBody2d.getBody().setSleepingAllowed(false);
+
+        // Both benchmarks defer contact events, so they only differ in when the world is stepped
+        scene.physicsManager2d.setDeferContactEvents(true);
+        return scene;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        stepper.dispose();
+        blocking.physicsManager2d.destroy();
+        pipelined.physicsManager2d.destroy();
+    }
+
+    @Benchmark
+    public void blockingFrame() {
+        blocking.physicsManager2d.update(BenchmarkScene.TIME_STEP);
+        Blackhole.consumeCPU(renderWork);
+    }
+
+    @Benchmark
+    public void pipelinedFrame() {
+        stepper.step(BenchmarkScene.TIME_STEP);
+        pipelined.physicsManager2d.update(BenchmarkScene.TIME_STEP);
+        Blackhole.consumeCPU(renderWork);
+    }
+}
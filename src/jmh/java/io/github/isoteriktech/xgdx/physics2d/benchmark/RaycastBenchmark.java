@@ -0,0 +1,88 @@
+package io.github.isoteriktech.xgdx.physics2d.benchmark;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.physics.box2d.World;
+import io.github.isoteriktech.xgdx.physics2d.PhysicsManager2d;
+import io.github.isoteriktech.xgdx.physics2d.RaycastBatch2d;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures closest-hit raycasts per second over a settled pile, the way line-of-sight checks use them:
+ * one {@link World#rayCast} with its own callback per ray, a {@link PhysicsManager2d#raycast(RaycastBatch2d)} batch with an empty cache,
+ * and the same batch cast again within the step, answered from the cache.
+ *
+ * @author isoteriksoftware
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RaycastBenchmark {
+    static final int RAY_COUNT = 20000;
+
+    @Param({"1000", "5000"})
+    public int bodyCount;
+
+    private BenchmarkScene scene;
+    private RaycastBatch2d batch;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        BenchmarkScene.initHeadless();
+        scene = new BenchmarkScene(bodyCount, 0);
+        scene.settle(60);
+
+        // Rays start anywhere in the pile and are up to 20 units long
+        int columns = (int)Math.ceil(Math.sqrt(bodyCount) * 4);
+        int rows = (bodyCount + columns - 1) / columns;
+        float width = columns * 1.25f, height = rows * 1.25f * 2;
+
+        MathUtils.random.setSeed(7);
+        batch = new RaycastBatch2d(RAY_COUNT);
+        for (int i = 0; i < RAY_COUNT; i++) {
+            float angle = MathUtils.random(MathUtils.PI2);
+            float length = MathUtils.random(1f, 20f);
+            batch.add(MathUtils.random(1, width), MathUtils.random(1, height), MathUtils.cos(angle) * length, MathUtils.sin(angle) * length);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        scene.physicsManager2d.destroy();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RAY_COUNT)
+    public float worldRayCast() {
+        World world = scene.physicsManager2d.getPhysicsWorld();
+        float total = 0;
+        for (int i = 0; i < RAY_COUNT; i++) {
+            float x = batch.originX[i], y = batch.originY[i];
+            final float[] closest = { 1 };
+            world.rayCast((fixture, point, normal, fraction) -> {
+                closest[0] = fraction;
+                return fraction;
+            }, x, y, x + batch.directionX[i], y + batch.directionY[i]);
+            total += closest[0];
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RAY_COUNT)
+    public float batchRaycast() {
+        scene.physicsManager2d.invalidateRaycastCache();
+        scene.physicsManager2d.raycast(batch);
+        return batch.fraction[RAY_COUNT - 1];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RAY_COUNT)
+    public float batchRaycastCached() {
+        scene.physicsManager2d.raycast(batch);
+        return batch.fraction[RAY_COUNT - 1];
+    }
+}
@@ -0,0 +1,115 @@
+package io.github.isoteriktech.xgdx.physics2d.benchmark;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.utils.Array;
+import io.github.isoteriktech.xgdx.GameObject;
+import io.github.isoteriktech.xgdx.Scene;
+import io.github.isoteriktech.xgdx.physics2d.PhysicsManager2d;
+import io.github.isoteriktech.xgdx.physics2d.PhysicsMaterial2d;
+import io.github.isoteriktech.xgdx.physics2d.RigidBody2d;
+import io.github.isoteriktech.xgdx.physics2d.colliders.BoxCollider;
+import io.github.isoteriktech.xgdx.physics2d.colliders.CircleCollider;
+import io.github.isoteriktech.xgdx.physics2d.serialization.PhysicsSceneLoader;
+import io.github.isoteriktech.xgdx.physics2d.serialization.PhysicsSceneWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time it takes to load a level of 50k fixtures into an empty scene: 10k static objects with five colliders each, built from
+ * components or loaded from a file saved by {@link PhysicsSceneWriter} with {@link PhysicsSceneLoader}.
+ *
+ * @author isoteriksoftware
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 20)
+public class SceneLoadBenchmark {
+    private static final int OBJECT_COUNT = 10000;
+    private static final int COLLIDERS_PER_OBJECT = 5;
+
+    private final PhysicsMaterial2d[] materials = new PhysicsMaterial2d[4];
+    private final Array<Body> bodies = new Array<>(OBJECT_COUNT);
+
+    private File file;
+    private PhysicsSceneLoader loader;
+
+    private Scene scene;
+    private PhysicsManager2d physicsManager2d;
+    private GameObject[] gameObjects;
+
+    @Setup(Level.Trial)
+    public void setupFile() throws IOException {
+        BenchmarkScene.initHeadless();
+        for (int i = 0; i < materials.length; i++)
+            materials[i] = new PhysicsMaterial2d(.2f * i, .1f * i, 1 + i);
+
+        setupScene();
+        componentLoad();
+
+        file = File.createTempFile("level", ".xp2d");
+        file.deleteOnExit();
+        new PhysicsSceneWriter().write(physicsManager2d, new FileHandle(file));
+        tearDown();
+
+        loader = new PhysicsSceneLoader();
+    }
+
+    @TearDown(Level.Trial)
+    public void disposeLoader() {
+        loader.dispose();
+    }
+
+    @Setup(Level.Invocation)
+    public void setupScene() {
+        scene = new Scene();
+        physicsManager2d = PhysicsManager2d.setup(scene);
+
+        gameObjects = new GameObject[OBJECT_COUNT];
+        for (int i = 0; i < OBJECT_COUNT; i++) {
+            GameObject go = GameObject.newInstance("Level" + i);
+            go.transform.setPosition((i % 100) * 4f, (i / 100) * 2f);
+            go.transform.setSize(3, 1);
+            gameObjects[i] = go;
+        }
+        bodies.clear();
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown() {
+        physicsManager2d.destroy();
+    }
+
+    @Benchmark
+    public Scene componentLoad() {
+        for (int i = 0; i < OBJECT_COUNT; i++) {
+            GameObject go = gameObjects[i];
+            for (int c = 0; c < COLLIDERS_PER_OBJECT; c++) {
+                PhysicsMaterial2d material = materials[(i + c) % materials.length];
+                if (c % 2 == 0) {
+                    BoxCollider box = new BoxCollider(.5f, .5f);
+                    box.setCenter(c * .6f - 1.2f, 0);
+                    go.addComponent(box.setMaterial(material));
+                } else {
+                    go.addComponent(new CircleCollider(.25f, c * .6f - 1.2f, 0).setMaterial(material));
+                }
+            }
+
+            go.addComponent(new RigidBody2d(RigidBody2d.StaticBody, physicsManager2d));
+            scene.addGameObject(go);
+        }
+
+        return scene;
+    }
+
+    @Benchmark
+    public Array<Body> mappedLoad() {
+        loader.load(new FileHandle(file), physicsManager2d, bodies, null);
+        return bodies;
+    }
+}
@@ -0,0 +1,49 @@
+package io.github.isoteriktech.xgdx.physics2d.benchmark;
+
+import io.github.isoteriktech.xgdx.physics2d.PhysicsManager2d;
+import io.github.isoteriktech.xgdx.physics2d.PhysicsSnapshot;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the microseconds to save the state of a settled pile with {@link PhysicsManager2d#snapshot(PhysicsSnapshot)} and to put it back
+ * with {@link PhysicsManager2d#restore(PhysicsSnapshot)}, reusing one snapshot the way rollback networking does.
+ *
+ * @author isoteriksoftware
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SnapshotBenchmark {
+    @Param({"500", "2000"})
+    public int bodyCount;
+
+    private BenchmarkScene scene;
+    private PhysicsSnapshot snapshot;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        BenchmarkScene.initHeadless();
+        scene = new BenchmarkScene(bodyCount, 0);
+        scene.settle(60);
+        snapshot = scene.physicsManager2d.snapshot();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        scene.physicsManager2d.destroy();
+    }
+
+    @Benchmark
+    public PhysicsSnapshot save() {
+        return scene.physicsManager2d.snapshot(snapshot);
+    }
+
+    @Benchmark
+    public boolean restore() {
+        return scene.physicsManager2d.restore(snapshot);
+    }
+}
@@ -0,0 +1,46 @@
+package io.github.isoteriktech.xgdx.physics2d.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures full physics steps per second through {@link io.github.isoteriktech.xgdx.physics2d.PhysicsManager2d#update(float)},
+ * which covers the Box2D step, the fixedUpdate2d dispatch, transform sync and contact dispatch together. Every call passes a delta of
+ * exactly one time step and the manager takes at most one step per frame, so each call is exactly one step, however long the last one took.
+ *
+ * @author isoteriksoftware
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class StepBenchmark {
+    @Param({"100", "1000", "5000", "20000"})
+    public int bodyCount;
+
+    /** Models scenes where most game objects have no physics at all */
+    @Param({"0", "9"})
+    public int plainObjectsPerBody;
+
+    private BenchmarkScene scene;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        BenchmarkScene.initHeadless();
+        scene = new BenchmarkScene(bodyCount, plainObjectsPerBody);
+        scene.physicsManager2d.setMaxSubSteps(1);
+        scene.settle(60);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        scene.physicsManager2d.destroy();
+    }
+
+    @Benchmark
+    public void step() {
+        scene.physicsManager2d.update(BenchmarkScene.TIME_STEP);
+    }
+}
@@ -0,0 +1,76 @@
+package io.github.isoteriktech.xgdx.physics2d.benchmark;
+
+import io.github.isoteriktech.xgdx.physics2d.PhysicsManager2d;
+import io.github.isoteriktech.xgdx.physics2d.RigidBody2d;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of copying a body's transform to its game object, in nanoseconds per body.
+ * Every invocation syncs {@link #BODIES_PER_INVOCATION} bodies, walking the scene round-robin.
+ * {@link #perBodySync()} is the path each {@link RigidBody2d} takes on its own; {@link #batchSync()} is the manager's batched pass, which
+ * also skips bodies that are asleep.
+ *
+ * @author isoteriksoftware
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TransformSyncBenchmark {
+    static final int BODIES_PER_INVOCATION = 100;
+
+    @Param({"100", "1000", "5000", "20000"})
+    public int bodyCount;
+
+    private BenchmarkScene scene;
+    private RigidBody2d[] bodies;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        BenchmarkScene.initHeadless();
+        scene = new BenchmarkScene(bodyCount, 0);
+        scene.settle(60);
+        bodies = scene.rigidBodies.toArray(RigidBody2d.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        scene.physicsManager2d.destroy();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BODIES_PER_INVOCATION)
+    public void perBodySync() {
+        RigidBody2d[] bodies = this.bodies;
+        int cursor = this.cursor;
+        for (int i = 0; i < BODIES_PER_INVOCATION; i++) {
+            bodies[cursor].__syncTransform();
+            if (++cursor == bodies.length)
+                cursor = 0;
+        }
+
+        this.cursor = cursor;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BODIES_PER_INVOCATION)
+    public void batchSync() {
+        // Every scene holds at least BODIES_PER_INVOCATION bodies, so we wrap around at most once
+        PhysicsManager2d physicsManager2d = scene.physicsManager2d;
+        int count = bodies.length;
+        int end = cursor + BODIES_PER_INVOCATION;
+        if (end <= count) {
+            physicsManager2d.__syncBodyTransforms(cursor, end);
+            cursor = end == count ? 0 : end;
+        }
+        else {
+            physicsManager2d.__syncBodyTransforms(cursor, count);
+            physicsManager2d.__syncBodyTransforms(0, end - count);
+            cursor = end - count;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package io.github.isoteriktech.xgdx.physics2d;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Fixture;
+import com.badlogic.gdx.physics.box2d.RayCastCallback;
+import com.badlogic.gdx.physics.box2d.World;
+
+import java.util.Arrays;
+
+/**
+ * Casts the rays of a {@link RaycastBatch2d} with one reused callback and remembers every answer until the world changes, so identical rays
+ * cast again in the same step cost a hash lookup instead of a trip through Box2D.
+ * The cache is an open addressing table of primitive arrays. It is emptied by bumping a generation number, so invalidating it is free.
+ * When the world is partitioned, every ray is cast in every region and ghosts are skipped.
+ *
+ * @author isoteriksoftware
+ */
+final class BatchRaycaster implements RayCastCallback {
+    /* Ints per key: the bits of the origin, the direction, and the mask along with whether sensors are hit */
+    private static final int KEY_SIZE = 5;
+
+    private final PhysicsManager2d physicsManager2d;
+
+    private int[] keys;
+    private float[] fractions, normals;
+    private int[] hitIndices;
+    private int[] generations;
+    private int mask, count;
+    private int generation = 1;
+
+    /* The ray being cast and the filter part of its key */
+    private short maskBits;
+    private boolean hitSensors;
+    private int filter;
+    private float closestFraction, closestNormalX, closestNormalY;
+    private Fixture closestFixture;
+
+    BatchRaycaster(PhysicsManager2d physicsManager2d) {
+        this.physicsManager2d = physicsManager2d;
+        allocate(256);
+    }
+
+    /* Forgets every cached ray */
+    void invalidate() {
+        if (++generation == 0) {
+            Arrays.fill(generations, 0);
+            generation = 1;
+        }
+        count = 0;
+    }
+
+    void raycast(RaycastBatch2d batch, boolean hitSensors) {
+        this.maskBits = batch.maskBits;
+        this.hitSensors = hitSensors;
+        filter = (maskBits & 0xFFFF) | (hitSensors ? 0x10000 : 0);
+
+        float[] originX = batch.originX, originY = batch.originY, directionX = batch.directionX, directionY = batch.directionY;
+        int cacheHits = 0;
+        for (int i = 0, n = batch.size; i < n; i++) {
+            int ox = Float.floatToIntBits(originX[i]), oy = Float.floatToIntBits(originY[i]);
+            int dx = Float.floatToIntBits(directionX[i]), dy = Float.floatToIntBits(directionY[i]);
+
+            int slot = find(ox, oy, dx, dy);
+            if (generations[slot] == generation) {
+                cacheHits++;
+            }
+            else {
+                cast(originX[i], originY[i], directionX[i], directionY[i]);
+                slot = insert(slot, ox, oy, dx, dy);
+            }
+
+            batch.fraction[i] = fractions[slot];
+            batch.normalX[i] = normals[2 * slot];
+            batch.normalY[i] = normals[2 * slot + 1];
+            batch.hitIndex[i] = hitIndices[slot];
+        }
+
+        batch.cacheHits = cacheHits;
+    }
+
+    /* Casts one ray and stores its closest hit in the closest* fields */
+    private void cast(float x, float y, float dx, float dy) {
+        closestFixture = null;
+        closestFraction = 1;
+        closestNormalX = closestNormalY = 0;
+        if (dx == 0 && dy == 0)
+            return;
+
+        for (World world : physicsManager2d.worlds)
+            world.rayCast(this, x, y, x + dx, y + dy);
+    }
+
+    @Override
+    public float reportRayFixture(Fixture fixture, Vector2 point, Vector2 normal, float fraction) {
+        if (fixture.isSensor() && !hitSensors)
+            return -1;
+
+        if ((fixture.getFilterData().categoryBits & maskBits) == 0)
+            return -1;
+
+        if (physicsManager2d.isGhost(fixture.getBody()))
+            return -1;
+
+        // A closer hit may have been found in another world already
+        if (closestFixture != null && fraction >= closestFraction)
+            return closestFraction;
+
+        closestFixture = fixture;
+        closestFraction = fraction;
+        closestNormalX = normal.x;
+        closestNormalY = normal.y;
+
+        // Clip the ray so only closer fixtures are reported from now on
+        return fraction;
+    }
+
+    /* Returns the slot holding a ray or the empty slot where it belongs */
+    private int find(int ox, int oy, int dx, int dy) {
+        int h = ox;
+        h = 31 * h + oy;
+        h = 31 * h + dx;
+        h = 31 * h + dy;
+        h = 31 * h + filter;
+        h ^= h >>> 16;
+
+        int slot = h & mask;
+        while (generations[slot] == generation) {
+            int k = slot * KEY_SIZE;
+            if (keys[k] == ox && keys[k + 1] == oy && keys[k + 2] == dx && keys[k + 3] == dy && keys[k + 4] == filter)
+                return slot;
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /* Stores the result of the last cast in an empty slot and returns the slot it ended up in */
+    private int insert(int slot, int ox, int oy, int dx, int dy) {
+        if (count + 1 > (mask + 1) >> 1) {
+            grow();
+            slot = find(ox, oy, dx, dy);
+        }
+
+        int k = slot * KEY_SIZE;
+        keys[k] = ox;
+        keys[k + 1] = oy;
+        keys[k + 2] = dx;
+        keys[k + 3] = dy;
+        keys[k + 4] = filter;
+        fractions[slot] = closestFraction;
+        normals[2 * slot] = closestNormalX;
+        normals[2 * slot + 1] = closestNormalY;
+        hitIndices[slot] = toHitIndex(closestFixture);
+        generations[slot] = generation;
+        count++;
+
+        closestFixture = null;
+        return slot;
+    }
+
+    private int toHitIndex(Fixture fixture) {
+        if (fixture == null)
+            return RaycastBatch2d.NO_HIT;
+
+        RigidBody2d owner = physicsManager2d.bodyOwners.get(fixture.getBody());
+        return owner != null ? owner.bodyIndex : RaycastBatch2d.OTHER_BODY;
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity * KEY_SIZE];
+        fractions = new float[capacity];
+        normals = new float[capacity * 2];
+        hitIndices = new int[capacity];
+        generations = new int[capacity];
+        mask = capacity - 1;
+        count = 0;
+    }
+
+    /* Doubles the table and re-inserts the rays of the current generation */
+    private void grow() {
+        int[] oldKeys = keys, oldHitIndices = hitIndices, oldGenerations = generations;
+        float[] oldFractions = fractions, oldNormals = normals;
+        int oldGeneration = generation;
+        int currentFilter = filter;
+
+        allocate((mask + 1) * 2);
+        for (int old = 0; old < oldGenerations.length; old++) {
+            if (oldGenerations[old] != oldGeneration)
+                continue;
+
+            int k = old * KEY_SIZE;
+            filter = oldKeys[k + 4];
+            int slot = find(oldKeys[k], oldKeys[k + 1], oldKeys[k + 2], oldKeys[k + 3]);
+            System.arraycopy(oldKeys, k, keys, slot * KEY_SIZE, KEY_SIZE);
+            fractions[slot] = oldFractions[old];
+            normals[2 * slot] = oldNormals[2 * old];
+            normals[2 * slot + 1] = oldNormals[2 * old + 1];
+            hitIndices[slot] = oldHitIndices[old];
+            generations[slot] = generation;
+            count++;
+        }
+
+        filter = currentFilter;
+    }
+}
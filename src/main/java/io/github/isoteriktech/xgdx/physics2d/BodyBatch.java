@@ -0,0 +1,143 @@
+package io.github.isoteriktech.xgdx.physics2d;
+
+import com.badlogic.gdx.physics.box2d.BodyDef;
+import com.badlogic.gdx.utils.Array;
+
+import java.util.Arrays;
+
+/**
+ * A compact description of many physics objects, loaded in one pass by {@link PhysicsManager2d#createBodies(BodyBatch, io.github.isoteriktech.xgdx.GameObject[])}.
+ * Object i is described by index i of every array. Positions, sizes and rotations follow the conventions of the game object transform:
+ * the position is the lower left corner and the rotation is in degrees.
+ * Materials are shared through a palette; every object stores the index of its material in {@link #materials}.
+ *
+ * @author isoteriksoftware
+ */
+public class BodyBatch {
+    /** A {@link io.github.isoteriktech.xgdx.physics2d.colliders.BoxCollider} the size of the object */
+    public static final byte BOX = 0;
+
+    /** A {@link io.github.isoteriktech.xgdx.physics2d.colliders.CircleCollider} with a diameter of the object's width */
+    public static final byte CIRCLE = 1;
+
+    /** The number of objects in this batch */
+    public int size;
+
+    /** The lower left corner of every object */
+    public float[] x, y;
+
+    /** The size of every object */
+    public float[] width, height;
+
+    /** The rotation of every object in degrees */
+    public float[] rotation;
+
+    /** The body type of every object */
+    public BodyDef.BodyType[] bodyType;
+
+    /** The collider kind of every object: {@link #BOX} or {@link #CIRCLE} */
+    public byte[] colliderKind;
+
+    /** The index of every object's material in {@link #materials} */
+    public short[] material;
+
+    /** The materials shared by the objects of this batch */
+    public final Array<PhysicsMaterial2d> materials = new Array<>();
+
+    /**
+     * Creates a new batch with room for the given number of objects.
+     * @param capacity the initial capacity
+     */
+    public BodyBatch(int capacity) {
+        capacity = Math.max(1, capacity);
+        x = new float[capacity];
+        y = new float[capacity];
+        width = new float[capacity];
+        height = new float[capacity];
+        rotation = new float[capacity];
+        bodyType = new BodyDef.BodyType[capacity];
+        colliderKind = new byte[capacity];
+        material = new short[capacity];
+    }
+
+    /**
+     * Adds a material to the palette of this batch.
+     * @param material the material
+     * @return the index of the material
+     */
+    public int addMaterial(PhysicsMaterial2d material) {
+        materials.add(material);
+        return materials.size - 1;
+    }
+
+    /**
+     * Adds an object to this batch.
+     * @param x the x-coordinate of the lower left corner
+     * @param y the y-coordinate of the lower left corner
+     * @param width the width
+     * @param height the height
+     * @param rotation the rotation in degrees
+     * @param bodyType the body type
+     * @param material the index of the material in {@link #materials}
+     * @param colliderKind {@link #BOX} or {@link #CIRCLE}
+     * @return the index of the object
+     * @throws IllegalArgumentException if the material index or the collider kind is invalid
+     */
+    public int add(float x, float y, float width, float height, float rotation, BodyDef.BodyType bodyType, int material, byte colliderKind)
+            throws IllegalArgumentException {
+        if (material < 0 || material >= materials.size)
+            throw new IllegalArgumentException("Unknown material index: " + material);
+
+        if (colliderKind != BOX && colliderKind != CIRCLE)
+            throw new IllegalArgumentException("Unknown collider kind: " + colliderKind);
+
+        if (size == this.x.length)
+            grow(size * 2);
+
+        int i = size++;
+        this.x[i] = x;
+        this.y[i] = y;
+        this.width[i] = width;
+        this.height[i] = height;
+        this.rotation[i] = rotation;
+        this.bodyType[i] = bodyType;
+        this.material[i] = (short)material;
+        this.colliderKind[i] = colliderKind;
+
+        return i;
+    }
+
+    /**
+     * Removes every object. The materials are kept.
+     */
+    public void clear() {
+        Arrays.fill(bodyType, 0, size, null);
+        size = 0;
+    }
+
+    private void grow(int capacity) {
+        x = copy(x, capacity);
+        y = copy(y, capacity);
+        width = copy(width, capacity);
+        height = copy(height, capacity);
+        rotation = copy(rotation, capacity);
+
+        BodyDef.BodyType[] newBodyType = new BodyDef.BodyType[capacity];
+        System.arraycopy(bodyType, 0, newBodyType, 0, size);
+        bodyType = newBodyType;
+
+        byte[] newColliderKind = new byte[capacity];
+        System.arraycopy(colliderKind, 0, newColliderKind, 0, size);
+        colliderKind = newColliderKind;
+
+        short[] newMaterial = new short[capacity];
+        System.arraycopy(material, 0, newMaterial, 0, size);
+        material = newMaterial;
+    }
+
+    private float[] copy(float[] array, int capacity) {
+        float[] newArray = new float[capacity];
+        System.arraycopy(array, 0, newArray, 0, size);
+        return newArray;
+    }
+}
@@ -0,0 +1,133 @@
+package io.github.isoteriktech.xgdx.physics2d;
+
+import io.github.isoteriktech.xgdx.Component;
+import io.github.isoteriktech.xgdx.physics2d.colliders.Collider;
+
+/**
+ * The {@link RigidBody2d} mutations made while a pipelined step is in flight (see
+ * {@link io.github.isoteriktech.xgdx.physics2d.concurrent.PipelinedPhysicsStepper}), replayed in order at the step boundary once the
+ * physics thread is done with the world. Commands are stored as a structure of arrays with up to five float arguments each, so
+ * recording one doesn't allocate once the queue is big enough.
+ *
+ * @author isoteriksoftware
+ */
+final class BodyCommandQueue {
+    static final int ATTACH = 0, DETACH = 1, ADD_COLLIDER = 2, REMOVE_COLLIDER = 3;
+    static final int SET_TRANSFORM = 4, SET_LINEAR_VELOCITY = 5, SET_ANGULAR_VELOCITY = 6;
+    static final int APPLY_FORCE = 7, APPLY_FORCE_TO_CENTER = 8, APPLY_LINEAR_IMPULSE = 9, APPLY_TORQUE = 10, APPLY_ANGULAR_IMPULSE = 11;
+
+    private static final int ARGS = 5;
+
+    private int[] ops;
+    private RigidBody2d[] targets;
+    private Component[] components;
+    private float[] args;
+    private int size;
+
+    BodyCommandQueue(int capacity) {
+        capacity = Math.max(1, capacity);
+        ops = new int[capacity];
+        targets = new RigidBody2d[capacity];
+        components = new Component[capacity];
+        args = new float[capacity * ARGS];
+    }
+
+    int size()
+    { return size; }
+
+    void add(int op, RigidBody2d target, Component component)
+    { add(op, target, component, 0, 0, 0, 0, 0); }
+
+    void add(int op, RigidBody2d target, float a0, float a1, float a2, float a3, float a4)
+    { add(op, target, null, a0, a1, a2, a3, a4); }
+
+    private void add(int op, RigidBody2d target, Component component, float a0, float a1, float a2, float a3, float a4) {
+        if (size == ops.length)
+            grow(size * 2);
+
+        int i = size++;
+        ops[i] = op;
+        targets[i] = target;
+        components[i] = component;
+
+        int a = i * ARGS;
+        args[a] = a0;
+        args[a + 1] = a1;
+        args[a + 2] = a2;
+        args[a + 3] = a3;
+        args[a + 4] = a4;
+    }
+
+    /* Replays every command in the order it was recorded. Commands recorded while replaying run in the same pass. */
+    void apply() {
+        for (int i = 0; i < size; i++) {
+            RigidBody2d target = targets[i];
+            Component component = components[i];
+            targets[i] = null;
+            components[i] = null;
+
+            int a = i * ARGS;
+            float a0 = args[a], a1 = args[a + 1], a2 = args[a + 2], a3 = args[a + 3];
+            boolean wake = args[a + 4] != 0;
+
+            switch (ops[i]) {
+                case ATTACH:
+                    target.attachNow();
+                    break;
+                case DETACH:
+                    target.detachNow();
+                    break;
+                case ADD_COLLIDER:
+                    target.addCollider((Collider)component);
+                    break;
+                case REMOVE_COLLIDER:
+                    target.removeCollider((Collider)component);
+                    break;
+                case SET_TRANSFORM:
+                    target.setTransform(a0, a1, a2);
+                    break;
+                case SET_LINEAR_VELOCITY:
+                    target.setLinearVelocity(a0, a1);
+                    break;
+                case SET_ANGULAR_VELOCITY:
+                    target.setAngularVelocity(a0);
+                    break;
+                case APPLY_FORCE:
+                    target.applyForce(a0, a1, a2, a3, wake);
+                    break;
+                case APPLY_FORCE_TO_CENTER:
+                    target.applyForceToCenter(a0, a1, wake);
+                    break;
+                case APPLY_LINEAR_IMPULSE:
+                    target.applyLinearImpulse(a0, a1, a2, a3, wake);
+                    break;
+                case APPLY_TORQUE:
+                    target.applyTorque(a0, wake);
+                    break;
+                case APPLY_ANGULAR_IMPULSE:
+                    target.applyAngularImpulse(a0, wake);
+                    break;
+            }
+        }
+
+        size = 0;
+    }
+
+    private void grow(int capacity) {
+        int[] newOps = new int[capacity];
+        System.arraycopy(ops, 0, newOps, 0, size);
+        ops = newOps;
+
+        RigidBody2d[] newTargets = new RigidBody2d[capacity];
+        System.arraycopy(targets, 0, newTargets, 0, size);
+        targets = newTargets;
+
+        Component[] newComponents = new Component[capacity];
+        System.arraycopy(components, 0, newComponents, 0, size);
+        components = newComponents;
+
+        float[] newArgs = new float[capacity * ARGS];
+        System.arraycopy(args, 0, newArgs, 0, size * ARGS);
+        args = newArgs;
+    }
+}
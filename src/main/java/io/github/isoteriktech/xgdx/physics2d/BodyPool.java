@@ -0,0 +1,190 @@
+package io.github.isoteriktech.xgdx.physics2d;
+
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.ObjectMap;
+
+/**
+ * Keeps deactivated physics bodies so {@link RigidBody2d}s with the same colliders can reuse them instead of creating new ones.
+ * Bodies are bucketed by a signature: the body type followed by the geometry of every collider, in order. Two bodies with the same signature
+ * have identical fixtures, so a pooled body only needs its transform, velocities and fixture properties reset before it is used again.
+ * <p>
+ * Pooling is disabled until a cap is set with {@link #setMaxBodies(int)}.
+ *
+ * @author isoteriksoftware
+ */
+public class BodyPool {
+    private final World world;
+
+    private final ObjectMap<GeometrySignature, Array<Body>> buckets = new ObjectMap<>();
+
+    /* Wraps the signature being looked up so lookups don't allocate */
+    private final GeometrySignature lookup = new GeometrySignature();
+
+    private int maxBodies, maxBodiesPerSignature = Integer.MAX_VALUE;
+    private int size;
+    private int hits, misses;
+
+    /**
+     * Creates a new pool for bodies of the given world.
+     * @param world the world the pooled bodies belong to
+     */
+    public BodyPool(World world) {
+        this.world = world;
+    }
+
+    /**
+     * Sets the maximum number of bodies kept in this pool. Bodies freed when the pool is full are destroyed.
+     * Pooled bodies beyond the new cap are destroyed immediately. Defaults to 0, which disables pooling.
+     * @param maxBodies the maximum number of pooled bodies
+     * @throws IllegalArgumentException if maxBodies is negative
+     */
+    public void setMaxBodies(int maxBodies) throws IllegalArgumentException {
+        if (maxBodies < 0)
+            throw new IllegalArgumentException("maxBodies cannot be negative!");
+
+        this.maxBodies = maxBodies;
+        if (size > maxBodies)
+            trim(maxBodies, maxBodiesPerSignature);
+    }
+
+    /**
+     *
+     * @return the maximum number of bodies kept in this pool
+     */
+    public int getMaxBodies()
+    { return maxBodies; }
+
+    /**
+     * Sets the maximum number of bodies kept for a single signature, so one kind of body cannot fill the whole pool.
+     * Defaults to no limit.
+     * @param maxBodiesPerSignature the maximum number of pooled bodies per signature
+     * @throws IllegalArgumentException if maxBodiesPerSignature is negative
+     */
+    public void setMaxBodiesPerSignature(int maxBodiesPerSignature) throws IllegalArgumentException {
+        if (maxBodiesPerSignature < 0)
+            throw new IllegalArgumentException("maxBodiesPerSignature cannot be negative!");
+
+        this.maxBodiesPerSignature = maxBodiesPerSignature;
+        trim(maxBodies, maxBodiesPerSignature);
+    }
+
+    /**
+     *
+     * @return the maximum number of bodies kept for a single signature
+     */
+    public int getMaxBodiesPerSignature()
+    { return maxBodiesPerSignature; }
+
+    /**
+     *
+     * @return whether this pool keeps bodies at all
+     */
+    public boolean isEnabled()
+    { return maxBodies > 0; }
+
+    /**
+     *
+     * @return the number of bodies currently in this pool
+     */
+    public int size()
+    { return size; }
+
+    /**
+     *
+     * @return the number of times a body was reused
+     */
+    public int getHits()
+    { return hits; }
+
+    /**
+     *
+     * @return the number of times no body was available for a signature while pooling was enabled
+     */
+    public int getMisses()
+    { return misses; }
+
+    /**
+     * Resets the hit and miss counters.
+     */
+    public void resetCounters()
+    { hits = misses = 0; }
+
+    /**
+     * Takes a body with the given signature out of the pool. The body is still deactivated.
+     * @param signature the signature of the body
+     * @return a pooled body or null if there is none
+     */
+    public Body obtain(FloatArray signature) {
+        if (maxBodies == 0)
+            return null;
+
+        Array<Body> bucket = buckets.get(lookup.wrap(signature));
+        if (bucket == null || bucket.isEmpty()) {
+            misses++;
+            return null;
+        }
+
+        hits++;
+        size--;
+        return bucket.pop();
+    }
+
+    /**
+     * Puts a deactivated body into the pool.
+     * @param signature the signature of the body
+     * @param body the body
+     * @return true if the body was pooled; false if the pool is full and the body should be destroyed instead
+     */
+    public boolean free(FloatArray signature, Body body) {
+        if (size >= maxBodies)
+            return false;
+
+        Array<Body> bucket = buckets.get(lookup.wrap(signature));
+        if (bucket == null) {
+            bucket = new Array<>(false, 16, Body.class);
+            buckets.put(new GeometrySignature().copy(signature), bucket);
+        }
+
+        if (bucket.size >= maxBodiesPerSignature)
+            return false;
+
+        bucket.add(body);
+        size++;
+        return true;
+    }
+
+    /**
+     * Returns whether a body is parked in this pool. Walks every bucket, so keep it out of per-frame code.
+     * @param body the body
+     * @return true if the body is pooled
+     */
+    public boolean contains(Body body) {
+        if (size == 0)
+            return false;
+
+        for (Array<Body> bucket : buckets.values()) {
+            if (bucket.contains(body, true))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Destroys every pooled body. Must not be called during a step.
+     */
+    public void clear()
+    { trim(0, 0); }
+
+    /* Destroys pooled bodies until both caps are met */
+    private void trim(int maxBodies, int maxBodiesPerSignature) {
+        for (Array<Body> bucket : buckets.values()) {
+            while (bucket.size > 0 && (size > maxBodies || bucket.size > maxBodiesPerSignature)) {
+                world.destroyBody(bucket.pop());
+                size--;
+            }
+        }
+    }
+}
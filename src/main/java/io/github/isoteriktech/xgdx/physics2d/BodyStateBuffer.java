@@ -0,0 +1,134 @@
+package io.github.isoteriktech.xgdx.physics2d;
+
+/**
+ * Holds the previous and current physics state of every body registered with a {@link PhysicsManager2d} as a structure of arrays.
+ * Index i of every array belongs to the body at index i of the manager's registry. Positions are body centers in world units and
+ * angles are in radians.
+ * Keeping each value in its own contiguous array lets the manager read back all bodies in one tight pass and lets rendering interpolate
+ * without touching Box2D.
+ *
+ * @author isoteriksoftware
+ */
+public class BodyStateBuffer {
+    /** The state captured by the step before the last one */
+    public float[] prevX, prevY, prevAngle;
+
+    /** The state captured by the last step */
+    public float[] x, y, angle;
+
+    /** Whether the state of a body changed during the last capture. Bodies that did not change need no transform sync. */
+    public boolean[] changed;
+
+    /** Whether a body was awake when its state was last read. A body that just fell asleep gets read one last time. */
+    public boolean[] awake;
+
+    /**
+     * Creates a new buffer with room for the given number of bodies.
+     * @param capacity the initial capacity
+     */
+    public BodyStateBuffer(int capacity) {
+        prevX = new float[capacity];
+        prevY = new float[capacity];
+        prevAngle = new float[capacity];
+        x = new float[capacity];
+        y = new float[capacity];
+        angle = new float[capacity];
+        changed = new boolean[capacity];
+        awake = new boolean[capacity];
+    }
+
+    /**
+     *
+     * @return the number of bodies this buffer can hold without growing
+     */
+    public int capacity()
+    { return x.length; }
+
+    /**
+     * Grows the buffer if needed so it can hold at least the given number of bodies.
+     * @param capacity the required capacity
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity <= x.length)
+            return;
+
+        int newCapacity = Math.max(capacity, x.length * 2);
+        prevX = grow(prevX, newCapacity);
+        prevY = grow(prevY, newCapacity);
+        prevAngle = grow(prevAngle, newCapacity);
+        x = grow(x, newCapacity);
+        y = grow(y, newCapacity);
+        angle = grow(angle, newCapacity);
+
+        changed = grow(changed, newCapacity);
+        awake = grow(awake, newCapacity);
+    }
+
+    private static float[] grow(float[] array, int capacity) {
+        float[] newArray = new float[capacity];
+        System.arraycopy(array, 0, newArray, 0, array.length);
+        return newArray;
+    }
+
+    private static boolean[] grow(boolean[] array, int capacity) {
+        boolean[] newArray = new boolean[capacity];
+        System.arraycopy(array, 0, newArray, 0, array.length);
+        return newArray;
+    }
+
+    /**
+     * Sets both the previous and the current state of a body, so there is nothing to interpolate.
+     * @param index the index of the body
+     * @param x the x-coordinate of the body's center
+     * @param y the y-coordinate of the body's center
+     * @param angle the angle of the body in radians
+     */
+    public void reset(int index, float x, float y, float angle) {
+        prevX[index] = this.x[index] = x;
+        prevY[index] = this.y[index] = y;
+        prevAngle[index] = this.angle[index] = angle;
+        changed[index] = true;
+        awake[index] = true;
+    }
+
+    /**
+     * Makes the current state of a body its previous state. Called once per step before the new state is read.
+     * @param index the index of the body
+     */
+    public void shift(int index) {
+        prevX[index] = x[index];
+        prevY[index] = y[index];
+        prevAngle[index] = angle[index];
+        changed[index] = false;
+    }
+
+    /**
+     * Records a new current state for a body.
+     * @param index the index of the body
+     * @param x the x-coordinate of the body's center
+     * @param y the y-coordinate of the body's center
+     * @param angle the angle of the body in radians
+     */
+    public void set(int index, float x, float y, float angle) {
+        this.x[index] = x;
+        this.y[index] = y;
+        this.angle[index] = angle;
+        changed[index] = true;
+    }
+
+    /**
+     * Copies the state of one body into the slot of another.
+     * @param from the index to copy from
+     * @param to the index to copy to
+     */
+    public void move(int from, int to) {
+        prevX[to] = prevX[from];
+        prevY[to] = prevY[from];
+        prevAngle[to] = prevAngle[from];
+        x[to] = x[from];
+        y[to] = y[from];
+        angle[to] = angle[from];
+        changed[to] = changed[from];
+        awake[to] = awake[from];
+    }
+}
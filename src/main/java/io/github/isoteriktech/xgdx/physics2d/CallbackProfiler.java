@@ -0,0 +1,290 @@
+package io.github.isoteriktech.xgdx.physics2d;
+
+import com.badlogic.gdx.Gdx;
+
+/**
+ * Times the {@link Physics2d} callbacks a {@link PhysicsManager2d} dispatches and adds them up per component class, to find the gameplay
+ * handlers behind a slow frame. Set it with {@link PhysicsManager2d#setCallbackProfiler(CallbackProfiler)}; no callback is timed while none is set.
+ * <p>
+ * Every class gets the number of calls, the total time and the longest call of each callback. The numbers live in primitive arrays
+ * sized when the profiler is created and classes are found by open addressing, so recording a call never allocates. Classes beyond the
+ * capacity are added up under a single entry whose class is null.
+ * <p>
+ * A call that takes longer than the budget (see {@link #setBudget(long)}) is counted, and the first one of every class and callback since the
+ * last {@link #reset()} is logged through {@link com.badlogic.gdx.Application#error(String, String)}.
+ * <p>
+ * Callbacks are identified by their event bit: {@link Physics2d#COLLISION_ENTER}, {@link Physics2d#COLLISION_EXIT}, {@link Physics2d#SENSOR_ENTER},
+ * {@link Physics2d#SENSOR_EXIT}, {@link Physics2d#COLLISION_IMPULSE} and {@link Physics2d#FIXED_UPDATE}. A profiler is not thread-safe;
+ * share one between managers only if they dispatch on the same thread.
+ *
+ * @author isoteriksoftware
+ */
+public class CallbackProfiler {
+    private static final String TAG = "CallbackProfiler";
+
+    /* One column per event bit of Physics2d, up to COLLISION_IMPULSE */
+    private static final int CALLBACKS = 6;
+
+    private static final String[] CALLBACK_NAMES = { "onCollisionEnter2d", "onCollisionExit2d", "onSensorEnter2d", "onSensorExit2d",
+            "fixedUpdate2d", "onCollisionImpulse2d" };
+
+    private final int capacity, mask;
+
+    /* The hash table of classes; a slot is used when its class is set */
+    private final Class<?>[] keys;
+
+    /* The slots in use, in the order the classes were first seen, so reports don't walk empty slots */
+    private final int[] order;
+    private int size;
+
+    /* Per slot and callback, at slot * CALLBACKS + callback */
+    private final long[] totalTime, maxTime;
+    private final int[] calls, overBudget;
+
+    /* Where classes beyond the capacity are added up */
+    private final int overflowSlot;
+
+    /* Scratch for the top-N report */
+    private final int[] ranking;
+
+    private long budget;
+
+    /**
+     * Creates a new profiler that tells apart up to the given number of component classes.
+     * @param capacity the number of classes
+     * @throws IllegalArgumentException if the capacity is not positive
+     */
+    public CallbackProfiler(int capacity) throws IllegalArgumentException {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("The capacity must be positive");
+
+        this.capacity = capacity;
+
+        // Keep the table at most half full so probes stay short, plus the overflow entry
+        int tableSize = Integer.highestOneBit(capacity * 2 - 1) << 1;
+        mask = tableSize - 1;
+        keys = new Class<?>[tableSize];
+        overflowSlot = tableSize;
+
+        int slots = tableSize + 1;
+        order = new int[capacity + 1];
+        ranking = new int[capacity + 1];
+        totalTime = new long[slots * CALLBACKS];
+        maxTime = new long[slots * CALLBACKS];
+        calls = new int[slots * CALLBACKS];
+        overBudget = new int[slots * CALLBACKS];
+    }
+
+    /**
+     * Creates a new profiler that tells apart up to 64 component classes.
+     */
+    public CallbackProfiler()
+    { this(64); }
+
+    /**
+     * Sets the time a single callback may take. Longer calls are counted as over budget and the first one of every class and callback is
+     * logged. 0 (the default) disables the budget.
+     * @param budget the budget in nanoseconds
+     * @throws IllegalArgumentException if the budget is negative
+     */
+    public void setBudget(long budget) throws IllegalArgumentException {
+        if (budget < 0)
+            throw new IllegalArgumentException("The budget cannot be negative!");
+
+        this.budget = budget;
+    }
+
+    /**
+     *
+     * @return the time a single callback may take in nanoseconds, or 0 if there is no budget
+     */
+    public long getBudget()
+    { return budget; }
+
+    /**
+     * Records one call of a callback. This is called internally by {@link PhysicsManager2d} and should never be called directly.
+     * @param type the class of the component
+     * @param event the event bit of the callback
+     * @param time the duration of the call in nanoseconds
+     */
+    public void __record(Class<?> type, int event, long time) {
+        int slot = slotOf(type);
+        int callback = Integer.numberOfTrailingZeros(event);
+        int i = slot * CALLBACKS + callback;
+
+        calls[i]++;
+        totalTime[i] += time;
+        if (time > maxTime[i])
+            maxTime[i] = time;
+
+        if (budget > 0 && time > budget) {
+            if (overBudget[i]++ == 0 && Gdx.app != null)
+                Gdx.app.error(TAG, nameOf(slot) + "." + CALLBACK_NAMES[callback] + " took " + time / 1000 + "us, over the budget of "
+                        + budget / 1000 + "us");
+        }
+    }
+
+    /* Finds the slot of a class, claiming a free one the first time the class is seen */
+    private int slotOf(Class<?> type) {
+        int slot = type.hashCode() & mask;
+        while (true) {
+            Class<?> key = keys[slot];
+            if (key == type)
+                return slot;
+
+            if (key == null) {
+                if (size >= capacity)
+                    return overflow();
+
+                keys[slot] = type;
+                order[size++] = slot;
+                return slot;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /* The overflow entry, listed once the first time it is used */
+    private int overflow() {
+        if (size == capacity)
+            order[size++] = overflowSlot;
+        return overflowSlot;
+    }
+
+    /**
+     *
+     * @return the number of entries: the classes seen, plus one if classes beyond the capacity were seen
+     */
+    public int size()
+    { return size; }
+
+    /**
+     * Returns the class of an entry.
+     * @param entry the index of the entry, in the order classes were first seen
+     * @return the class or null for the entry adding up the classes beyond the capacity
+     */
+    public Class<?> getType(int entry)
+    { return order[entry] == overflowSlot ? null : keys[order[entry]]; }
+
+    /**
+     * Returns the number of calls of a callback of an entry.
+     * @param entry the index of the entry
+     * @param event the event bit of the callback
+     * @return the number of calls
+     */
+    public int getCalls(int entry, int event)
+    { return calls[index(entry, event)]; }
+
+    /**
+     * Returns the total time of the calls of a callback of an entry.
+     * @param entry the index of the entry
+     * @param event the event bit of the callback
+     * @return the total time in nanoseconds
+     */
+    public long getTotalTime(int entry, int event)
+    { return totalTime[index(entry, event)]; }
+
+    /**
+     * Returns the longest call of a callback of an entry.
+     * @param entry the index of the entry
+     * @param event the event bit of the callback
+     * @return the longest call in nanoseconds
+     */
+    public long getMaxTime(int entry, int event)
+    { return maxTime[index(entry, event)]; }
+
+    /**
+     * Returns the number of calls of a callback of an entry that went over the budget.
+     * @param entry the index of the entry
+     * @param event the event bit of the callback
+     * @return the number of calls over the budget
+     */
+    public int getOverBudgetCalls(int entry, int event)
+    { return overBudget[index(entry, event)]; }
+
+    /**
+     * Returns the total time of every callback of an entry.
+     * @param entry the index of the entry
+     * @return the total time in nanoseconds
+     */
+    public long getTotalTime(int entry) {
+        long total = 0;
+        int base = order[entry] * CALLBACKS;
+        for (int c = 0; c < CALLBACKS; c++)
+            total += totalTime[base + c];
+        return total;
+    }
+
+    private int index(int entry, int event)
+    { return order[entry] * CALLBACKS + Integer.numberOfTrailingZeros(event); }
+
+    /**
+     * Appends the entries with the highest total time, slowest first, one line each: the class, its total time and a breakdown of the
+     * callbacks it received with their calls, total, average and longest time.
+     * @param count the maximum number of entries to report
+     * @param out the builder to append to
+     * @return the builder
+     */
+    public StringBuilder report(int count, StringBuilder out) {
+        // Partial selection sort of the entries by total time
+        for (int i = 0; i < size; i++)
+            ranking[i] = i;
+
+        count = Math.min(count, size);
+        for (int i = 0; i < count; i++) {
+            int best = i;
+            long bestTime = getTotalTime(ranking[i]);
+            for (int j = i + 1; j < size; j++) {
+                long time = getTotalTime(ranking[j]);
+                if (time > bestTime) {
+                    best = j;
+                    bestTime = time;
+                }
+            }
+
+            int entry = ranking[best];
+            ranking[best] = ranking[i];
+            ranking[i] = entry;
+
+            int slot = order[entry];
+            out.append(nameOf(slot)).append(": ").append(bestTime / 1000).append("us");
+            for (int c = 0; c < CALLBACKS; c++) {
+                int k = slot * CALLBACKS + c;
+                if (calls[k] == 0)
+                    continue;
+
+                out.append(", ").append(CALLBACK_NAMES[c]).append(" x").append(calls[k])
+                        .append(" total ").append(totalTime[k] / 1000).append("us")
+                        .append(" avg ").append(totalTime[k] / calls[k]).append("ns")
+                        .append(" max ").append(maxTime[k] / 1000).append("us");
+                if (overBudget[k] > 0)
+                    out.append(" over budget x").append(overBudget[k]);
+            }
+            out.append('\n');
+        }
+        return out;
+    }
+
+    private String nameOf(int slot) {
+        if (slot == overflowSlot)
+            return "(other classes)";
+
+        return keys[slot].getName();
+    }
+
+    /**
+     * Clears every entry and counter. The classes are forgotten too, so the capacity is available again.
+     */
+    public void reset() {
+        for (int i = 0; i < keys.length; i++)
+            keys[i] = null;
+        for (int i = 0; i < totalTime.length; i++) {
+            totalTime[i] = 0;
+            maxTime[i] = 0;
+            calls[i] = 0;
+            overBudget[i] = 0;
+        }
+        size = 0;
+    }
+}
@@ -1,7 +1,10 @@
 package io.github.isoteriktech.xgdx.physics2d;
 
+import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.Contact;
+import com.badlogic.gdx.physics.box2d.ContactImpulse;
 import com.badlogic.gdx.physics.box2d.Fixture;
+import com.badlogic.gdx.physics.box2d.WorldManifold;
 import com.badlogic.gdx.utils.Pool;
 import io.github.isoteriktech.xgdx.GameObject;
 
@@ -13,7 +16,8 @@ import io.github.isoteriktech.xgdx.GameObject;
  */
 public class Collision2d implements Pool.Poolable {
     /**
-     * The {@link com.badlogic.gdx.physics.box2d.Contact} instance generated for this collision.
+     * The {@link com.badlogic.gdx.physics.box2d.Contact} instance generated for this collision. Box2D reuses contacts, so this is only valid
+     * during the callback. It is null for deferred contact events (see {@link PhysicsManager2d#setDeferContactEvents(boolean)}).
      */
     public Contact contact;
 
@@ -32,6 +36,34 @@ public class Collision2d implements Pool.Poolable {
      */
     public Fixture otherFixture;
 
+    /**
+     * The contact normal in world coordinates, pointing from this game object's fixture towards the other fixture.
+     * Only set for deferred contact events (see {@link PhysicsManager2d#setDeferContactEvents(boolean)}) and for colliders that capture
+     * contact data (see {@link io.github.isoteriktech.xgdx.physics2d.colliders.Collider#setCaptureContactData(boolean)}).
+     */
+    public final Vector2 normal = new Vector2();
+
+    /**
+     * The contact points in world coordinates. Only the first {@link #pointCount} points are valid.
+     * Set together with {@link #normal}.
+     */
+    public final Vector2[] points = { new Vector2(), new Vector2() };
+
+    /**
+     * The number of valid {@link #points}. Contacts that are ending usually have none.
+     */
+    public int pointCount;
+
+    /**
+     * The normal impulse the solver applied at each of the {@link #points}. Only set for {@link Physics2d#onCollisionImpulse2d(Collision2d)}.
+     */
+    public final float[] normalImpulses = new float[2];
+
+    /**
+     * The tangent (friction) impulse the solver applied at each of the {@link #points}. Only set for {@link Physics2d#onCollisionImpulse2d(Collision2d)}.
+     */
+    public final float[] tangentImpulses = new float[2];
+
     /**
      * Creates a new instance given a contact and the game object collided with
      * @param contact the contact
@@ -56,12 +88,39 @@ public class Collision2d implements Pool.Poolable {
         return other.getTag().equals(tag);
     }
 
+    /* Copies the normal and points of a contact. The normal is reversed when this collision is for fixture B of the contact. */
+    void setManifold(WorldManifold manifold, boolean flip) {
+        normal.set(manifold.getNormal());
+        if (flip)
+            normal.scl(-1);
+
+        pointCount = Math.min(2, manifold.getNumberOfContactPoints());
+        Vector2[] manifoldPoints = manifold.getPoints();
+        for (int i = 0; i < pointCount; i++)
+            points[i].set(manifoldPoints[i]);
+    }
+
+    /* Copies the solver impulses of a contact */
+    void setImpulses(ContactImpulse impulse) {
+        float[] normal = impulse.getNormalImpulses();
+        float[] tangent = impulse.getTangentImpulses();
+        int count = Math.min(2, impulse.getCount());
+        for (int i = 0; i < count; i++) {
+            normalImpulses[i] = normal[i];
+            tangentImpulses[i] = tangent[i];
+        }
+    }
+
     @Override
     public void reset() {
         contact = null;
         other = null;
         fixture = null;
         otherFixture = null;
+        normal.setZero();
+        pointCount = 0;
+        normalImpulses[0] = normalImpulses[1] = 0;
+        tangentImpulses[0] = tangentImpulses[1] = 0;
     }
 
     /**
@@ -0,0 +1,315 @@
+package io.github.isoteriktech.xgdx.physics2d;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.ContactImpulse;
+import com.badlogic.gdx.physics.box2d.Fixture;
+import com.badlogic.gdx.physics.box2d.WorldManifold;
+import io.github.isoteriktech.xgdx.GameObject;
+
+import java.util.Arrays;
+
+/**
+ * A ring buffer of contact events recorded during a step so they can be dispatched after it.
+ * Each record keeps the bodies, fixtures and sensor flags of both sides along with a copy of the contact normal and points, so nothing in a
+ * record refers to the Box2D {@link com.badlogic.gdx.physics.box2d.Contact} that produced it.
+ * Records are stored as a structure of arrays; {@link #add(int, RigidBody2d, RigidBody2d, GameObject, GameObject, Fixture, Fixture, boolean, boolean)}
+ * returns the slot of a record and {@link #poll()} returns the slot of the oldest one. The buffer grows when it is full.
+ *
+ * @author isoteriksoftware
+ */
+public class ContactEventQueue {
+    /** The event of a record: {@link Physics2d#COLLISION_ENTER}, {@link Physics2d#COLLISION_EXIT} or {@link Physics2d#COLLISION_IMPULSE} */
+    public int[] event;
+
+    /** The rigid bodies of both sides. A side is null when it has no listener for the event. */
+    public RigidBody2d[] ownerA, ownerB;
+
+    /** The game objects of both sides. A side is null when its body does not belong to a game object. */
+    public GameObject[] objectA, objectB;
+
+    /** The fixtures of both sides. A fixture may be destroyed before its record is dispatched; check that it is still in the fixture list of
+     * its body before using it. */
+    public Fixture[] fixtureA, fixtureB;
+
+    /** Whether the fixtures of both sides are sensors */
+    public boolean[] sensorA, sensorB;
+
+    /** The contact normal in world coordinates, pointing from fixture A towards fixture B */
+    public float[] normalX, normalY;
+
+    /** The number of valid contact points of a record */
+    public int[] pointCount;
+
+    /** The contact points in world coordinates, stored as x0, y0, x1, y1 for every record */
+    public float[] points;
+
+    /** The normal and tangent impulses of impulse records, stored as two values for every record */
+    public float[] normalImpulses, tangentImpulses;
+
+    private int head, size;
+
+    /* The slots returned by sortedSlots() and its merge buffer, reused between calls */
+    private int[] sorted = new int[0], merge = new int[0];
+
+    /**
+     * Creates a new queue with room for the given number of records.
+     * @param capacity the initial capacity
+     */
+    public ContactEventQueue(int capacity) {
+        allocate(Math.max(1, capacity));
+    }
+
+    private void allocate(int capacity) {
+        event = new int[capacity];
+        ownerA = new RigidBody2d[capacity];
+        ownerB = new RigidBody2d[capacity];
+        objectA = new GameObject[capacity];
+        objectB = new GameObject[capacity];
+        fixtureA = new Fixture[capacity];
+        fixtureB = new Fixture[capacity];
+        sensorA = new boolean[capacity];
+        sensorB = new boolean[capacity];
+        normalX = new float[capacity];
+        normalY = new float[capacity];
+        pointCount = new int[capacity];
+        points = new float[capacity * 4];
+        normalImpulses = new float[capacity * 2];
+        tangentImpulses = new float[capacity * 2];
+    }
+
+    /**
+     *
+     * @return the number of records this queue can hold without growing
+     */
+    public int capacity()
+    { return event.length; }
+
+    /**
+     *
+     * @return the number of records waiting in this queue
+     */
+    public int size()
+    { return size; }
+
+    /**
+     * Appends a record. The contact data is left empty; see {@link #setManifold(int, WorldManifold)} and {@link #setImpulses(int, ContactImpulse)}.
+     * @param event the collision event of the record
+     * @param ownerA the rigid body of side A or null
+     * @param ownerB the rigid body of side B or null
+     * @param objectA the game object of side A or null
+     * @param objectB the game object of side B or null
+     * @param fixtureA the fixture of side A
+     * @param fixtureB the fixture of side B
+     * @param sensorA whether fixture A is a sensor
+     * @param sensorB whether fixture B is a sensor
+     * @return the slot of the new record
+     */
+    public int add(int event, RigidBody2d ownerA, RigidBody2d ownerB, GameObject objectA, GameObject objectB,
+                   Fixture fixtureA, Fixture fixtureB, boolean sensorA, boolean sensorB) {
+        if (size == capacity())
+            grow();
+
+        int slot = (head + size) % capacity();
+        size++;
+
+        this.event[slot] = event;
+        this.ownerA[slot] = ownerA;
+        this.ownerB[slot] = ownerB;
+        this.objectA[slot] = objectA;
+        this.objectB[slot] = objectB;
+        this.fixtureA[slot] = fixtureA;
+        this.fixtureB[slot] = fixtureB;
+        this.sensorA[slot] = sensorA;
+        this.sensorB[slot] = sensorB;
+        normalX[slot] = normalY[slot] = 0;
+        pointCount[slot] = 0;
+        normalImpulses[slot * 2] = normalImpulses[slot * 2 + 1] = 0;
+        tangentImpulses[slot * 2] = tangentImpulses[slot * 2 + 1] = 0;
+
+        return slot;
+    }
+
+    /**
+     * Copies the normal and points of a contact into a record.
+     * @param slot the slot of the record
+     * @param manifold the world manifold of the contact
+     */
+    public void setManifold(int slot, WorldManifold manifold) {
+        Vector2 normal = manifold.getNormal();
+        normalX[slot] = normal.x;
+        normalY[slot] = normal.y;
+
+        int count = Math.min(2, manifold.getNumberOfContactPoints());
+        Vector2[] manifoldPoints = manifold.getPoints();
+        for (int i = 0; i < count; i++) {
+            points[slot * 4 + i * 2] = manifoldPoints[i].x;
+            points[slot * 4 + i * 2 + 1] = manifoldPoints[i].y;
+        }
+        pointCount[slot] = count;
+    }
+
+    /**
+     * Copies the solver impulses of a contact into a record.
+     * @param slot the slot of the record
+     * @param impulse the impulses of the contact
+     */
+    public void setImpulses(int slot, ContactImpulse impulse) {
+        float[] normal = impulse.getNormalImpulses();
+        float[] tangent = impulse.getTangentImpulses();
+        int count = Math.min(2, impulse.getCount());
+        for (int i = 0; i < count; i++) {
+            normalImpulses[slot * 2 + i] = normal[i];
+            tangentImpulses[slot * 2 + i] = tangent[i];
+        }
+    }
+
+    /**
+     * Copies the contact data of a record into a collision.
+     * @param slot the slot of the record
+     * @param collision the collision to fill
+     * @param flip whether the collision is for side B; the normal is reversed so it points away from side B
+     */
+    public void copyContactData(int slot, Collision2d collision, boolean flip) {
+        float sign = flip ? -1 : 1;
+        collision.normal.set(normalX[slot] * sign, normalY[slot] * sign);
+
+        int count = pointCount[slot];
+        for (int i = 0; i < count; i++)
+            collision.points[i].set(points[slot * 4 + i * 2], points[slot * 4 + i * 2 + 1]);
+        collision.pointCount = count;
+
+        for (int i = 0; i < 2; i++) {
+            collision.normalImpulses[i] = normalImpulses[slot * 2 + i];
+            collision.tangentImpulses[i] = tangentImpulses[slot * 2 + i];
+        }
+    }
+
+    /**
+     * Removes the oldest record. Its data stays readable until the next record is added.
+     * @return the slot of the oldest record or -1 if the queue is empty
+     */
+    public int poll() {
+        if (size == 0)
+            return -1;
+
+        int slot = head;
+        head = (head + 1) % capacity();
+        size--;
+
+        return slot;
+    }
+
+    /**
+     * Returns the slot of a record without removing it.
+     * @param index the position of the record in the queue, 0 being the oldest
+     * @return the slot of the record
+     */
+    public int slotAt(int index)
+    { return (head + index) % capacity(); }
+
+    /**
+     * Lists the slots of the records from the lowest key to the highest, keeping records with equal keys in the order they were added.
+     * Nothing is removed; call {@link #clear()} once the records are dispatched.
+     * @param keys the key of every record, indexed by slot
+     * @return the slots in order. Only the first {@link #size()} entries are used and the array is reused by the next call
+     */
+    public int[] sortedSlots(long[] keys) {
+        if (sorted.length < size) {
+            sorted = new int[capacity()];
+            merge = new int[capacity()];
+        }
+
+        for (int i = 0; i < size; i++)
+            sorted[i] = slotAt(i);
+
+        // Bottom-up merge sort, which is stable
+        int[] from = sorted, to = merge;
+        for (int width = 1; width < size; width *= 2) {
+            for (int low = 0; low < size; low += width * 2) {
+                int middle = Math.min(low + width, size), high = Math.min(low + width * 2, size);
+                int i = low, j = middle, k = low;
+                while (i < middle && j < high)
+                    to[k++] = keys[from[j]] < keys[from[i]] ? from[j++] : from[i++];
+                while (i < middle)
+                    to[k++] = from[i++];
+                while (j < high)
+                    to[k++] = from[j++];
+            }
+            int[] swap = from;
+            from = to;
+            to = swap;
+        }
+
+        sorted = from;
+        merge = to;
+        return sorted;
+    }
+
+    /**
+     * Removes every record and drops the references they hold.
+     */
+    public void clear() {
+        Arrays.fill(ownerA, null);
+        Arrays.fill(ownerB, null);
+        Arrays.fill(objectA, null);
+        Arrays.fill(objectB, null);
+        Arrays.fill(fixtureA, null);
+        Arrays.fill(fixtureB, null);
+        head = size = 0;
+    }
+
+    /* Doubles the capacity of a full queue and moves the records to the front in order */
+    private void grow() {
+        int capacity = capacity() * 2;
+
+        int[] newEvent = new int[capacity];
+        RigidBody2d[] newOwnerA = new RigidBody2d[capacity], newOwnerB = new RigidBody2d[capacity];
+        GameObject[] newObjectA = new GameObject[capacity], newObjectB = new GameObject[capacity];
+        Fixture[] newFixtureA = new Fixture[capacity], newFixtureB = new Fixture[capacity];
+        boolean[] newSensorA = new boolean[capacity], newSensorB = new boolean[capacity];
+        float[] newNormalX = new float[capacity], newNormalY = new float[capacity];
+        int[] newPointCount = new int[capacity];
+        float[] newPoints = new float[capacity * 4];
+        float[] newNormalImpulses = new float[capacity * 2], newTangentImpulses = new float[capacity * 2];
+
+        unroll(event, newEvent, 1);
+        unroll(ownerA, newOwnerA, 1);
+        unroll(ownerB, newOwnerB, 1);
+        unroll(objectA, newObjectA, 1);
+        unroll(objectB, newObjectB, 1);
+        unroll(fixtureA, newFixtureA, 1);
+        unroll(fixtureB, newFixtureB, 1);
+        unroll(sensorA, newSensorA, 1);
+        unroll(sensorB, newSensorB, 1);
+        unroll(normalX, newNormalX, 1);
+        unroll(normalY, newNormalY, 1);
+        unroll(pointCount, newPointCount, 1);
+        unroll(points, newPoints, 4);
+        unroll(normalImpulses, newNormalImpulses, 2);
+        unroll(tangentImpulses, newTangentImpulses, 2);
+
+        event = newEvent;
+        ownerA = newOwnerA;
+        ownerB = newOwnerB;
+        objectA = newObjectA;
+        objectB = newObjectB;
+        fixtureA = newFixtureA;
+        fixtureB = newFixtureB;
+        sensorA = newSensorA;
+        sensorB = newSensorB;
+        normalX = newNormalX;
+        normalY = newNormalY;
+        pointCount = newPointCount;
+        points = newPoints;
+        normalImpulses = newNormalImpulses;
+        tangentImpulses = newTangentImpulses;
+        head = 0;
+    }
+
+    /* Copies the records of a full ring, oldest first, to the front of a larger array */
+    private void unroll(Object array, Object newArray, int stride) {
+        int tail = (capacity() - head) * stride;
+        System.arraycopy(array, head * stride, newArray, 0, tail);
+        System.arraycopy(array, 0, newArray, tail, head * stride);
+    }
+}
@@ -0,0 +1,58 @@
+package io.github.isoteriktech.xgdx.physics2d;
+
+import com.badlogic.gdx.utils.FloatArray;
+
+/**
+ * A geometry signature written by {@link io.github.isoteriktech.xgdx.physics2d.colliders.Collider#__writeSignature(FloatArray)}, usable as a
+ * map key. Two signatures are equal when their values are.
+ *
+ * @author isoteriksoftware
+ */
+final class GeometrySignature {
+    private float[] values;
+    private int length;
+    private int hash;
+
+    /* Points this key at a signature without copying it. Used for lookups. */
+    GeometrySignature wrap(FloatArray signature) {
+        values = signature.items;
+        length = signature.size;
+        hash = hash(values, length);
+        return this;
+    }
+
+    /* Makes this key a copy of a signature. Used for keys that are stored. */
+    GeometrySignature copy(FloatArray signature) {
+        values = signature.toArray();
+        length = values.length;
+        hash = hash(values, length);
+        return this;
+    }
+
+    private static int hash(float[] values, int length) {
+        int h = 1;
+        for (int i = 0; i < length; i++)
+            h = 31 * h + Float.floatToIntBits(values[i]);
+        return h;
+    }
+
+    @Override
+    public int hashCode()
+    { return hash; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof GeometrySignature))
+            return false;
+
+        GeometrySignature other = (GeometrySignature)o;
+        if (other.length != length || other.hash != hash)
+            return false;
+
+        for (int i = 0; i < length; i++) {
+            if (Float.floatToIntBits(values[i]) != Float.floatToIntBits(other.values[i]))
+                return false;
+        }
+        return true;
+    }
+}
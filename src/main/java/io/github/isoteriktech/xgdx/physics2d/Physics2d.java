@@ -5,10 +5,100 @@ import io.github.isoteriktech.xgdx.Component;
 /**
  * A Physics2d component defines callbacks for various physics events like collisions and updates.
  * This component's callbacks gets called by {@link PhysicsManager2d} whenever a physics events involving the host gameObject occurs.
+ * A Physics2d component registers itself with the manager of its game object's {@link RigidBody2d}, or with the manager of its host scene
+ * if the game object has none. Subclasses that override {@link #attach()}, {@link #start()} or {@link #detach()} must call the super method.
+ * <p>
+ * A component only receives the events included in its event mask (see {@link #setEventMask(int)}). Contacts between game objects whose
+ * components want none of the contact events are skipped without creating any {@link Collision2d}.
  *
  * @author isoteriksoftware
  */
 public class Physics2d extends Component {
+    /** Event mask bit for {@link #onCollisionEnter2d(Collision2d)} */
+    public static final int COLLISION_ENTER = 1;
+    /** Event mask bit for {@link #onCollisionExit2d(Collision2d)} */
+    public static final int COLLISION_EXIT = 1 << 1;
+    /** Event mask bit for {@link #onSensorEnter2d(Collision2d)} */
+    public static final int SENSOR_ENTER = 1 << 2;
+    /** Event mask bit for {@link #onSensorExit2d(Collision2d)} */
+    public static final int SENSOR_EXIT = 1 << 3;
+    /** Event mask bit for {@link #fixedUpdate2d(float)} */
+    public static final int FIXED_UPDATE = 1 << 4;
+    /** Event mask bit for {@link #onCollisionImpulse2d(Collision2d)} */
+    public static final int COLLISION_IMPULSE = 1 << 5;
+
+    /** Event mask for collision enter and exit events */
+    public static final int COLLISION_EVENTS = COLLISION_ENTER | COLLISION_EXIT;
+    /** Event mask for sensor enter and exit events */
+    public static final int SENSOR_EVENTS = SENSOR_ENTER | SENSOR_EXIT;
+    /** Event mask for every contact event */
+    public static final int CONTACT_EVENTS = COLLISION_EVENTS | SENSOR_EVENTS | COLLISION_IMPULSE;
+    /** Event mask for every event */
+    public static final int ALL_EVENTS = CONTACT_EVENTS | FIXED_UPDATE;
+
+    /* The manager this component is registered with and its slot in that manager's registry. */
+    PhysicsManager2d registeredManager;
+    int registryIndex = -1;
+
+    /* The rigid body that dispatches contact events to this component */
+    RigidBody2d owner;
+
+    /* The events this component wants */
+    int eventMask = ALL_EVENTS;
+
+    /**
+     * Sets the events this component receives. Combine the event bits of this class, like {@code SENSOR_ENTER | SENSOR_EXIT}.
+     * Callbacks for events not in the mask are never called.
+     * Defaults to {@link #ALL_EVENTS}.
+     * @param eventMask the events this component wants
+     */
+    public void setEventMask(int eventMask) {
+        this.eventMask = eventMask;
+
+        // The owner caches which components want contact events
+        if (owner != null)
+            owner.contactListenersDirty = true;
+    }
+
+    /**
+     *
+     * @return the events this component receives
+     */
+    public int getEventMask()
+    { return eventMask; }
+
+    @Override
+    public void attach()
+    { registerSelf(); }
+
+    @Override
+    public void start() {
+        // The game object may not have been in a scene when this component was attached
+        registerSelf();
+    }
+
+    @Override
+    public void detach() {
+        if (registeredManager != null)
+            registeredManager.__unregisterPhysics2d(this);
+    }
+
+    /* Registers this component with the manager it belongs to, if it isn't registered yet and the manager is known */
+    void registerSelf() {
+        if (registeredManager != null)
+            return;
+
+        PhysicsManager2d physicsManager2d;
+        RigidBody2d rigidBody2d = getComponent(RigidBody2d.class);
+        if (rigidBody2d != null)
+            physicsManager2d = rigidBody2d.physicsManager2d;
+        else
+            physicsManager2d = PhysicsManager2d.forScene(getHostScene());
+
+        if (physicsManager2d != null)
+            physicsManager2d.__registerPhysics2d(this);
+    }
+
     /**
      * Called when the physics engine is updated.
      * This is where you'll typically put physics related update codes.
@@ -28,6 +118,14 @@ public class Physics2d extends Component {
      */
     public void onCollisionExit2d(Collision2d collision) {}
 
+    /**
+     * Called after the solver resolves a collision of one of the game object's colliders that capture contact data
+     * (see {@link io.github.isoteriktech.xgdx.physics2d.colliders.Collider#setCaptureContactData(boolean)}).
+     * This is called on every step the colliders keep touching; {@link Collision2d#normalImpulses} tells how hard they hit.
+     * @param collision the collision data, including the normal, points and impulses
+     */
+    public void onCollisionImpulse2d(Collision2d collision) {}
+
     /**
      * Called when the game object's sensor starts colliding.
      * @param collision the collision data
@@ -1,14 +1,25 @@
 package io.github.isoteriktech.xgdx.physics2d;
 
+import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.*;
 import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IdentityMap;
+import com.badlogic.gdx.utils.ObjectSet;
+import com.badlogic.gdx.utils.SnapshotArray;
 import com.badlogic.gdx.utils.TimeUtils;
 import io.github.isoteriktech.xgdx.Component;
 import io.github.isoteriktech.xgdx.GameObject;
 import io.github.isoteriktech.xgdx.Scene;
+import io.github.isoteriktech.xgdx.physics2d.colliders.BoxCollider;
+import io.github.isoteriktech.xgdx.physics2d.colliders.CircleCollider;
+import io.github.isoteriktech.xgdx.physics2d.colliders.Collider;
 
 public class PhysicsManager2d extends Component implements ContactListener {
+    /** A mask for the spatial queries that matches fixtures of every category */
+    public static final short ALL_CATEGORIES = -1;
+
     /** The Box2D physics world */
     protected final World physicsWorld;
 
@@ -25,108 +36,168 @@ public class PhysicsManager2d extends Component implements ContactListener {
     /** The list of physics bodies to be destroyed */
     protected Array<Body> garbagePhysicsBodies = new Array<>();
 
-    /* For interpolating physics bodies. */
+    /** The list of fixtures to be destroyed */
+    protected final Array<Fixture> garbageFixtures = new Array<>();
+
+    /** The list of joints to be destroyed */
+    protected final Array<Joint> garbageJoints = new Array<>();
+
+    /* The same objects as the lists above, so queueing the same object twice is caught without scanning the lists.
+     * Box2D wrappers don't override equals() and hashCode() so these sets work by identity. */
+    private final ObjectSet<Body> queuedBodies = new ObjectSet<>();
+    private final ObjectSet<Fixture> queuedFixtures = new ObjectSet<>();
+    private final ObjectSet<Joint> queuedJoints = new ObjectSet<>();
+
+    /* The number of objects destroyed at the end of the last frame */
+    private int destroyedBodyCount, destroyedFixtureCount, destroyedJointCount;
+
+    /** Deactivated bodies kept for reuse by {@link RigidBody2d}s with the same colliders. Disabled by default. */
+    protected final BodyPool bodyPool;
+
+    /** One native shape per unique collider geometry, shared by every fixture created from it. Enabled by default. */
+    protected final ShapeCache shapeCache = new ShapeCache();
+
+    /* Scratch objects for RigidBody2d when creating and pooling bodies and fixtures */
+    final BodyDef bodyDef = new BodyDef();
+    final FixtureDef fixtureDef = new FixtureDef();
+    final FloatArray bodySignature = new FloatArray();
+    final FloatArray shapeSignature = new FloatArray();
+
+    /** The {@link Physics2d} components registered with this manager. Only these components get physics updates. */
+    protected final SnapshotArray<Physics2d> physicsComponents = new SnapshotArray<>(false, 64, Physics2d.class);
+
+    /** The {@link RigidBody2d}s registered with this manager. */
+    protected final Array<RigidBody2d> rigidBodies = new Array<>(false, 64, RigidBody2d.class);
+
+    /* Maps the physics body of every registered RigidBody2d to it, so contacts find their listeners without scanning components */
+    final IdentityMap<Body, RigidBody2d> bodyOwners = new IdentityMap<>();
+
+    /* The scene whose Physics2d components without a RigidBody2d register with this manager or null */
+    private Scene hostScene;
+
+    /**
+     * The previous and current physics state of every registered body, in registry order.
+     * The state is captured once per step and rendering interpolates between the two snapshots without touching Box2D.
+     */
+    protected final BodyStateBuffer bodyStates = new BodyStateBuffer(64);
+
+    /** Whether transforms are synced for all bodies in one batched pass after each step. Defaults to true. */
+    protected boolean batchTransformSync = true;
+
+    /* The number of bodies synced and the number of awake bodies seen by the last batched sync */
+    private int syncedBodyCount, awakeBodyCount;
+
+    /** Whether bodies are extrapolated past the current state instead of interpolated between the previous and current state. */
+    protected boolean extrapolate;
+
+    /* For fixed time stepping. Unsimulated frame time carries over to the next frame. */
     private double accumulator;
-    private double currentTime;
+    private double lastClockTime = -1;
+
+    /** The maximum number of fixed steps taken in a single frame. Defaults to 5 */
+    protected int maxSubSteps = 5;
+
+    /** An optional clock used to measure frame time instead of the engine's delta time. */
+    protected Clock clock;
+
+    /* Bookkeeping for the last frame and the lifetime of the manager */
+    private int subStepsTaken;
+    private float lastDroppedTime;
+    private double totalDroppedTime;
 
     /** The fixed time step for the Box2D physics engine. Defaults to 1f/60f (60 frames per second). */
     protected float physicsTimeStep = 1.0f/60.0f;
 
-    /** For rendering physics debug lines. */
+    /** For rendering physics debug lines. Created the first time debug lines are rendered. */
     protected Box2DDebugRenderer physicsDebugRenderer;
 
-    private final GameObject.__ComponentIterationListener fixedUpdateIter, iterAEnter, iterBEnter, iterAExit, iterBExit;
-
     // The collision pool
     private final Collision2d.CollisionPool collisionPool;
 
-    // For collision detection listening
-    private Collision2d collisionA, collisionB;
-    private boolean isSensorA, isSensorB;
+    /** Whether contact events raised during a step are queued and dispatched after the step. Defaults to false */
+    protected boolean deferContactEvents;
 
-    /**
-     * Creates a new instance given the gravity of the physics world.
-     * @param gravity the gravity
-     */
-    public PhysicsManager2d(Vector2 gravity) {
-        velocityIterations = 8;
-        positionIterations = 3;
+    /** The contact events recorded during the current step when contact events are deferred */
+    protected final ContactEventQueue contactEvents = new ContactEventQueue(64);
 
-        accumulator = 0.0;
-        currentTime = TimeUtils.millis() / 1000.0;
+    /** Whether the spatial queries find sensor fixtures. Defaults to true */
+    protected boolean queriesHitSensors = true;
 
-        simulatePhysics = true;
-        renderPhysicsDebugLines = false;
+    // Whether a ParallelWorldStepper steps this manager instead of update()
+    private boolean steppedExternally;
 
-        physicsWorld = new World(gravity,true);
-        physicsWorld.setContactListener(this);
+    /* Whether a PipelinedPhysicsStepper is stepping the world on its own thread. Only ever changed by the main thread while the
+     * physics thread is idle, so the physics thread always sees it set. */
+    boolean stepInFlight;
 
-        physicsDebugRenderer = new Box2DDebugRenderer();
+    /* The RigidBody2d mutations made while a pipelined step is in flight */
+    final BodyCommandQueue commands = new BodyCommandQueue(64);
 
-        fixedUpdateIter = component -> {
-            if (!component.isEnabled())
-                return;
+    /* The bodies, fixtures and joints queued for destruction while a pipelined step is in flight */
+    private final Array<Object> deferredDestroys = new Array<>();
 
-            Physics2d physics2d = toPhysics2d(component);
-            if (physics2d != null)
-                physics2d.fixedUpdate2d(physicsTimeStep);
-        };
+    // Runs the spatial queries
+    private final SpatialQuery2d spatialQuery;
 
-        iterAEnter = component -> {
-            if (!component.isEnabled())
-                return;
+    // Casts batched rays and caches their hits until the next step
+    private final BatchRaycaster batchRaycaster;
 
-            Physics2d physics2d = toPhysics2d(component);
-            if (physics2d == null)
-                return;
+    // The regions of a partitioned world, or null if the world is not partitioned
+    private WorldPartition2d partition;
 
-            if (isSensorA)
-                physics2d.onSensorEnter2d(collisionA);
-            else
-                physics2d.onCollisionEnter2d(collisionA);
-        };
+    /* Every world simulated by this manager: the physics world alone, or the world of every region when partitioned */
+    World[] worlds;
 
-        iterBEnter = component -> {
-            if (!component.isEnabled())
-                return;
+    /** Runs the region steps of a partitioned world. When null (the default), regions are stepped one after the other. */
+    protected TaskRunner taskRunner;
 
-            Physics2d physics2d = toPhysics2d(component);
-            if (physics2d == null)
-                return;
+    /** Supplies commands recorded by other threads, applied at the start of every frame. Null (the default) when there is none. */
+    protected CommandSource commandSource;
 
-            if (isSensorB)
-                physics2d.onSensorEnter2d(collisionB);
-            else
-                physics2d.onCollisionEnter2d(collisionB);
-        };
+    /** What the last frame cost. Only filled while {@link #collectStats} is set. */
+    protected final PhysicsStats stats = new PhysicsStats();
 
-        iterAExit = component -> {
-            if (!component.isEnabled())
-                return;
+    /** Whether the phases of every frame are timed and counted into {@link #stats}. Defaults to false */
+    protected boolean collectStats;
 
-            Physics2d physics2d = toPhysics2d(component);
-            if (physics2d == null)
-                return;
+    /** Times every {@link Physics2d} callback per component class. Null (the default) when callbacks aren't profiled. */
+    protected CallbackProfiler callbackProfiler;
 
-            if (isSensorA)
-                physics2d.onSensorExit2d(collisionA);
-            else
-                physics2d.onCollisionExit2d(collisionA);
-        };
+    /** Whether the world only advances through {@link #advance()} and contact events are dispatched in a stable order. Defaults to false */
+    protected boolean deterministic;
 
-        iterBExit = component -> {
-            if (!component.isEnabled())
-                return;
+    /* Whether contact events are deferred once the deterministic mode is disabled */
+    private boolean deferContactEventsOutsideDeterministic;
 
-            Physics2d physics2d = toPhysics2d(component);
-            if (physics2d == null)
-                return;
+    /* The fixed steps taken since this manager was created, and the state hash computed after the last deterministic step */
+    private long stepCount, stateHash;
 
-            if (isSensorB)
-                physics2d.onSensorExit2d(collisionB);
-            else
-                physics2d.onCollisionExit2d(collisionB);
-        };
+    /* The stable id of the next registered RigidBody2d */
+    private int nextStableId;
+
+    /* The sort key of every deferred contact event, indexed by slot */
+    private long[] contactKeys = new long[0];
+
+    /**
+     * Creates a new instance given the gravity of the physics world.
+     * @param gravity the gravity
+     */
+    public PhysicsManager2d(Vector2 gravity) {
+        velocityIterations = 8;
+        positionIterations = 3;
+
+        accumulator = 0.0;
+
+        simulatePhysics = true;
+        renderPhysicsDebugLines = false;
+
+        physicsWorld = new World(gravity,true);
+        physicsWorld.setContactListener(this);
+        worlds = new World[] { physicsWorld };
+
+        bodyPool = new BodyPool(physicsWorld);
+        spatialQuery = new SpatialQuery2d(this);
+        batchRaycaster = new BatchRaycaster(this);
 
         collisionPool = new Collision2d.CollisionPool();
     }
@@ -138,13 +209,6 @@ public class PhysicsManager2d extends Component implements ContactListener {
         this(new Vector2(0, -9.8f));
     }
 
-    private Physics2d toPhysics2d(Component component) {
-        if (component instanceof Physics2d)
-            return (Physics2d) component;
-
-        return null;
-    }
-
     /**
      * Sets the physics time step used by physics engine.
      * Currently the physics engine simulates at a fixed time step of (1f / 60f) 60 frames per second.
@@ -160,12 +224,80 @@ public class PhysicsManager2d extends Component implements ContactListener {
     public float getPhysicsTimeStep()
     { return physicsTimeStep; }
 
+    /**
+     * Sets the maximum number of fixed steps that can be taken in a single frame. When a frame takes longer than this many steps,
+     * the excess time is dropped instead of being simulated later. See {@link #getLastDroppedTime()}.
+     * Defaults to 5.
+     * @param maxSubSteps the maximum number of steps per frame. Must be at least 1.
+     * @throws IllegalArgumentException if maxSubSteps is less than 1
+     */
+    public void setMaxSubSteps(int maxSubSteps) throws IllegalArgumentException {
+        if (maxSubSteps < 1)
+            throw new IllegalArgumentException("maxSubSteps must be at least 1!");
+
+        this.maxSubSteps = maxSubSteps;
+    }
+
+    /**
+     *
+     * @return the maximum number of fixed steps that can be taken in a single frame.
+     */
+    public int getMaxSubSteps()
+    { return maxSubSteps; }
+
+    /**
+     * Sets a clock used to measure frame time. When null (the default), the delta time passed to {@link #update(float)} is used.
+     * This is mostly useful for tests that need to control time.
+     * @param clock the clock or null to use the engine's delta time
+     */
+    public void setClock(Clock clock) {
+        this.clock = clock;
+        lastClockTime = -1;
+    }
+
+    /**
+     *
+     * @return the clock used to measure frame time or null if the engine's delta time is used
+     */
+    public Clock getClock()
+    { return clock; }
+
+    /**
+     *
+     * @return the number of fixed steps taken during the last frame
+     */
+    public int getSubStepsTaken()
+    { return subStepsTaken; }
+
+    /**
+     *
+     * @return the time in seconds that was dropped during the last frame because it needed more than {@link #getMaxSubSteps()} steps.
+     */
+    public float getLastDroppedTime()
+    { return lastDroppedTime; }
+
+    /**
+     *
+     * @return the total time in seconds dropped since this manager was created.
+     */
+    public double getTotalDroppedTime()
+    { return totalDroppedTime; }
+
+    /**
+     * Returns how far the simulation is between the last step and the next one. Always in the range [0, 1).
+     * @return the ratio of the time left in the accumulator to the fixed time step
+     */
+    public float getInterpolationAlpha()
+    { return (float)(accumulator / physicsTimeStep); }
+
     /**
      * Sets the gravity used for physics simulation.
      * @param gravity the gravity
      */
-    public void setGravity(Vector2 gravity)
-    { physicsWorld.setGravity(gravity); }
+    public void setGravity(Vector2 gravity) {
+        for (World world : worlds)
+            world.setGravity(gravity);
+    }
 
     /**
      * Toggles rendering of debug lines around physics bodies.
@@ -189,209 +321,1674 @@ public class PhysicsManager2d extends Component implements ContactListener {
      * @param body the body to destroy
      */
     public void destroyPhysicsBody(Body body) {
-        if (body != null && !garbagePhysicsBodies.contains(body, true))
+        if (body != null && stepInFlight)
+            deferredDestroys.add(body);
+        else if (body != null && queuedBodies.add(body))
             garbagePhysicsBodies.add(body);
     }
 
+    /* Whether a fixture will be destroyed at the end of the frame */
+    boolean isQueuedForDestruction(Fixture fixture)
+    { return queuedFixtures.contains(fixture); }
+
     /**
-     *
-     * @return the physics world ({@link World}).
+     * This is the recommended way to destroy a fixture. Like bodies, fixtures are queued until the current frame is completed.
+     * A fixture whose body is also queued for destruction is destroyed along with the body.
+     * @param fixture the fixture to destroy
      */
-    public World getPhysicsWorld()
-    { return physicsWorld; }
+    public void destroyFixture(Fixture fixture) {
+        if (fixture != null && stepInFlight)
+            deferredDestroys.add(fixture);
+        else if (fixture != null && queuedFixtures.add(fixture))
+            garbageFixtures.add(fixture);
+    }
 
     /**
-     * Sets the velocity iterations for physics simulation. High values produces more realistic simulations but higher values also eat up processing power.
-     * Defaults to 8. Change it only when necessary.
-     * @param velocityIterations the velocity iterations for physics simulation.
+     * This is the recommended way to destroy a joint. Like bodies, joints are queued until the current frame is completed.
+     * Joints are destroyed before fixtures and bodies.
+     * @param joint the joint to destroy
      */
-    public void setVelocityIterations(int velocityIterations)
-    { this.velocityIterations = velocityIterations; }
+    public void destroyJoint(Joint joint) {
+        if (joint != null && stepInFlight)
+            deferredDestroys.add(joint);
+        else if (joint != null && queuedJoints.add(joint))
+            garbageJoints.add(joint);
+    }
 
     /**
-     *
-     * @return the velocity iterations for physics simulation.
+     * Loads many physics objects at once. Every body and fixture described by the batch is created first, in one tight loop that reuses the
+     * same definitions and shapes. Every game object is then given the transform of its object, a {@link BoxCollider} or {@link CircleCollider}
+     * and a {@link RigidBody2d} that adopts the body already created for it instead of building its own.
+     * The game objects still have to be added to a scene. This must not be called during a step.
+     * @param batch the objects to create
+     * @param gameObjects the game objects to bind the bodies to; object i of the batch is bound to gameObjects[i]. They must not have a
+     *                    collider or a {@link RigidBody2d} yet.
+     * @throws IllegalArgumentException if there are fewer game objects than objects in the batch or one of them already has a collider or a
+     * RigidBody2d
+     * @throws IllegalStateException if a pipelined step is in flight
      */
-    public int getVelocityIterations()
-    { return velocityIterations; }
+    public void createBodies(BodyBatch batch, GameObject[] gameObjects) throws IllegalArgumentException, IllegalStateException {
+        checkNotInFlight();
+
+        int size = batch.size;
+        if (gameObjects.length < size)
+            throw new IllegalArgumentException("Expected " + size + " game objects but got " + gameObjects.length);
+
+        // The RigidBody2d binds the fixtures of the body to the colliders of its game object in order, so another collider would take the
+        // fixture of the batch
+        for (int i = 0; i < size; i++) {
+            if (gameObjects[i].hasComponent(Collider.class) || gameObjects[i].hasComponent(RigidBody2d.class))
+                throw new IllegalArgumentException("Game object " + i + " already has a collider or a RigidBody2d!");
+        }
+
+        Body[] bodies = new Body[size];
+        float[] x = batch.x, y = batch.y, width = batch.width, height = batch.height, rotation = batch.rotation;
+        BodyDef.BodyType[] bodyType = batch.bodyType;
+        byte[] colliderKind = batch.colliderKind;
+        short[] material = batch.material;
+        PhysicsMaterial2d[] materials = batch.materials.toArray(PhysicsMaterial2d.class);
+
+        // Box2D copies the shape into every fixture, so one shape of each kind serves the whole batch
+        PolygonShape box = new PolygonShape();
+        CircleShape circle = new CircleShape();
+        FixtureDef fdef = fixtureDef;
+        fdef.isSensor = false;
+        fdef.filter.categoryBits = 0x0001;
+        fdef.filter.maskBits = -1;
+        fdef.filter.groupIndex = 0;
+
+        try {
+            for (int i = 0; i < size; i++) {
+                float halfWidth = width[i] * .5f;
+                float halfHeight = height[i] * .5f;
+
+                bodyDef.type = bodyType[i];
+                bodyDef.position.set(x[i] + halfWidth, y[i] + halfHeight);
+                bodyDef.angle = rotation[i] * MathUtils.degreesToRadians;
+                Body body = worldAt(bodyDef.position.x, bodyDef.position.y).createBody(bodyDef);
+
+                if (colliderKind[i] == BodyBatch.BOX) {
+                    box.setAsBox(halfWidth, halfHeight);
+                    fdef.shape = box;
+                }
+                else {
+                    circle.setRadius(halfWidth);
+                    fdef.shape = circle;
+                }
+
+                PhysicsMaterial2d physicsMaterial = materials[material[i]];
+                fdef.friction = physicsMaterial.friction;
+                fdef.restitution = physicsMaterial.bounciness;
+                fdef.density = physicsMaterial.density;
+                body.createFixture(fdef);
+
+                bodies[i] = body;
+            }
+        } finally {
+            fdef.shape = null;
+            box.dispose();
+            circle.dispose();
+        }
+
+        // Bind the bodies. Colliders go first so the RigidBody2d finds them when it is attached.
+        int bound = 0;
+        RigidBody2d rigidBody2d = null;
+        try {
+            for (; bound < size; bound++) {
+                GameObject gameObject = gameObjects[bound];
+                gameObject.transform.setPosition(x[bound], y[bound]);
+                gameObject.transform.setSize(width[bound], height[bound]);
+                gameObject.transform.setRotation(rotation[bound]);
+
+                Collider collider = colliderKind[bound] == BodyBatch.BOX ? new BoxCollider(width[bound], height[bound])
+                        : new CircleCollider(width[bound] * .5f);
+                gameObject.addComponent(collider);
+
+                rigidBody2d = new RigidBody2d(bodyType[bound], materials[material[bound]], this);
+                rigidBody2d.preparedBody = bodies[bound];
+                gameObject.addComponent(rigidBody2d);
+            }
+        } finally {
+            // An attach threw; the bodies nobody adopted would leak. An adopted body has its game object as its user data.
+            if (bound < size) {
+                if (rigidBody2d != null)
+                    rigidBody2d.preparedBody = null;
+
+                for (int i = bound; i < size; i++) {
+                    if (bodies[i].getUserData() == null)
+                        bodies[i].getWorld().destroyBody(bodies[i]);
+                }
+            }
+        }
+    }
 
     /**
-     * Sets the position iterations for physics simulation. High values produces more realistic simulations but higher values also eat up processing power.
-     * Defaults to 3. Change it only when necessary.
-     * @param positionIterations the position iterations for physics simulation.
+     * Returns the pool of deactivated bodies. When pooling is enabled with {@link BodyPool#setMaxBodies(int)}, a detached {@link RigidBody2d}
+     * deactivates its body and keeps it in the pool instead of destroying it, and the next RigidBody2d attached with the same colliders reuses it.
+     * @return the body pool
      */
-    public void setPositionIterations(int positionIterations)
-    { this.positionIterations = positionIterations; }
+    public BodyPool getBodyPool()
+    { return bodyPool; }
+
+    /**
+     * Returns the cache of native shapes shared by colliders with the same geometry.
+     * @return the shape cache
+     */
+    public ShapeCache getShapeCache()
+    { return shapeCache; }
 
     /**
      *
-     * @return the position iterations for physics simulation.
+     * @return the number of bodies destroyed at the end of the last frame
      */
-    public int getPositionIterations()
-    { return positionIterations; }
+    public int getDestroyedBodyCount()
+    { return destroyedBodyCount; }
 
     /**
-     * Use this to determine if physics should be simulated or not.
-     * @param simulatePhysics whether physics should be simulated or not.
+     *
+     * @return the number of fixtures destroyed at the end of the last frame, not counting the fixtures destroyed along with their bodies
      */
-    public void setSimulatePhysics(boolean simulatePhysics)
-    { this.simulatePhysics = simulatePhysics; }
+    public int getDestroyedFixtureCount()
+    { return destroyedFixtureCount; }
 
     /**
      *
-     * @return whether physics is simulated or not.
+     * @return the number of joints destroyed at the end of the last frame
      */
-    public boolean isSimulatePhysics()
-    { return simulatePhysics; }
+    public int getDestroyedJointCount()
+    { return destroyedJointCount; }
 
-    /* Steps the physics world */
-    protected void stepPhysicsWorld() {
-        double newTime = TimeUtils.millis() / 1000.0;
-        double frameTime = Math.min(newTime - currentTime, 0.25);
+    /**
+     * Registers a {@link Physics2d} component so it receives physics updates.
+     * This is called internally by {@link Physics2d} and should never be called directly.
+     * @param physics2d the component to register
+     */
+    public void __registerPhysics2d(Physics2d physics2d) {
+        if (physics2d.registeredManager != null)
+            return;
 
-        currentTime = newTime;
-        accumulator += frameTime;
+        physics2d.registeredManager = this;
+        physics2d.registryIndex = physicsComponents.size;
+        physicsComponents.add(physics2d);
+    }
 
-        // Step once
-        physicsWorld.step(physicsTimeStep, velocityIterations, positionIterations);
+    /**
+     * Removes a {@link Physics2d} component registered with {@link #__registerPhysics2d(Physics2d)}.
+     * This is called internally by {@link Physics2d} and should never be called directly.
+     * @param physics2d the component to remove
+     */
+    public void __unregisterPhysics2d(Physics2d physics2d) {
+        if (physics2d.registeredManager != this)
+            return;
 
-        // Update components
-        Array<GameObject> gameObjects = scene.getGameObjects();
-        for (GameObject go : gameObjects) {
-            go.__forEachComponent(fixedUpdateIter);
-        }
+        // The registry is unordered; the last component takes the vacated slot
+        int index = physics2d.registryIndex;
+        physicsComponents.removeIndex(index);
+        if (index < physicsComponents.size)
+            physicsComponents.get(index).registryIndex = index;
 
-        // Interpolate the physics bodies to avoid temporal aliasing
-        while(accumulator >= physicsTimeStep) {
-            physicsWorld.step(physicsTimeStep, velocityIterations, positionIterations);
-            accumulator -= physicsTimeStep;
+        physics2d.registeredManager = null;
+        physics2d.registryIndex = -1;
+    }
 
-            for (GameObject go : gameObjects) {
-                go.__forEachComponent(fixedUpdateIter);
-            }
+    /**
+     * Registers a {@link RigidBody2d} so its transform gets synced with its physics body.
+     * This is called internally by {@link RigidBody2d} and should never be called directly.
+     * @param rigidBody2d the rigid body to register
+     */
+    public void __registerRigidBody(RigidBody2d rigidBody2d) {
+        if (rigidBody2d.bodyIndex != -1)
+            return;
 
-            interpolateTransforms(gameObjects, (float)accumulator/physicsTimeStep);
-        }
+        int index = rigidBodies.size;
+        rigidBody2d.bodyIndex = index;
+        rigidBody2d.stableId = nextStableId++;
+        rigidBodies.add(rigidBody2d);
+        batchRaycaster.invalidate();
+
+        // Both snapshots start at the body's initial state so there is nothing to blend yet
+        Body body = rigidBody2d.getBody();
+        bodyOwners.put(body, rigidBody2d);
+        Vector2 position = body.getPosition();
+        bodyStates.ensureCapacity(index + 1);
+        bodyStates.reset(index, position.x, position.y, body.getAngle());
     }
 
-    protected void interpolateTransforms(Array<GameObject> gameObjects, float alpha) {
-        for (GameObject go : gameObjects) {
-            RigidBody2d rigidBody2d = go.getComponent(RigidBody2d.class);
-            if (rigidBody2d != null)
-                rigidBody2d.__interpolate(alpha);
-        }
-    }
+    /**
+     * Removes a {@link RigidBody2d} registered with {@link #__registerRigidBody(RigidBody2d)}.
+     * This is called internally by {@link RigidBody2d} and should never be called directly.
+     * @param rigidBody2d the rigid body to remove
+     */
+    public void __unregisterRigidBody(RigidBody2d rigidBody2d) {
+        int index = rigidBody2d.bodyIndex;
+        if (index == -1)
+            return;
 
-    protected void destroyPhysicsBodies() {
-        for (Body body : garbagePhysicsBodies) {
-            if (body != null) {
-                physicsWorld.destroyBody(body);
-            }
+        // The last body moves into the vacated slot, and so does its state
+        rigidBodies.removeIndex(index);
+        if (index < rigidBodies.size) {
+            rigidBodies.get(index).bodyIndex = index;
+            bodyStates.move(rigidBodies.size, index);
         }
 
-        garbagePhysicsBodies.clear();
+        rigidBody2d.bodyIndex = -1;
+        rigidBody2d.stableId = -1;
+        if (rigidBody2d.body != null)
+            bodyOwners.remove(rigidBody2d.body);
+
+        if (partition != null)
+            partition.removeGhosts(rigidBody2d);
+
+        // Cached hits refer to bodies by their index
+        batchRaycaster.invalidate();
     }
 
-    @Override
-    public void update(float deltaTime) {
-        if (simulatePhysics) {
-            stepPhysicsWorld();
+    /* Binds a registered rigid body to the body that replaced its physics body, such as a copy in another region */
+    void replaceBody(RigidBody2d rigidBody2d, Body body) {
+        if (rigidBody2d.bodyIndex != -1) {
+            bodyOwners.remove(rigidBody2d.body);
+            bodyOwners.put(body, rigidBody2d);
         }
 
-        // destroy physics bodies scheduled for removal
-        destroyPhysicsBodies();
+        rigidBody2d.body = body;
+        batchRaycaster.invalidate();
     }
 
-    @Override
-    public void postRender(Array<GameObject> gameObjects) {
-        if (renderPhysicsDebugLines)
-            physicsDebugRenderer.render(physicsWorld, scene.getMainCamera().getCamera().combined);
+    /**
+     * Records the state of a registered body after a step. The current snapshot becomes the previous one.
+     * This is called internally by {@link RigidBody2d} and should never be called directly.
+     * @param bodyIndex the registry index of the body
+     * @param x the x-coordinate of the body's center
+     * @param y the y-coordinate of the body's center
+     * @param angle the angle of the body in radians
+     */
+    public void __captureBodyState(int bodyIndex, float x, float y, float angle) {
+        bodyStates.shift(bodyIndex);
+        bodyStates.set(bodyIndex, x, y, angle);
     }
 
-    @Override
-    public void destroy() {
-        physicsDebugRenderer.dispose();
-        physicsWorld.dispose();
+    /**
+     * Determines if transforms are synced for all bodies in one batched pass after each step. The batched pass reads every awake, non-static
+     * body into {@link BodyStateBuffer} and then writes the game object transforms from it. When disabled, each {@link RigidBody2d} syncs its
+     * own transform from its fixedUpdate2d() instead.
+     * Defaults to true.
+     * @param batchTransformSync whether transforms are synced in a batched pass
+     */
+    public void setBatchTransformSync(boolean batchTransformSync) {
+        this.batchTransformSync = batchTransformSync;
+
+        // Only the batched pass counts them
+        if (!batchTransformSync)
+            syncedBodyCount = awakeBodyCount = 0;
     }
 
-    @Override
-    public void preSolve(Contact contact, Manifold manifold) {}
+    /**
+     *
+     * @return whether transforms are synced in a batched pass after each step
+     */
+    public boolean isBatchTransformSync()
+    { return batchTransformSync; }
 
-    @Override
-    public void beginContact(Contact contact) {
-        Body bodyA = contact.getFixtureA().getBody();
-        Body bodyB = contact.getFixtureB().getBody();
+    /**
+     * Determines if bodies are extrapolated instead of interpolated. Interpolation renders bodies between their previous and current
+     * physics state, which is always correct but one step behind. Extrapolation predicts ahead of the current state from the last step's motion;
+     * it has no lag but can briefly overshoot when bodies collide or change direction.
+     * Defaults to false.
+     * @param extrapolate whether bodies should be extrapolated
+     */
+    public void setExtrapolate(boolean extrapolate)
+    { this.extrapolate = extrapolate; }
+
+    /**
+     *
+     * @return whether bodies are extrapolated instead of interpolated
+     */
+    public boolean isExtrapolate()
+    { return extrapolate; }
+
+    /**
+     * Determines if contact events are deferred. By default {@link Physics2d} contact callbacks run from inside {@link World#step(float, int, int)},
+     * where bodies cannot be created or destroyed and the solver waits on game logic. When deferred, contacts only record their bodies, fixtures,
+     * sensor flags, normal and points during the step; the callbacks run after the step, in the order the contacts happened.
+     * Deferred collisions have no {@link Collision2d#contact} but carry {@link Collision2d#normal} and {@link Collision2d#points} instead.
+     * In deterministic mode contact events stay deferred, and the setting takes effect when the mode is disabled.
+     * Defaults to false.
+     * @param deferContactEvents whether contact events should be deferred
+     */
+    public void setDeferContactEvents(boolean deferContactEvents) {
+        if (deterministic)
+            deferContactEventsOutsideDeterministic = deferContactEvents;
+        else
+            this.deferContactEvents = deferContactEvents;
+    }
 
-        GameObject goA = null;
-        GameObject goB = null;
+    /**
+     *
+     * @return whether contact events are dispatched after the step instead of during it
+     */
+    public boolean isDeferContactEvents()
+    { return deferContactEvents; }
 
-        if (bodyA.getUserData() instanceof GameObject)
-            goA = (GameObject)bodyA.getUserData();
+    /**
+     * Sets whether the spatial queries find sensor fixtures. Defaults to true.
+     * @param queriesHitSensors whether queries find sensors
+     */
+    public void setQueriesHitSensors(boolean queriesHitSensors) {
+        this.queriesHitSensors = queriesHitSensors;
+        batchRaycaster.invalidate();
+    }
 
-        if (bodyB.getUserData() instanceof GameObject)
-            goB = (GameObject)bodyB.getUserData();
+    /**
+     *
+     * @return whether the spatial queries find sensor fixtures
+     */
+    public boolean isQueriesHitSensors()
+    { return queriesHitSensors; }
 
-        if (goA == null && goB == null)
-            return;
+    /**
+     * Finds the fixtures that overlap an axis-aligned box.
+     * Like every spatial query, only fixtures whose category bits (see {@link io.github.isoteriktech.xgdx.physics2d.colliders.Collider#setCategoryBits(short)})
+     * share a bit with maskBits are found, and null elements of the results are created the first time they are needed.
+     * @param x the x-coordinate of the lower left corner of the box
+     * @param y the y-coordinate of the lower left corner of the box
+     * @param width the width of the box
+     * @param height the height of the box
+     * @param maskBits the categories to find or {@link #ALL_CATEGORIES}
+     * @param results the buffer to fill. The query stops once it is full
+     * @return the number of results filled
+     * @throws IllegalStateException if a pipelined step is in flight. Query from fixedUpdate2d() or the contact callbacks instead
+     */
+    public int overlapBox(float x, float y, float width, float height, short maskBits, QueryHit2d[] results) throws IllegalStateException {
+        checkNotInFlight();
+        if (results.length == 0)
+            return 0;
 
-        collisionA = collisionPool.obtain(contact, goB, contact.getFixtureA(), contact.getFixtureB());
-        collisionB = collisionPool.obtain(contact, goA, contact.getFixtureB(), contact.getFixtureA());
+        return spatialQuery.overlapBox(x, y, width, height, maskBits, queriesHitSensors, results);
+    }
 
-        isSensorA = contact.getFixtureA().isSensor();
-        isSensorB = contact.getFixtureB().isSensor();
+    /**
+     * Finds the fixtures that overlap a circle.
+     * @param x the x-coordinate of the center of the circle
+     * @param y the y-coordinate of the center of the circle
+     * @param radius the radius of the circle
+     * @param maskBits the categories to find or {@link #ALL_CATEGORIES}
+     * @param results the buffer to fill. The query stops once it is full
+     * @return the number of results filled
+     * @throws IllegalStateException if a pipelined step is in flight
+     * @see #overlapBox(float, float, float, float, short, QueryHit2d[])
+     */
+    public int overlapCircle(float x, float y, float radius, short maskBits, QueryHit2d[] results) throws IllegalStateException {
+        checkNotInFlight();
+        if (results.length == 0)
+            return 0;
 
-        if (goA != null) {
-            goA.__forEachComponent(iterAEnter);
-        }
+        return spatialQuery.overlapCircle(x, y, radius, maskBits, queriesHitSensors, results);
+    }
 
-        if (goB != null) {
-            goB.__forEachComponent(iterBEnter);
-        }
+    /**
+     * Finds the fixtures that contain a point. Edges and chains never contain points.
+     * @param x the x-coordinate of the point
+     * @param y the y-coordinate of the point
+     * @param maskBits the categories to find or {@link #ALL_CATEGORIES}
+     * @param results the buffer to fill. The query stops once it is full
+     * @return the number of results filled
+     * @throws IllegalStateException if a pipelined step is in flight
+     * @see #overlapBox(float, float, float, float, short, QueryHit2d[])
+     */
+    public int pointQuery(float x, float y, short maskBits, QueryHit2d[] results) throws IllegalStateException {
+        checkNotInFlight();
+        if (results.length == 0)
+            return 0;
 
-        collisionPool.free(collisionA);
-        collisionPool.free(collisionB);
+        return spatialQuery.pointQuery(x, y, maskBits, queriesHitSensors, results);
     }
 
-    @Override
-    public void endContact(Contact contact) {
-        Body bodyA = contact.getFixtureA().getBody();
-        Body bodyB = contact.getFixtureB().getBody();
+    /**
+     * Finds the closest fixture along a ray.
+     * @param x1 the x-coordinate of the start of the ray
+     * @param y1 the y-coordinate of the start of the ray
+     * @param x2 the x-coordinate of the end of the ray
+     * @param y2 the y-coordinate of the end of the ray
+     * @param maskBits the categories to find or {@link #ALL_CATEGORIES}
+     * @param hit the hit to fill
+     * @return true if the ray hit a fixture
+     * @throws IllegalStateException if a pipelined step is in flight
+     * @see #overlapBox(float, float, float, float, short, QueryHit2d[])
+     */
+    public boolean raycast(float x1, float y1, float x2, float y2, short maskBits, QueryHit2d hit) throws IllegalStateException {
+        checkNotInFlight();
+        return spatialQuery.raycast(x1, y1, x2, y2, maskBits, queriesHitSensors, hit);
+    }
 
-        GameObject goA = null;
-        GameObject goB = null;
+    /**
+     * Finds every fixture along a ray, from the closest to the farthest. When there are more hits than the buffer holds, the closest are kept.
+     * A ray hits a chain once for every edge it crosses.
+     * @param x1 the x-coordinate of the start of the ray
+     * @param y1 the y-coordinate of the start of the ray
+     * @param x2 the x-coordinate of the end of the ray
+     * @param y2 the y-coordinate of the end of the ray
+     * @param maskBits the categories to find or {@link #ALL_CATEGORIES}
+     * @param results the buffer to fill
+     * @return the number of results filled
+     * @throws IllegalStateException if a pipelined step is in flight
+     * @see #overlapBox(float, float, float, float, short, QueryHit2d[])
+     */
+    public int raycastAll(float x1, float y1, float x2, float y2, short maskBits, QueryHit2d[] results) throws IllegalStateException {
+        checkNotInFlight();
+        if (results.length == 0)
+            return 0;
 
-        if (bodyA.getUserData() instanceof GameObject)
-            goA = (GameObject)bodyA.getUserData();
+        return spatialQuery.raycastAll(x1, y1, x2, y2, maskBits, queriesHitSensors, results);
+    }
 
-        if (bodyB.getUserData() instanceof GameObject)
-            goB = (GameObject)bodyB.getUserData();
+    /**
+     * Casts every ray of a batch and writes the closest hit of each one to the batch's output arrays.
+     * Hits are cached until the next step, so rays cast again with the same origin, direction and mask in the same step are answered without
+     * touching Box2D. Call {@link #invalidateRaycastCache()} after moving bodies between steps.
+     * @param batch the rays to cast
+     * @throws IllegalStateException if a pipelined step is in flight
+     * @see #setQueriesHitSensors(boolean)
+     */
+    public void raycast(RaycastBatch2d batch) throws IllegalStateException {
+        checkNotInFlight();
+        batchRaycaster.raycast(batch, queriesHitSensors);
+    }
 
-        if (goA == null && goB == null)
-            return;
+    /**
+     * Forgets the hits cached by {@link #raycast(RaycastBatch2d)}. The cache is emptied after every step, whenever a {@link RigidBody2d}
+     * is added or removed and whenever the manager creates or destroys a fixture; call this after moving or changing bodies between steps,
+     * or after creating bodies directly in the world.
+     */
+    public void invalidateRaycastCache()
+    { batchRaycaster.invalidate(); }
 
-        collisionA = collisionPool.obtain(contact, goB, contact.getFixtureA(), contact.getFixtureB());
-        collisionB = collisionPool.obtain(contact, goA, contact.getFixtureB(), contact.getFixtureA());
+    /**
+     * Returns a registered {@link RigidBody2d} given its registry index, such as {@link RaycastBatch2d#hitIndex}.
+     * @param index the registry index
+     * @return the rigid body
+     */
+    public RigidBody2d getRigidBody(int index)
+    { return rigidBodies.get(index); }
 
-        isSensorA = contact.getFixtureA().isSensor();
-        isSensorB = contact.getFixtureB().isSensor();
+    /**
+     *
+     * @return the number of {@link RigidBody2d}s registered with this manager
+     */
+    public int getRigidBodyCount()
+    { return rigidBodies.size; }
 
-        if (goA != null) {
-            goA.__forEachComponent(iterAExit);
-        }
+    /**
+     *
+     * @return the number of {@link Physics2d} components (including {@link RigidBody2d}s) registered with this manager
+     */
+    public int getPhysicsComponentCount()
+    { return physicsComponents.size; }
 
-        if (goB != null) {
-            goB.__forEachComponent(iterBExit);
-        }
+    /**
+     *
+     * @return the physics world ({@link World}). When the world is partitioned, this is the world of the first region.
+     */
+    public World getPhysicsWorld()
+    { return physicsWorld; }
 
-        collisionPool.free(collisionA);
-        collisionPool.free(collisionB);
+    /**
+     * Splits the simulation into a grid of regions, each simulated by its own Box2D {@link World}, so the regions can be stepped in parallel
+     * by the {@link TaskRunner} set with {@link #setTaskRunner(TaskRunner)}. Bodies are created in the region that contains their center.
+     * Before every step, a body whose center left its region by more than a quarter of the ghost margin is moved to the region it is in now,
+     * and a ghost of every body (a copy of its fixtures that follows it) is placed in each other region within the ghost margin of its fixtures,
+     * so bodies still collide across borders.
+     * <p>
+     * {@link RigidBody2d}s, contact events and the spatial queries keep working as if there was one world, with these differences:
+     * <ul>
+     *     <li>results near borders are approximate, because ghosts push the bodies of their region but are not pushed back;</li>
+     *     <li>contact events are always deferred (see {@link #setDeferContactEvents(boolean)}), since regions may be stepped on other threads;</li>
+     *     <li>contact events with bodies near a border may be followed by an extra exit and enter when a body moves to another region;</li>
+     *     <li>{@link RigidBody2d#getBody()} returns a new body after the body moves to another region, so don't keep references to it;</li>
+     *     <li>bodies with joints never leave their region, and joints between bodies of different regions are not supported;</li>
+     *     <li>bodies that don't belong to a {@link RigidBody2d}, like walls made with {@link io.github.isoteriktech.xgdx.physics2d.utils.Box2dUtil},
+     *     only exist in the world they were created in.</li>
+     * </ul>
+     * Bodies outside the grid belong to the closest region. This must be called before any body is created and can only be called once.
+     * @param x the x-coordinate of the lower left corner of the grid
+     * @param y the y-coordinate of the lower left corner of the grid
+     * @param regionWidth the width of every region
+     * @param regionHeight the height of every region
+     * @param columns the number of regions across
+     * @param rows the number of regions up
+     * @param ghostMargin how far from a region a body's fixtures may be and still collide with that region's bodies. Should be more than
+     *                    the distance fast bodies travel in a step
+     * @throws IllegalArgumentException if the regions are empty or the ghost margin is negative
+     * @throws IllegalStateException if the world is already partitioned or bodies were created already
+     */
+    public void setPartition(float x, float y, float regionWidth, float regionHeight, int columns, int rows, float ghostMargin)
+            throws IllegalArgumentException, IllegalStateException {
+        if (regionWidth <= 0 || regionHeight <= 0 || columns < 1 || rows < 1)
+            throw new IllegalArgumentException("Regions must have a positive size and there must be at least one of them");
+        if (ghostMargin < 0)
+            throw new IllegalArgumentException("The ghost margin cannot be negative");
+        if (partition != null)
+            throw new IllegalStateException("The world is already partitioned");
+        if (physicsWorld.getBodyCount() > 0)
+            throw new IllegalStateException("The world must be partitioned before bodies are created");
+
+        partition = new WorldPartition2d(this, x, y, regionWidth, regionHeight, columns, rows, ghostMargin);
+        worlds = partition.getWorlds();
     }
 
-    @Override
-    public void postSolve(Contact contact, ContactImpulse impulse) {}
+    /**
+     *
+     * @return whether the simulation is split into regions with {@link #setPartition(float, float, float, float, int, int, float)}
+     */
+    public boolean isPartitioned()
+    { return partition != null; }
+
+    /**
+     *
+     * @return the number of worlds simulated by this manager: the number of regions when partitioned or 1
+     */
+    public int getWorldCount()
+    { return worlds.length; }
+
+    /* Returns the world a body centered at a point belongs to */
+    World worldAt(float x, float y)
+    { return partition != null ? partition.worldAt(x, y) : physicsWorld; }
+
+    /* Whether a body is the ghost of a body in another region */
+    boolean isGhost(Body body)
+    { return partition != null && partition.isGhost(body); }
+
+    /**
+     * Sets the runner that steps the regions of a partitioned world. When null (the default), regions are stepped one after the other on the
+     * thread that steps this manager. Has no effect unless the world is partitioned.
+     * @param taskRunner the runner or null to step regions sequentially
+     */
+    public void setTaskRunner(TaskRunner taskRunner)
+    { this.taskRunner = taskRunner; }
+
+    /**
+     *
+     * @return the runner that steps the regions of a partitioned world or null if they are stepped sequentially
+     */
+    public TaskRunner getTaskRunner()
+    { return taskRunner; }
+
+    /**
+     * Sets the source of commands recorded by other threads. Its commands are applied on the thread that steps this manager at the start of
+     * every frame, before the fixed steps of the frame are taken.
+     * {@link io.github.isoteriktech.xgdx.physics2d.concurrent.PhysicsCommandBuffer} sets itself when created.
+     * @param commandSource the source or null to remove it
+     */
+    public void setCommandSource(CommandSource commandSource)
+    { this.commandSource = commandSource; }
+
+    /**
+     *
+     * @return the source of commands recorded by other threads or null if there is none
+     */
+    public CommandSource getCommandSource()
+    { return commandSource; }
+
+    /**
+     * Enables or disables collecting {@link PhysicsStats} for every frame. While enabled, the phases of the fixed steps are timed and the
+     * bodies of every world are walked once at the end of the frame to count them. While disabled, nothing is measured. Defaults to false.
+     * @param collectStats whether stats should be collected
+     */
+    public void setCollectStats(boolean collectStats)
+    { this.collectStats = collectStats; }
+
+    /**
+     *
+     * @return whether stats are collected
+     */
+    public boolean isCollectStats()
+    { return collectStats; }
+
+    /**
+     * Saves the state of every registered {@link RigidBody2d} into a snapshot, overwriting what it held: transforms, velocities, whether
+     * bodies are awake and active, and the material, sensor flag and filter bits of their fixtures. Reusing the same snapshots, for
+     * example a ring of them for rollback networking, saves without allocating once their buffers are big enough.
+     * Bodies without a RigidBody2d, like the walls made by {@link io.github.isoteriktech.xgdx.physics2d.utils.Box2dUtil}, are not saved.
+     * @param snapshot the snapshot to save into
+     * @return the snapshot
+     * @throws IllegalStateException if called during a step or while a pipelined step is in flight
+     */
+    public PhysicsSnapshot snapshot(PhysicsSnapshot snapshot) throws IllegalStateException {
+        checkNotStepping();
+        snapshot.save(rigidBodies, stepCount, nextStableId);
+        return snapshot;
+    }
+
+    /**
+     * Saves the state of every registered {@link RigidBody2d} into a new snapshot. See {@link #snapshot(PhysicsSnapshot)}.
+     * @return the snapshot
+     * @throws IllegalStateException if called during a step or while a pipelined step is in flight
+     */
+    public PhysicsSnapshot snapshot() throws IllegalStateException
+    { return snapshot(new PhysicsSnapshot(rigidBodies.size)); }
+
+    /**
+     * Puts back the state saved by {@link #snapshot(PhysicsSnapshot)}. The existing bodies and fixtures are updated in place; nothing is
+     * created or destroyed. Fixture properties are only written when they differ from the saved ones. Game objects jump to the restored
+     * transforms without being interpolated, and {@link #getStepCount()} goes back to the step the snapshot was saved at. The stable ids
+     * (see {@link RigidBody2d#getStableId()}) go back as well: bodies registered after the restore get the ids they got after the save, so
+     * remove the bodies registered since the save before registering new ones.
+     * <p>
+     * When bodies were added or removed since the save, the bodies that still exist get their saved state, the removed ones are skipped and
+     * the new ones are left alone; a body recreated since the save gets the saved state if it has as many fixtures.
+     * Box2D contacts are kept as they are, so contact events may differ from the first run right after a restore.
+     * @param snapshot the snapshot
+     * @return true if the same bodies are registered as when the snapshot was saved, in the same order, so the state was put back exactly
+     * @throws IllegalStateException if called during a step or while a pipelined step is in flight
+     */
+    public boolean restore(PhysicsSnapshot snapshot) throws IllegalStateException {
+        checkNotStepping();
+        batchRaycaster.invalidate();
+        stepCount = snapshot.getStepCount();
+        nextStableId = snapshot.nextStableId;
+        return snapshot.restore(this);
+    }
+
+    /**
+     * Enables or disables the deterministic mode, for lockstep networking where every peer runs the same simulation from the same inputs.
+     * In deterministic mode:
+     * <ul>
+     *     <li>{@link #update(float)} no longer steps the world by frame time. The game calls {@link #advance()} once per simulation tick,
+     *     after applying the inputs of the tick, and every call takes exactly one fixed step.</li>
+     *     <li>Contact events are deferred and dispatched ordered by the {@link RigidBody2d#getStableId()} of both bodies instead of the
+     *     order Box2D found the contacts in.</li>
+     *     <li>Game objects show the state of the last step; nothing is interpolated.</li>
+     * </ul>
+     * Peers stay in sync as long as they create, change and remove bodies in the same order, from the thread that steps the manager. The
+     * order of commands pushed to a {@link CommandSource} from several threads at once is not deterministic. Box2D itself is only
+     * deterministic across identical builds on the same kind of CPU.
+     * Disabling the mode puts back the {@link #setDeferContactEvents(boolean)} setting from before it was enabled, or the one set meanwhile.
+     * Defaults to false.
+     * @param deterministic whether the deterministic mode is enabled
+     */
+    public void setDeterministic(boolean deterministic) {
+        if (deterministic == this.deterministic)
+            return;
+
+        this.deterministic = deterministic;
+        if (deterministic) {
+            deferContactEventsOutsideDeterministic = deferContactEvents;
+            deferContactEvents = true;
+        }
+        else
+            deferContactEvents = deferContactEventsOutsideDeterministic;
+    }
+
+    /**
+     *
+     * @return whether the deterministic mode is enabled
+     */
+    public boolean isDeterministic()
+    { return deterministic; }
+
+    /**
+     * Takes exactly one fixed step in deterministic mode: applies the commands of the {@link CommandSource}, steps the world, dispatches the
+     * contact events and fixedUpdate2d() calls of the step, destroys the queued bodies and hashes the state of the bodies.
+     * Compare the returned hash with the hash of the peers for the same {@link #getStepCount()} to catch a desync at the step it happens.
+     * @return the hash of the state after the step. See {@link #computeStateHash()}
+     * @throws IllegalStateException if the deterministic mode is not enabled, if called during a step or if another stepper steps this manager
+     */
+    public long advance() throws IllegalStateException {
+        if (!deterministic)
+            throw new IllegalStateException("The deterministic mode is not enabled");
+        if (steppedExternally)
+            throw new IllegalStateException("This manager is stepped by an external stepper");
+        checkNotStepping();
+
+        if (commandSource != null)
+            commandSource.drainCommands(this);
+
+        subStepsTaken = 0;
+        lastDroppedTime = 0;
+        __simulateStep();
+        __dispatchStep();
+        destroyPhysicsBodies();
+
+        stateHash = computeStateHash();
+        if (collectStats)
+            publishStats();
+
+        return stateHash;
+    }
+
+    /**
+     *
+     * @return the number of fixed steps taken since this manager was created, or since the snapshot it was last restored to was saved
+     */
+    public long getStepCount()
+    { return stepCount; }
+
+    /**
+     *
+     * @return the state hash computed by the last {@link #advance()}
+     */
+    public long getStateHash()
+    { return stateHash; }
+
+    /**
+     * Hashes the position, angle and awake flag of every registered {@link RigidBody2d} with its {@link RigidBody2d#getStableId()}, exactly
+     * as they were read after the last step. The hash doesn't depend on the order of the registry, and reads no state from Box2D unless
+     * batched transform sync is disabled. Velocities are left out: a body whose velocity went off moves differently on the next step.
+     * @return the hash
+     */
+    public long computeStateHash() {
+        RigidBody2d[] bodies = rigidBodies.items;
+        BodyStateBuffer states = bodyStates;
+        long hash = 0;
+        for (int i = 0, n = rigidBodies.size; i < n; i++) {
+            float x, y, angle;
+            boolean awake;
+            if (batchTransformSync) {
+                x = states.x[i];
+                y = states.y[i];
+                angle = states.angle[i];
+                awake = states.awake[i];
+            }
+            else {
+                Body body = bodies[i].body;
+                Transform transform = body.getTransform();
+                x = transform.getPosition().x;
+                y = transform.getPosition().y;
+                angle = transform.getRotation();
+                awake = body.isAwake();
+            }
+
+            long h = mix(bodies[i].stableId * 0x9E3779B97F4A7C15L + Float.floatToRawIntBits(x));
+            h = mix(h + Float.floatToRawIntBits(y));
+            h = mix(h + Float.floatToRawIntBits(angle) + (awake ? 1 : 0));
+            hash += h;
+        }
+        return hash;
+    }
+
+    /* The finalizer of SplitMix64: spreads every input bit over the whole result */
+    private static long mix(long h) {
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        return h ^ (h >>> 31);
+    }
+
+    /**
+     * Sets the profiler that times every {@link Physics2d} callback dispatched by this manager. When null (the default), callbacks are
+     * called without being timed.
+     * @param callbackProfiler the profiler or null to stop profiling
+     */
+    public void setCallbackProfiler(CallbackProfiler callbackProfiler)
+    { this.callbackProfiler = callbackProfiler; }
+
+    /**
+     *
+     * @return the profiler that times the callbacks or null if they aren't profiled
+     */
+    public CallbackProfiler getCallbackProfiler()
+    { return callbackProfiler; }
+
+    /**
+     * Returns the stats of the last frame. They are only updated while {@link #setCollectStats(boolean)} is set.
+     * @return the stats
+     */
+    public PhysicsStats getStats()
+    { return stats; }
+
+    /**
+     * Sets the velocity iterations for physics simulation. High values produces more realistic simulations but higher values also eat up processing power.
+     * Defaults to 8. Change it only when necessary.
+     * @param velocityIterations the velocity iterations for physics simulation.
+     */
+    public void setVelocityIterations(int velocityIterations)
+    { this.velocityIterations = velocityIterations; }
+
+    /**
+     *
+     * @return the velocity iterations for physics simulation.
+     */
+    public int getVelocityIterations()
+    { return velocityIterations; }
+
+    /**
+     * Sets the position iterations for physics simulation. High values produces more realistic simulations but higher values also eat up processing power.
+     * Defaults to 3. Change it only when necessary.
+     * @param positionIterations the position iterations for physics simulation.
+     */
+    public void setPositionIterations(int positionIterations)
+    { this.positionIterations = positionIterations; }
+
+    /**
+     *
+     * @return the position iterations for physics simulation.
+     */
+    public int getPositionIterations()
+    { return positionIterations; }
+
+    /**
+     * Use this to determine if physics should be simulated or not.
+     * @param simulatePhysics whether physics should be simulated or not.
+     */
+    public void setSimulatePhysics(boolean simulatePhysics)
+    { this.simulatePhysics = simulatePhysics; }
+
+    /**
+     *
+     * @return whether physics is simulated or not.
+     */
+    public boolean isSimulatePhysics()
+    { return simulatePhysics; }
+
+    /* Steps the physics world at a fixed time step, as many times as the elapsed frame time allows */
+    protected void stepPhysicsWorld(float deltaTime) {
+        int steps = __beginStep(deltaTime);
+        for (int i = 0; i < steps; i++) {
+            __simulateStep();
+            __dispatchStep();
+        }
+        __endStep();
+    }
+
+    /**
+     * Hands stepping over to an external stepper. While set, {@link #update(float)} only destroys the bodies queued for destruction.
+     * This is called internally by {@link io.github.isoteriktech.xgdx.physics2d.concurrent.ParallelWorldStepper} and should never be called directly.
+     * @param steppedExternally whether an external stepper steps this manager
+     */
+    public void __setSteppedExternally(boolean steppedExternally)
+    { this.steppedExternally = steppedExternally; }
+
+    /**
+     * Starts a frame: applies the commands of the {@link CommandSource}, adds the frame time to the accumulator and takes out the fixed steps owed, no more than {@link #getMaxSubSteps()}.
+     * This is called internally by {@link #stepPhysicsWorld(float)}, {@link io.github.isoteriktech.xgdx.physics2d.concurrent.ParallelWorldStepper}
+     * and {@link io.github.isoteriktech.xgdx.physics2d.concurrent.PipelinedPhysicsStepper} and should never be called directly.
+     * @param deltaTime the frame time, ignored when a {@link Clock} is set
+     * @return the number of fixed steps to take this frame
+     */
+    public int __beginStep(float deltaTime) {
+        if (commandSource != null)
+            commandSource.drainCommands(this);
+
+        double frameTime = clock != null ? readClock() : deltaTime;
+        if (frameTime > 0)
+            accumulator += frameTime;
+
+        subStepsTaken = 0;
+        int steps = 0;
+        while (accumulator >= physicsTimeStep && steps < maxSubSteps) {
+            accumulator -= physicsTimeStep;
+            steps++;
+        }
+        return steps;
+    }
+
+    /**
+     * Takes one fixed step of the world and syncs the transforms of the bodies that moved. Contact events are dispatched right away unless
+     * they are deferred; no other callbacks run, so with deferred contact events this can run on a worker thread while the thread that owns
+     * the scene waits.
+     * This is called internally by {@link #stepPhysicsWorld(float)}, {@link io.github.isoteriktech.xgdx.physics2d.concurrent.ParallelWorldStepper}
+     * and {@link io.github.isoteriktech.xgdx.physics2d.concurrent.PipelinedPhysicsStepper} and should never be called directly.
+     */
+    public void __simulateStep() {
+        long start = collectStats ? TimeUtils.nanoTime() : 0;
+
+        if (partition != null) {
+            // Bodies change regions and ghosts catch up before the regions are stepped; contact events are recorded by each region.
+            // Pipelined steps do this once before handing the world over, since bodies are destroyed along the way.
+            if (!stepInFlight)
+                partition.update(rigidBodies);
+            if (taskRunner != null)
+                taskRunner.run(partition.regions, partition.regions.length);
+            else {
+                for (Runnable region : partition.regions)
+                    region.run();
+            }
+        }
+        else
+            physicsWorld.step(physicsTimeStep, velocityIterations, positionIterations);
+
+        batchRaycaster.invalidate();
+        subStepsTaken++;
+        stepCount++;
+
+        long stepped = collectStats ? TimeUtils.nanoTime() : 0;
+
+        // The physics thread of a pipelined step only reads; the main thread writes the transforms at the step boundary
+        if (batchTransformSync) {
+            if (stepInFlight)
+                __readBodyStates(0, rigidBodies.size);
+            else
+                __syncBodyTransforms(0, rigidBodies.size);
+        }
+
+        if (collectStats) {
+            stats.stepTime += stepped - start;
+            stats.syncTime += TimeUtils.nanoTime() - stepped;
+        }
+    }
+
+    /* Takes one fixed step of a region world. Called by the regions of a partitioned world, possibly on a worker thread. */
+    void stepRegion(World world)
+    { world.step(physicsTimeStep, velocityIterations, positionIterations); }
+
+    /**
+     * Dispatches the contact events deferred during the last fixed step and calls fixedUpdate2d() on every component.
+     * This is called internally by {@link #stepPhysicsWorld(float)}, {@link io.github.isoteriktech.xgdx.physics2d.concurrent.ParallelWorldStepper}
+     * and {@link io.github.isoteriktech.xgdx.physics2d.concurrent.PipelinedPhysicsStepper} and should never be called directly.
+     */
+    public void __dispatchStep() {
+        if (!collectStats) {
+            flushContactEvents();
+
+            // Update components
+            fixedUpdateComponents();
+            return;
+        }
+
+        long start = TimeUtils.nanoTime();
+        flushContactEvents();
+        long flushed = TimeUtils.nanoTime();
+        fixedUpdateComponents();
+        stats.contactDispatchTime += flushed - start;
+        stats.fixedUpdateTime += TimeUtils.nanoTime() - flushed;
+    }
+
+    /**
+     * Hands the world to the physics thread of a pipelined step. Bodies of a partitioned world change regions first, on the calling thread.
+     * Until {@link #__finishPipelinedStep()}, {@link RigidBody2d} mutations, spawns and destroys are queued and the spatial queries can't be used.
+     * This is called internally by {@link io.github.isoteriktech.xgdx.physics2d.concurrent.PipelinedPhysicsStepper} and should never be called directly.
+     */
+    public void __beginPipelinedStep() {
+        if (partition != null)
+            partition.update(rigidBodies);
+
+        // The physics thread reads the contact masks but never rebuilds them
+        RigidBody2d[] bodies = rigidBodies.items;
+        for (int i = 0, n = rigidBodies.size; i < n; i++) {
+            if (bodies[i].contactListenersDirty)
+                bodies[i].__getContactMask();
+        }
+
+        stepInFlight = true;
+    }
+
+    /**
+     *
+     * @return whether a pipelined step is running on the physics thread
+     */
+    public boolean isStepInFlight()
+    { return stepInFlight; }
+
+    /**
+     * The step boundary of a pipelined step, run on the main thread once the physics thread is done: writes the transforms read by the
+     * physics thread, replays the mutations queued meanwhile, dispatches the contact events and fixedUpdate2d() calls of the step taken and
+     * destroys the queued bodies, fixtures and joints. The physics thread takes one fixed step per pipelined step.
+     * This is called internally by {@link io.github.isoteriktech.xgdx.physics2d.concurrent.PipelinedPhysicsStepper} and should never be called directly.
+     */
+    public void __finishPipelinedStep() {
+        stepInFlight = false;
+
+        if (batchTransformSync) {
+            long start = collectStats ? TimeUtils.nanoTime() : 0;
+            __writeBodyStates(0, rigidBodies.size);
+            if (collectStats)
+                stats.syncTime += TimeUtils.nanoTime() - start;
+        }
+
+        commands.apply();
+        for (int i = 0, n = deferredDestroys.size; i < n; i++) {
+            Object object = deferredDestroys.get(i);
+            if (object instanceof Body)
+                destroyPhysicsBody((Body)object);
+            else if (object instanceof Fixture)
+                destroyFixture((Fixture)object);
+            else
+                destroyJoint((Joint)object);
+        }
+        deferredDestroys.clear();
+
+        __dispatchStep();
+        destroyPhysicsBodies();
+    }
+
+    /**
+     * Ends a frame: drops the time the simulation could not catch up with and interpolates the transforms of the bodies.
+     * This is called internally by {@link #stepPhysicsWorld(float)}, {@link io.github.isoteriktech.xgdx.physics2d.concurrent.ParallelWorldStepper}
+     * and {@link io.github.isoteriktech.xgdx.physics2d.concurrent.PipelinedPhysicsStepper} and should never be called directly.
+     */
+    public void __endStep() {
+        // If we still owe whole steps we are falling behind. Catching up next frame would only make that frame slower
+        // (the spiral of death), so the excess time is dropped. The remainder is kept for interpolation.
+        lastDroppedTime = 0;
+        if (accumulator >= physicsTimeStep) {
+            double dropped = Math.floor(accumulator / physicsTimeStep) * physicsTimeStep;
+            accumulator -= dropped;
+            lastDroppedTime = (float)dropped;
+            totalDroppedTime += dropped;
+        }
+
+        if (!collectStats) {
+            // Interpolate the physics bodies once per rendered frame to avoid temporal aliasing
+            interpolateTransforms(getInterpolationAlpha());
+            return;
+        }
+
+        long start = TimeUtils.nanoTime();
+        interpolateTransforms(getInterpolationAlpha());
+        stats.interpolationTime += TimeUtils.nanoTime() - start;
+        publishStats();
+    }
+
+    /* Counts what is in the worlds and hands the measured frame to the stats listeners. Nothing walks the bodies: the fixture count is kept
+     * by libGDX as fixtures are created and destroyed, and awake bodies are counted by the transform sync. */
+    private void publishStats() {
+        int bodyCount = 0, fixtureCount = 0, contactCount = 0, jointCount = 0;
+        for (World world : worlds) {
+            bodyCount += world.getBodyCount();
+            contactCount += world.getContactCount();
+            jointCount += world.getJointCount();
+
+            fixtureCount += world.getFixtureCount();
+        }
+
+        int pendingDestroys = garbagePhysicsBodies.size + garbageFixtures.size + garbageJoints.size + deferredDestroys.size;
+        stats.publish(subStepsTaken, lastDroppedTime, bodyCount, awakeBodyCount, fixtureCount, contactCount, jointCount, pendingDestroys,
+                bodyPool, shapeCache, collisionPool.peak);
+    }
+
+    private void checkNotInFlight() throws IllegalStateException {
+        if (stepInFlight)
+            throw new IllegalStateException("The world is being stepped on the physics thread");
+    }
+
+    private void checkNotStepping() throws IllegalStateException {
+        checkNotInFlight();
+        for (World world : worlds) {
+            if (world.isLocked())
+                throw new IllegalStateException("The world is being stepped");
+        }
+    }
+
+    /* Returns the time elapsed on the clock since the last read. The first read starts the clock. */
+    private double readClock() {
+        double now = clock.getTime();
+        double elapsed = lastClockTime < 0 ? 0 : now - lastClockTime;
+        lastClockTime = now;
+        return elapsed;
+    }
+
+    /**
+     * Syncs a range of registered bodies in two passes: {@link #__readBodyStates(int, int)} reads the new physics state of the bodies that
+     * may have moved into {@link #bodyStates}; {@link #__writeBodyStates(int, int)} writes the game object transforms of the bodies that changed.
+     * This is called internally after each step and should never be called directly.
+     * @param from the registry index of the first body to sync
+     * @param to the registry index after the last body to sync
+     */
+    public void __syncBodyTransforms(int from, int to) {
+        __readBodyStates(from, to);
+        __writeBodyStates(from, to);
+    }
+
+    /**
+     * Reads the new physics state of a range of registered bodies into {@link #bodyStates}. The current snapshot of every body becomes the
+     * previous one. A body is read when it is awake, when it fell asleep since the last read (to pick up its resting pose) or when it was moved
+     * through {@link RigidBody2d#setTransform(float, float, float)}. Static and sleeping bodies are otherwise skipped.
+     * Only Box2D and the buffer are touched, so this can run on the physics thread of a pipelined step.
+     * This is called internally after each step and should never be called directly.
+     * @param from the registry index of the first body to read
+     * @param to the registry index after the last body to read
+     */
+    public void __readBodyStates(int from, int to) {
+        RigidBody2d[] bodies = rigidBodies.items;
+        BodyStateBuffer states = bodyStates;
+        boolean[] wasAwake = states.awake;
+        int synced = 0, awakeCount = 0;
+
+        // Read back the physics state of the bodies that could have moved
+        for (int i = from; i < to; i++) {
+            states.shift(i);
+
+            RigidBody2d rigidBody2d = bodies[i];
+            Body body = rigidBody2d.body;
+            if (body == null)
+                continue;
+
+            boolean moved = rigidBody2d.transformDirty;
+            boolean awake = false;
+            if (rigidBody2d.bodyType != BodyDef.BodyType.StaticBody) {
+                awake = body.isAwake();
+                if (awake)
+                    awakeCount++;
+            }
+
+            if (!awake && !wasAwake[i] && !moved)
+                continue;
+
+            Transform transform = body.getTransform();
+            Vector2 position = transform.getPosition();
+            states.set(i, position.x, position.y, transform.getRotation());
+            wasAwake[i] = awake;
+            rigidBody2d.transformDirty = false;
+            synced++;
+        }
+
+        syncedBodyCount = synced;
+        awakeBodyCount = awakeCount;
+    }
+
+    /**
+     * Writes the game object transforms of the bodies in a range whose state changed during the last read.
+     * This is called internally after each step and should never be called directly.
+     * @param from the registry index of the first body to write
+     * @param to the registry index after the last body to write
+     */
+    public void __writeBodyStates(int from, int to) {
+        RigidBody2d[] bodies = rigidBodies.items;
+        BodyStateBuffer states = bodyStates;
+        boolean[] changed = states.changed;
+        float[] x = states.x, y = states.y, angle = states.angle;
+        for (int i = from; i < to; i++) {
+            if (changed[i] && bodies[i].isEnabled())
+                bodies[i].__applyBodyState(x[i], y[i], angle[i]);
+        }
+    }
+
+    /**
+     *
+     * @return the number of bodies whose transform was read back and synced after the last step. Static and sleeping bodies are skipped unless they were moved.
+     */
+    public int getSyncedBodyCount()
+    { return syncedBodyCount; }
+
+    /**
+     *
+     * @return the number of registered bodies that were awake after the last step
+     */
+    public int getAwakeBodyCount()
+    { return awakeBodyCount; }
+
+    /* Calls fixedUpdate2d() on every registered component */
+    protected void fixedUpdateComponents() {
+        // Components may be added or removed from within the callbacks so we iterate a snapshot
+        Physics2d[] components = physicsComponents.begin();
+        CallbackProfiler profiler = callbackProfiler;
+        for (int i = 0, n = physicsComponents.size; i < n; i++) {
+            Physics2d physics2d = components[i];
+            if ((physics2d.eventMask & Physics2d.FIXED_UPDATE) == 0 || !physics2d.isEnabled())
+                continue;
+
+            if (profiler == null)
+                physics2d.fixedUpdate2d(physicsTimeStep);
+            else {
+                long start = TimeUtils.nanoTime();
+                physics2d.fixedUpdate2d(physicsTimeStep);
+                profiler.__record(physics2d.getClass(), Physics2d.FIXED_UPDATE, TimeUtils.nanoTime() - start);
+            }
+        }
+        physicsComponents.end();
+    }
+
+    protected void interpolateTransforms(float alpha) {
+        RigidBody2d[] bodies = rigidBodies.items;
+        for (int i = 0, n = rigidBodies.size; i < n; i++)
+            bodies[i].__interpolate(alpha);
+    }
+
+    /* Destroys the queued joints, fixtures and bodies, in that order. Joints go first because destroying a body also destroys its joints. */
+    protected void destroyPhysicsBodies() {
+        destroyedJointCount = garbageJoints.size;
+        for (int i = 0, n = garbageJoints.size; i < n; i++) {
+            Joint joint = garbageJoints.get(i);
+            joint.getBodyA().getWorld().destroyJoint(joint);
+        }
+        garbageJoints.clear();
+        queuedJoints.clear();
+
+        int fixtureCount = 0;
+        for (int i = 0, n = garbageFixtures.size; i < n; i++) {
+            Fixture fixture = garbageFixtures.get(i);
+            Body body = fixture.getBody();
+
+            // The body takes its fixtures with it
+            if (queuedBodies.contains(body))
+                continue;
+
+            body.destroyFixture(fixture);
+            fixtureCount++;
+        }
+        destroyedFixtureCount = fixtureCount;
+        garbageFixtures.clear();
+        queuedFixtures.clear();
+
+        destroyedBodyCount = garbagePhysicsBodies.size;
+        for (int i = 0, n = garbagePhysicsBodies.size; i < n; i++) {
+            Body body = garbagePhysicsBodies.get(i);
+            body.getWorld().destroyBody(body);
+        }
+        garbagePhysicsBodies.clear();
+        queuedBodies.clear();
+
+        // Cached hits may refer to the destroyed fixtures
+        if (destroyedBodyCount > 0 || fixtureCount > 0)
+            batchRaycaster.invalidate();
+    }
+
+    @Override
+    public void update(float deltaTime) {
+        if (simulatePhysics && !steppedExternally && !deterministic) {
+            stepPhysicsWorld(deltaTime);
+        }
+
+        // destroy physics bodies scheduled for removal. A pipelined step destroys them at the step boundary instead.
+        if (!stepInFlight)
+            destroyPhysicsBodies();
+    }
+
+    @Override
+    public void postRender(Array<GameObject> gameObjects) {
+        if (!renderPhysicsDebugLines)
+            return;
+
+        // The renderer needs a GL context, so we only create it when it is actually used
+        if (physicsDebugRenderer == null)
+            physicsDebugRenderer = new Box2DDebugRenderer();
+
+        for (World world : worlds)
+            physicsDebugRenderer.render(world, scene.getMainCamera().getCamera().combined);
+    }
+
+    @Override
+    public void destroy() {
+        if (physicsDebugRenderer != null)
+            physicsDebugRenderer.dispose();
+
+        shapeCache.dispose();
+        if (partition != null)
+            partition.dispose();
+        physicsWorld.dispose();
+
+        hostScene = null;
+    }
+
+    @Override
+    public void attach()
+    { registerScene(); }
+
+    @Override
+    public void start() {
+        // The game object may not have been in a scene when this component was attached
+        registerScene();
+    }
+
+    @Override
+    public void detach() {
+        if (hostScene == null)
+            return;
+
+        // Components with a RigidBody2d belong to the manager of their body; the rest registered through the scene
+        for (int i = physicsComponents.size - 1; i >= 0; i--) {
+            Physics2d physics2d = physicsComponents.get(i);
+            if (physics2d.getGameObject() == null || physics2d.getComponent(RigidBody2d.class) == null)
+                __unregisterPhysics2d(physics2d);
+        }
+        hostScene = null;
+    }
+
+    /* Makes the host scene of this manager the scene of the Physics2d components without a RigidBody2d, and registers the ones it already has */
+    private void registerScene() {
+        Scene scene = getHostScene();
+        if (scene == null || scene == hostScene)
+            return;
+
+        hostScene = scene;
+        Array<GameObject> gameObjects = scene.getGameObjects();
+        for (int i = 0; i < gameObjects.size; i++) {
+            GameObject gameObject = gameObjects.get(i);
+            if (gameObject.hasComponent(RigidBody2d.class))
+                continue;
+
+            for (Physics2d physics2d : gameObject.getComponents(Physics2d.class))
+                __registerPhysics2d(physics2d);
+        }
+    }
+
+    @Override
+    public void preSolve(Contact contact, Manifold manifold) {}
+
+    @Override
+    public void beginContact(Contact contact)
+    { dispatchContact(contact, Physics2d.COLLISION_ENTER, Physics2d.SENSOR_ENTER, contactEvents, deferContactEvents && physicsWorld.isLocked()); }
+
+    @Override
+    public void endContact(Contact contact)
+    { dispatchContact(contact, Physics2d.COLLISION_EXIT, Physics2d.SENSOR_EXIT, contactEvents, deferContactEvents && physicsWorld.isLocked()); }
+
+    /* Sends a contact event to the listeners of both bodies, or records it in a queue when defer is set.
+     * Each side gets the sensor event if its own fixture is a sensor. */
+    void dispatchContact(Contact contact, int collisionEvent, int sensorEvent, ContactEventQueue queue, boolean defer) {
+        Fixture fixtureA = contact.getFixtureA();
+        Fixture fixtureB = contact.getFixtureB();
+        Body bodyA = fixtureA.getBody();
+        Body bodyB = fixtureB.getBody();
+
+        RigidBody2d ownerA = bodyOwners.get(bodyA);
+        RigidBody2d ownerB = bodyOwners.get(bodyB);
+
+        int events = collisionEvent | sensorEvent;
+        int maskA = ownerA != null ? ownerA.__getContactMask() & events : 0;
+        int maskB = ownerB != null ? ownerB.__getContactMask() & events : 0;
+
+        // Most contacts (like debris resting on debris) have no listener on either side
+        if (maskA == 0 && maskB == 0)
+            return;
+
+        boolean sensorA = maskA != 0 && fixtureA.isSensor();
+        boolean sensorB = maskB != 0 && fixtureB.isSensor();
+
+        // Contacts also end outside the step when bodies are destroyed; those are safe to dispatch right away
+        if (defer) {
+            int slot = queue.add(collisionEvent,
+                    maskA != 0 ? ownerA : null, maskB != 0 ? ownerB : null, toGameObject(bodyA), toGameObject(bodyB),
+                    fixtureA, fixtureB, sensorA, sensorB);
+            queue.setManifold(slot, contact.getWorldManifold());
+            return;
+        }
+
+        // The manifold is only read for colliders that capture contact data
+        WorldManifold manifold = null;
+
+        if (maskA != 0) {
+            int event = sensorA ? sensorEvent : collisionEvent;
+            if ((maskA & event) != 0) {
+                Collision2d collision = collisionPool.obtain(contact, toGameObject(bodyB), fixtureA, fixtureB);
+                if (ownerA.capturesContactData(fixtureA)) {
+                    manifold = contact.getWorldManifold();
+                    collision.setManifold(manifold, false);
+                }
+
+                dispatchEvent(ownerA, event, collision);
+                collisionPool.free(collision);
+            }
+        }
+
+        if (maskB != 0) {
+            int event = sensorB ? sensorEvent : collisionEvent;
+            if ((maskB & event) != 0) {
+                Collision2d collision = collisionPool.obtain(contact, toGameObject(bodyA), fixtureB, fixtureA);
+                if (ownerB.capturesContactData(fixtureB)) {
+                    if (manifold == null)
+                        manifold = contact.getWorldManifold();
+                    collision.setManifold(manifold, true);
+                }
+
+                dispatchEvent(ownerB, event, collision);
+                collisionPool.free(collision);
+            }
+        }
+    }
+
+    /* Dispatches the contact events recorded during the last step, then those recorded by every region */
+    protected void flushContactEvents() {
+        if (contactEvents.size() > 0)
+            flushContactEvents(contactEvents);
+
+        if (partition != null) {
+            for (WorldPartition2d.Region region : partition.regions) {
+                if (region.contactEvents.size() > 0)
+                    flushContactEvents(region.contactEvents);
+            }
+        }
+    }
+
+    private void flushContactEvents(ContactEventQueue events) {
+        if (deterministic)
+            flushSortedContactEvents(events);
+        else {
+            int slot;
+            while ((slot = events.poll()) != -1)
+                dispatchContactEvent(events, slot);
+        }
+
+        events.clear();
+    }
+
+    /* Dispatches the recorded contact events ordered by the stable ids of both bodies, lowest pair first. Events of the same pair keep their
+     * order. Box2D reports contacts in the order of its contact list, which depends on the history of the broad-phase, not only on the state. */
+    private void flushSortedContactEvents(ContactEventQueue events) {
+        if (contactKeys.length < events.capacity())
+            contactKeys = new long[events.capacity()];
+
+        int size = events.size();
+        for (int i = 0; i < size; i++) {
+            int slot = events.slotAt(i);
+            long idA = stableIdOf(events.fixtureA[slot].getBody()) + 1L;
+            long idB = stableIdOf(events.fixtureB[slot].getBody()) + 1L;
+            contactKeys[slot] = idA < idB ? (idA << 32) | idB : (idB << 32) | idA;
+        }
+
+        // The queue is not added to while it is flushed: the world is unlocked, so contacts raised by callbacks are dispatched right away
+        int[] slots = events.sortedSlots(contactKeys);
+        for (int i = 0; i < size; i++)
+            dispatchContactEvent(events, slots[i]);
+    }
+
+    /* The stable id of the rigid body of a body, or -1 if the body has none */
+    private int stableIdOf(Body body) {
+        RigidBody2d owner = bodyOwners.get(body);
+        return owner != null ? owner.stableId : -1;
+    }
+
+    /* Dispatches one recorded contact event to both sides */
+    private void dispatchContactEvent(ContactEventQueue events, int slot) {
+        int collisionEvent = events.event[slot];
+        int sensorEvent = toSensorEvent(collisionEvent);
+
+        // Copy both sides out of the record before any callback runs
+        RigidBody2d ownerA = events.ownerA[slot];
+        RigidBody2d ownerB = events.ownerB[slot];
+        int eventA = events.sensorA[slot] ? sensorEvent : collisionEvent;
+        int eventB = events.sensorB[slot] ? sensorEvent : collisionEvent;
+        Fixture fixtureA = events.fixtureA[slot];
+        Fixture fixtureB = events.fixtureB[slot];
+
+        // A fixture destroyed since the record was made has been freed or reused, so it must not reach a callback
+        if (!isAlive(fixtureA, ownerA) || !isAlive(fixtureB, ownerB))
+            return;
+
+        Collision2d collisionA = null, collisionB = null;
+        if (ownerA != null) {
+            collisionA = collisionPool.obtain(null, events.objectB[slot], fixtureA, fixtureB);
+            events.copyContactData(slot, collisionA, false);
+        }
+        if (ownerB != null) {
+            collisionB = collisionPool.obtain(null, events.objectA[slot], fixtureB, fixtureA);
+            events.copyContactData(slot, collisionB, true);
+        }
+
+        // A body removed by an earlier callback gets no more events. The callbacks of side A may destroy either fixture.
+        if (collisionA != null) {
+            if (ownerA.bodyIndex != -1 && (ownerA.__getContactMask() & eventA) != 0)
+                dispatchEvent(ownerA, eventA, collisionA);
+            collisionPool.free(collisionA);
+        }
+        if (collisionB != null) {
+            if (ownerB.bodyIndex != -1 && (ownerB.__getContactMask() & eventB) != 0 && (collisionA == null
+                    || isAlive(fixtureA, ownerA) && isAlive(fixtureB, ownerB)))
+                dispatchEvent(ownerB, eventB, collisionB);
+            collisionPool.free(collisionB);
+        }
+    }
+
+    /* Whether a recorded fixture is still attached to its body and, when the side has a rigid body, whether that body is still the rigid
+     * body's. Box2D empties the fixture list of a destroyed body and its wrappers go back to a pool, so a stale fixture fails one of the checks. */
+    private static boolean isAlive(Fixture fixture, RigidBody2d owner) {
+        Body body = fixture.getBody();
+        if (body == null || owner != null && owner.body != body)
+            return false;
+
+        return body.getFixtureList().contains(fixture, true);
+    }
+
+    /* Returns the sensor counterpart of a collision event. Sensors never get impulses. */
+    private static int toSensorEvent(int collisionEvent) {
+        switch (collisionEvent) {
+            case Physics2d.COLLISION_ENTER:
+                return Physics2d.SENSOR_ENTER;
+            case Physics2d.COLLISION_EXIT:
+                return Physics2d.SENSOR_EXIT;
+            default:
+                return collisionEvent;
+        }
+    }
+
+    /* Calls the callback for an event on every enabled contact listener of a body that wants it */
+    private void dispatchEvent(RigidBody2d owner, int event, Collision2d collision) {
+        Physics2d[] listeners = owner.contactListeners.items;
+        CallbackProfiler profiler = callbackProfiler;
+        for (int i = 0, n = owner.contactListeners.size; i < n; i++) {
+            Physics2d listener = listeners[i];
+            if ((listener.eventMask & event) == 0 || !listener.isEnabled())
+                continue;
+
+            if (profiler == null)
+                callListener(listener, event, collision);
+            else {
+                long start = TimeUtils.nanoTime();
+                callListener(listener, event, collision);
+                profiler.__record(listener.getClass(), event, TimeUtils.nanoTime() - start);
+            }
+        }
+    }
+
+    /* Calls the callback of a contact listener for an event */
+    private static void callListener(Physics2d listener, int event, Collision2d collision) {
+        switch (event) {
+            case Physics2d.COLLISION_ENTER:
+                listener.onCollisionEnter2d(collision);
+                break;
+            case Physics2d.COLLISION_EXIT:
+                listener.onCollisionExit2d(collision);
+                break;
+            case Physics2d.SENSOR_ENTER:
+                listener.onSensorEnter2d(collision);
+                break;
+            case Physics2d.SENSOR_EXIT:
+                listener.onSensorExit2d(collision);
+                break;
+            case Physics2d.COLLISION_IMPULSE:
+                listener.onCollisionImpulse2d(collision);
+                break;
+        }
+    }
+
+    static GameObject toGameObject(Body body) {
+        if (body.getUserData() instanceof GameObject)
+            return (GameObject)body.getUserData();
+
+        return null;
+    }
+
+    @Override
+    public void postSolve(Contact contact, ContactImpulse impulse)
+    { dispatchImpulse(contact, impulse, contactEvents, deferContactEvents); }
+
+    /* Sends the impulses of a contact to the listeners of both bodies, or records them in a queue when defer is set */
+    void dispatchImpulse(Contact contact, ContactImpulse impulse, ContactEventQueue queue, boolean defer) {
+        Fixture fixtureA = contact.getFixtureA();
+        Fixture fixtureB = contact.getFixtureB();
+        Body bodyA = fixtureA.getBody();
+        Body bodyB = fixtureB.getBody();
+
+        RigidBody2d ownerA = bodyOwners.get(bodyA);
+        RigidBody2d ownerB = bodyOwners.get(bodyB);
+
+        // Impulses are only reported for colliders that capture contact data
+        boolean captureA = ownerA != null && (ownerA.__getContactMask() & Physics2d.COLLISION_IMPULSE) != 0
+                && ownerA.capturesContactData(fixtureA);
+        boolean captureB = ownerB != null && (ownerB.__getContactMask() & Physics2d.COLLISION_IMPULSE) != 0
+                && ownerB.capturesContactData(fixtureB);
+        if (!captureA && !captureB)
+            return;
+
+        WorldManifold manifold = contact.getWorldManifold();
+
+        if (defer) {
+            int slot = queue.add(Physics2d.COLLISION_IMPULSE, captureA ? ownerA : null, captureB ? ownerB : null,
+                    toGameObject(bodyA), toGameObject(bodyB), fixtureA, fixtureB, false, false);
+            queue.setManifold(slot, manifold);
+            queue.setImpulses(slot, impulse);
+            return;
+        }
+
+        if (captureA) {
+            Collision2d collision = collisionPool.obtain(contact, toGameObject(bodyB), fixtureA, fixtureB);
+            collision.setManifold(manifold, false);
+            collision.setImpulses(impulse);
+            dispatchEvent(ownerA, Physics2d.COLLISION_IMPULSE, collision);
+            collisionPool.free(collision);
+        }
+
+        if (captureB) {
+            Collision2d collision = collisionPool.obtain(contact, toGameObject(bodyA), fixtureB, fixtureA);
+            collision.setManifold(manifold, true);
+            collision.setImpulses(impulse);
+            dispatchEvent(ownerB, Physics2d.COLLISION_IMPULSE, collision);
+            collisionPool.free(collision);
+        }
+    }
+
+    /**
+     * A source of time for {@link PhysicsManager2d}. See {@link #setClock(Clock)}.
+     */
+    public interface Clock {
+        /**
+         *
+         * @return the current time in seconds
+         */
+        double getTime();
+    }
+
+    /**
+     * Runs the region steps of a partitioned {@link PhysicsManager2d}. See {@link #setTaskRunner(TaskRunner)}.
+     * {@link io.github.isoteriktech.xgdx.physics2d.concurrent.ExecutorTaskRunner} runs them on an executor.
+     */
+    public interface TaskRunner {
+        /**
+         * Runs tasks, possibly in parallel, and returns once all of them are done. Every task touches its own world only.
+         * @param tasks the tasks
+         * @param count the number of tasks to run, from the start of the array
+         */
+        void run(Runnable[] tasks, int count);
+    }
+
+    /**
+     * Supplies commands recorded by other threads to a {@link PhysicsManager2d}. See {@link #setCommandSource(CommandSource)}.
+     * {@link io.github.isoteriktech.xgdx.physics2d.concurrent.PhysicsCommandBuffer} records them in a lock-free queue.
+     */
+    public interface CommandSource {
+        /**
+         * Applies the commands recorded so far. Called on the thread that steps the manager, when the world can be changed.
+         * @param physicsManager2d the manager
+         */
+        void drainCommands(PhysicsManager2d physicsManager2d);
+    }
+
+    /* Returns the manager attached to a scene or null if there is none. The manager is usually set up before the scene is filled, so the
+     * search ends at one of the first game objects. */
+    static PhysicsManager2d forScene(Scene scene) {
+        if (scene == null)
+            return null;
+
+        Array<GameObject> gameObjects = scene.getGameObjects();
+        for (int i = 0; i < gameObjects.size; i++) {
+            PhysicsManager2d physicsManager2d = gameObjects.get(i).getComponent(PhysicsManager2d.class);
+            if (physicsManager2d != null && physicsManager2d.hostScene == scene)
+                return physicsManager2d;
+        }
+        return null;
+    }
 
     /**
      * Creates a new PhysicsManager2d, setup a gameObject to host it, add the gameObject to the scene, then returns the instance.
+     * {@link Physics2d} components of the scene that have no {@link RigidBody2d} register with this manager.
      * @param scene the host scene
      * @param gravity the gravity for the physics world
      * @return an instance of {@link PhysicsManager2d}
@@ -402,6 +1999,8 @@ public class PhysicsManager2d extends Component implements ContactListener {
         gameObject.addComponent(physicsManager2d);
         scene.addGameObject(gameObject);
 
+        // Components attached before the manager existed couldn't register themselves
+        physicsManager2d.registerScene();
         return physicsManager2d;
     }
 
@@ -0,0 +1,261 @@
+package io.github.isoteriktech.xgdx.physics2d;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.Filter;
+import com.badlogic.gdx.physics.box2d.Fixture;
+import com.badlogic.gdx.physics.box2d.Transform;
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * The simulation state of every {@link RigidBody2d} registered with a {@link PhysicsManager2d}, saved by {@link PhysicsManager2d#snapshot(PhysicsSnapshot)}
+ * and put back by {@link PhysicsManager2d#restore(PhysicsSnapshot)}. Meant for rollback networking, where the state is saved every step and
+ * restored to re-simulate from an earlier step, so a snapshot is reused: saving into it again overwrites it and only grows its buffers when
+ * there are more bodies than before.
+ * <p>
+ * The state is packed into an int buffer, floats as their raw bits. Every body takes {@value #BODY_WORDS} words: its position, angle,
+ * linear and angular velocity, whether it is awake and active, and its number of fixtures. Each of its fixtures follows with
+ * {@value #FIXTURE_WORDS} words: friction, restitution, density, sensor flag, group index and category and mask bits. The step count of the
+ * manager and the stable id it gives the next registered body are saved too.
+ * <p>
+ * The bodies are remembered as well, so a restore can tell whether they are still the same ones; see {@link PhysicsManager2d#restore(PhysicsSnapshot)}.
+ * Box2D contacts and their cached impulses are not part of the state.
+ *
+ * @author isoteriksoftware
+ */
+public class PhysicsSnapshot {
+    /** The number of words saved per body, not counting its fixtures */
+    public static final int BODY_WORDS = 8;
+
+    /** The number of words saved per fixture */
+    public static final int FIXTURE_WORDS = 5;
+
+    private static final int AWAKE = 1, ACTIVE = 2, SENSOR = 1;
+
+    /* The packed state */
+    private int[] words;
+    private int size;
+
+    /* Per body: its rigid body, its Box2D body and where its words start */
+    private RigidBody2d[] owners;
+    private Body[] bodies;
+    private int[] offsets;
+    private int bodyCount;
+
+    /* The step count of the manager and its next stable id when saved */
+    private long stepCount;
+    int nextStableId;
+
+    /**
+     * Creates a new snapshot with room for the given number of bodies with one fixture each.
+     * @param capacity the initial number of bodies
+     */
+    public PhysicsSnapshot(int capacity) {
+        capacity = Math.max(1, capacity);
+        words = new int[capacity * (BODY_WORDS + FIXTURE_WORDS)];
+        owners = new RigidBody2d[capacity];
+        bodies = new Body[capacity];
+        offsets = new int[capacity];
+    }
+
+    /**
+     * Creates a new empty snapshot.
+     */
+    public PhysicsSnapshot()
+    { this(64); }
+
+    /**
+     *
+     * @return the number of bodies saved
+     */
+    public int getBodyCount()
+    { return bodyCount; }
+
+    /**
+     *
+     * @return the number of fixed steps the manager had taken when this snapshot was saved
+     */
+    public long getStepCount()
+    { return stepCount; }
+
+    /**
+     *
+     * @return the number of words of state saved
+     */
+    public int size()
+    { return size; }
+
+    /**
+     * Returns the buffer holding the saved state. Only the first {@link #size()} words are used.
+     * @return the buffer
+     */
+    public int[] getWords()
+    { return words; }
+
+    /* Saves the state of every registered body */
+    void save(Array<RigidBody2d> rigidBodies, long stepCount, int nextStableId) {
+        this.stepCount = stepCount;
+        this.nextStableId = nextStableId;
+
+        int count = rigidBodies.size;
+        if (owners.length < count) {
+            int capacity = Math.max(count, owners.length * 2);
+            owners = new RigidBody2d[capacity];
+            bodies = new Body[capacity];
+            offsets = new int[capacity];
+        }
+
+        RigidBody2d[] items = rigidBodies.items;
+        int w = 0;
+        for (int i = 0; i < count; i++) {
+            RigidBody2d rigidBody2d = items[i];
+            Body body = rigidBody2d.body;
+            Array<Fixture> fixtures = body.getFixtureList();
+            int fixtureCount = fixtures.size;
+
+            ensureWords(w, w + BODY_WORDS + fixtureCount * FIXTURE_WORDS);
+            int[] words = this.words;
+
+            owners[i] = rigidBody2d;
+            bodies[i] = body;
+            offsets[i] = w;
+
+            Transform transform = body.getTransform();
+            Vector2 position = transform.getPosition();
+            Vector2 velocity = body.getLinearVelocity();
+            words[w] = Float.floatToRawIntBits(position.x);
+            words[w + 1] = Float.floatToRawIntBits(position.y);
+            words[w + 2] = Float.floatToRawIntBits(transform.getRotation());
+            words[w + 3] = Float.floatToRawIntBits(velocity.x);
+            words[w + 4] = Float.floatToRawIntBits(velocity.y);
+            words[w + 5] = Float.floatToRawIntBits(body.getAngularVelocity());
+            words[w + 6] = (body.isAwake() ? AWAKE : 0) | (body.isActive() ? ACTIVE : 0);
+            words[w + 7] = fixtureCount;
+            w += BODY_WORDS;
+
+            for (int f = 0; f < fixtureCount; f++) {
+                Fixture fixture = fixtures.get(f);
+                Filter filter = fixture.getFilterData();
+                words[w] = Float.floatToRawIntBits(fixture.getFriction());
+                words[w + 1] = Float.floatToRawIntBits(fixture.getRestitution());
+                words[w + 2] = Float.floatToRawIntBits(fixture.getDensity());
+                words[w + 3] = (filter.groupIndex << 16) | (fixture.isSensor() ? SENSOR : 0);
+                words[w + 4] = (filter.categoryBits << 16) | (filter.maskBits & 0xFFFF);
+                w += FIXTURE_WORDS;
+            }
+        }
+
+        // Don't keep removed bodies alive
+        for (int i = count; i < bodyCount; i++) {
+            owners[i] = null;
+            bodies[i] = null;
+        }
+
+        bodyCount = count;
+        size = w;
+    }
+
+    /* Puts the saved state back. Returns whether every saved body was found in place, in the same order. */
+    boolean restore(PhysicsManager2d physicsManager2d) {
+        Array<RigidBody2d> rigidBodies = physicsManager2d.rigidBodies;
+        boolean inPlace = rigidBodies.size == bodyCount;
+
+        RigidBody2d[] items = rigidBodies.items;
+        for (int i = 0; i < bodyCount; i++) {
+            RigidBody2d rigidBody2d = owners[i];
+            Body body = bodies[i];
+            if (inPlace && (i >= rigidBodies.size || items[i] != rigidBody2d || rigidBody2d.body != body))
+                inPlace = false;
+
+            // Bodies removed since the save are skipped; bodies recreated since get the saved state all the same
+            if (rigidBody2d.bodyIndex == -1 || rigidBody2d.physicsManager2d != physicsManager2d)
+                continue;
+
+            restore(rigidBody2d, rigidBody2d.body, offsets[i]);
+        }
+
+        return inPlace;
+    }
+
+    private void restore(RigidBody2d rigidBody2d, Body body, int w) {
+        int[] words = this.words;
+        float x = Float.intBitsToFloat(words[w]);
+        float y = Float.intBitsToFloat(words[w + 1]);
+        float angle = Float.intBitsToFloat(words[w + 2]);
+        int flags = words[w + 6];
+        boolean awake = (flags & AWAKE) != 0;
+        boolean active = (flags & ACTIVE) != 0;
+        int fixtureCount = words[w + 7];
+
+        if (body.isActive() != active)
+            body.setActive(active);
+
+        // Setting a velocity wakes the body, so a sleeping body is put to sleep last, which also zeroes its velocities
+        body.setTransform(x, y, angle);
+        body.setLinearVelocity(Float.intBitsToFloat(words[w + 3]), Float.intBitsToFloat(words[w + 4]));
+        body.setAngularVelocity(Float.intBitsToFloat(words[w + 5]));
+        body.setAwake(awake);
+        w += BODY_WORDS;
+
+        // Fixtures are only put back when the body still has as many; they rarely change, so only the ones that did are written
+        Array<Fixture> fixtures = body.getFixtureList();
+        if (fixtures.size == fixtureCount) {
+            boolean massChanged = false;
+            for (int f = 0; f < fixtureCount; f++, w += FIXTURE_WORDS)
+                massChanged |= restore(fixtures.get(f), w);
+
+            if (massChanged)
+                body.resetMassData();
+        }
+
+        // The game object jumps to the restored pose instead of being interpolated towards it
+        rigidBody2d.physicsManager2d.bodyStates.reset(rigidBody2d.bodyIndex, x, y, angle);
+        rigidBody2d.transformDirty = false;
+        if (rigidBody2d.isEnabled())
+            rigidBody2d.__applyBodyState(x, y, angle);
+    }
+
+    /* Puts back the state of one fixture. Returns whether its density changed. */
+    private boolean restore(Fixture fixture, int w) {
+        int[] words = this.words;
+        float friction = Float.intBitsToFloat(words[w]);
+        float restitution = Float.intBitsToFloat(words[w + 1]);
+        float density = Float.intBitsToFloat(words[w + 2]);
+        boolean sensor = (words[w + 3] & SENSOR) != 0;
+        short groupIndex = (short)(words[w + 3] >> 16);
+        short categoryBits = (short)(words[w + 4] >> 16);
+        short maskBits = (short)words[w + 4];
+
+        if (fixture.getFriction() != friction)
+            fixture.setFriction(friction);
+        if (fixture.getRestitution() != restitution)
+            fixture.setRestitution(restitution);
+        if (fixture.isSensor() != sensor)
+            fixture.setSensor(sensor);
+
+        // Setting the filter makes Box2D refilter every contact of the fixture
+        Filter filter = fixture.getFilterData();
+        if (filter.groupIndex != groupIndex || filter.categoryBits != categoryBits || filter.maskBits != maskBits) {
+            filter.groupIndex = groupIndex;
+            filter.categoryBits = categoryBits;
+            filter.maskBits = maskBits;
+            fixture.setFilterData(filter);
+        }
+
+        if (fixture.getDensity() == density)
+            return false;
+
+        fixture.setDensity(density);
+        return true;
+    }
+
+    /* Grows the buffer to hold at least the given number of words, keeping the ones written so far */
+    private void ensureWords(int written, int capacity) {
+        if (capacity <= words.length)
+            return;
+
+        int[] newWords = new int[Math.max(capacity, words.length * 2)];
+        System.arraycopy(words, 0, newWords, 0, written);
+        words = newWords;
+    }
+}
@@ -0,0 +1,273 @@
+package io.github.isoteriktech.xgdx.physics2d;
+
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * What the last frame of a {@link PhysicsManager2d} cost: the time spent in each phase of its fixed steps, the steps taken and the time
+ * dropped, the size of the simulation and how much the pools and caches saved. The numbers are collected while
+ * {@link PhysicsManager2d#setCollectStats(boolean)} is set and published at the end of every frame, after the transforms are interpolated,
+ * to the {@link Listener}s of this object. Nothing is measured and no listener is called while collection is off.
+ * <p>
+ * Times are in nanoseconds and add up the fixed steps of the frame. Contact events that aren't deferred (see
+ * {@link PhysicsManager2d#setDeferContactEvents(boolean)}) are dispatched from inside the world step, so their time counts as step time.
+ * With a {@link io.github.isoteriktech.xgdx.physics2d.concurrent.PipelinedPhysicsStepper} a frame reports the steps that finished during it.
+ *
+ * @author isoteriksoftware
+ */
+public class PhysicsStats {
+    /** Column names of {@link #appendCsvRow(StringBuilder)}, comma separated */
+    public static final String CSV_HEADER = "frame,stepNanos,fixedUpdateNanos,syncNanos,interpolationNanos,contactDispatchNanos," +
+            "subSteps,droppedTime,bodies,awakeBodies,fixtures,contacts,joints,pendingDestroys," +
+            "bodyPoolHits,bodyPoolMisses,shapeCacheHits,shapeCacheMisses,collisionPoolPeak";
+
+    private final Array<Listener> listeners = new Array<>(false, 4, Listener.class);
+
+    private long frame;
+
+    /* Phase times of the frame being measured */
+    long stepTime, fixedUpdateTime, syncTime, interpolationTime, contactDispatchTime;
+
+    /* The last published frame */
+    private long lastStepTime, lastFixedUpdateTime, lastSyncTime, lastInterpolationTime, lastContactDispatchTime;
+    private int subSteps;
+    private float droppedTime;
+    private int bodyCount, awakeBodyCount, fixtureCount, contactCount, jointCount, pendingDestroyCount;
+    private int bodyPoolHits, bodyPoolMisses, shapeCacheHits, shapeCacheMisses, collisionPoolPeak;
+
+    /* The lifetime pool and cache counters at the last publish, to report the frame's share */
+    private int bodyPoolHitsSeen, bodyPoolMissesSeen, shapeCacheHitsSeen, shapeCacheMissesSeen;
+
+    /**
+     * Adds a listener called every time a frame is published. Listeners are called on the thread that steps the manager.
+     * @param listener the listener
+     */
+    public void addListener(Listener listener)
+    { listeners.add(listener); }
+
+    /**
+     * Removes a listener.
+     * @param listener the listener
+     * @return whether the listener was found
+     */
+    public boolean removeListener(Listener listener)
+    { return listeners.removeValue(listener, true); }
+
+    /* Makes the measured frame the published one, then calls the listeners */
+    void publish(int subSteps, float droppedTime, int bodyCount, int awakeBodyCount, int fixtureCount, int contactCount, int jointCount,
+                 int pendingDestroyCount, BodyPool bodyPool, ShapeCache shapeCache, int collisionPoolPeak) {
+        frame++;
+        lastStepTime = stepTime;
+        lastFixedUpdateTime = fixedUpdateTime;
+        lastSyncTime = syncTime;
+        lastInterpolationTime = interpolationTime;
+        lastContactDispatchTime = contactDispatchTime;
+        stepTime = fixedUpdateTime = syncTime = interpolationTime = contactDispatchTime = 0;
+
+        this.subSteps = subSteps;
+        this.droppedTime = droppedTime;
+        this.bodyCount = bodyCount;
+        this.awakeBodyCount = awakeBodyCount;
+        this.fixtureCount = fixtureCount;
+        this.contactCount = contactCount;
+        this.jointCount = jointCount;
+        this.pendingDestroyCount = pendingDestroyCount;
+        this.collisionPoolPeak = collisionPoolPeak;
+
+        bodyPoolHits = since(bodyPool.getHits(), bodyPoolHitsSeen);
+        bodyPoolMisses = since(bodyPool.getMisses(), bodyPoolMissesSeen);
+        shapeCacheHits = since(shapeCache.getHits(), shapeCacheHitsSeen);
+        shapeCacheMisses = since(shapeCache.getMisses(), shapeCacheMissesSeen);
+        bodyPoolHitsSeen = bodyPool.getHits();
+        bodyPoolMissesSeen = bodyPool.getMisses();
+        shapeCacheHitsSeen = shapeCache.getHits();
+        shapeCacheMissesSeen = shapeCache.getMisses();
+
+        Listener[] items = listeners.items;
+        for (int i = 0, n = listeners.size; i < n; i++)
+            items[i].statsUpdated(this);
+    }
+
+    /* The growth of a counter since it was last seen. A counter that went down was reset in between. */
+    private static int since(int counter, int seen)
+    { return counter >= seen ? counter - seen : counter; }
+
+    /**
+     * Appends the published frame as one line of comma separated values, in the order of {@link #CSV_HEADER}, without a line break.
+     * @param out the builder to append to
+     * @return the builder
+     */
+    public StringBuilder appendCsvRow(StringBuilder out) {
+        return out.append(frame).append(',')
+                .append(lastStepTime).append(',')
+                .append(lastFixedUpdateTime).append(',')
+                .append(lastSyncTime).append(',')
+                .append(lastInterpolationTime).append(',')
+                .append(lastContactDispatchTime).append(',')
+                .append(subSteps).append(',')
+                .append(droppedTime).append(',')
+                .append(bodyCount).append(',')
+                .append(awakeBodyCount).append(',')
+                .append(fixtureCount).append(',')
+                .append(contactCount).append(',')
+                .append(jointCount).append(',')
+                .append(pendingDestroyCount).append(',')
+                .append(bodyPoolHits).append(',')
+                .append(bodyPoolMisses).append(',')
+                .append(shapeCacheHits).append(',')
+                .append(shapeCacheMisses).append(',')
+                .append(collisionPoolPeak);
+    }
+
+    /**
+     *
+     * @return the number of frames published since collection started
+     */
+    public long getFrame()
+    { return frame; }
+
+    /**
+     *
+     * @return the time spent stepping the worlds in nanoseconds, including contact events dispatched during the step
+     */
+    public long getStepTime()
+    { return lastStepTime; }
+
+    /**
+     *
+     * @return the time spent calling fixedUpdate2d() in nanoseconds
+     */
+    public long getFixedUpdateTime()
+    { return lastFixedUpdateTime; }
+
+    /**
+     *
+     * @return the time spent reading body states and writing game object transforms after the steps, in nanoseconds
+     */
+    public long getSyncTime()
+    { return lastSyncTime; }
+
+    /**
+     *
+     * @return the time spent interpolating the transforms for rendering in nanoseconds
+     */
+    public long getInterpolationTime()
+    { return lastInterpolationTime; }
+
+    /**
+     *
+     * @return the time spent dispatching deferred contact events in nanoseconds
+     */
+    public long getContactDispatchTime()
+    { return lastContactDispatchTime; }
+
+    /**
+     *
+     * @return the sum of the phase times in nanoseconds
+     */
+    public long getTotalTime()
+    { return lastStepTime + lastFixedUpdateTime + lastSyncTime + lastInterpolationTime + lastContactDispatchTime; }
+
+    /**
+     *
+     * @return the number of fixed steps taken
+     */
+    public int getSubSteps()
+    { return subSteps; }
+
+    /**
+     *
+     * @return the time in seconds dropped because the frame needed more than {@link PhysicsManager2d#getMaxSubSteps()} steps
+     */
+    public float getDroppedTime()
+    { return droppedTime; }
+
+    /**
+     *
+     * @return the number of bodies in every world of the manager, including bodies without a {@link RigidBody2d}
+     */
+    public int getBodyCount()
+    { return bodyCount; }
+
+    /**
+     *
+     * @return the number of non-static bodies of {@link RigidBody2d}s that were awake after the last step. Counted by the batched transform
+     * sync, so it stays 0 when that is disabled (see {@link PhysicsManager2d#setBatchTransformSync(boolean)})
+     */
+    public int getAwakeBodyCount()
+    { return awakeBodyCount; }
+
+    /**
+     *
+     * @return the number of fixtures of every body
+     */
+    public int getFixtureCount()
+    { return fixtureCount; }
+
+    /**
+     *
+     * @return the number of contacts, touching or not, in every world
+     */
+    public int getContactCount()
+    { return contactCount; }
+
+    /**
+     *
+     * @return the number of joints in every world
+     */
+    public int getJointCount()
+    { return jointCount; }
+
+    /**
+     *
+     * @return the number of bodies, fixtures and joints queued for destruction at the end of the frame
+     */
+    public int getPendingDestroyCount()
+    { return pendingDestroyCount; }
+
+    /**
+     *
+     * @return the number of bodies reused from the {@link BodyPool} during the frame
+     */
+    public int getBodyPoolHits()
+    { return bodyPoolHits; }
+
+    /**
+     *
+     * @return the number of bodies the {@link BodyPool} couldn't supply during the frame
+     */
+    public int getBodyPoolMisses()
+    { return bodyPoolMisses; }
+
+    /**
+     *
+     * @return the number of shapes reused from the {@link ShapeCache} during the frame
+     */
+    public int getShapeCacheHits()
+    { return shapeCacheHits; }
+
+    /**
+     *
+     * @return the number of shapes built because the {@link ShapeCache} didn't have them during the frame
+     */
+    public int getShapeCacheMisses()
+    { return shapeCacheMisses; }
+
+    /**
+     *
+     * @return the largest number of {@link Collision2d}s the manager ever needed at once
+     */
+    public int getCollisionPoolPeak()
+    { return collisionPoolPeak; }
+
+    /**
+     * Receives the stats of every frame. See {@link #addListener(Listener)}.
+     * {@link io.github.isoteriktech.xgdx.physics2d.utils.PhysicsStatsCsvWriter} writes them to a file.
+     */
+    public interface Listener {
+        /**
+         * Called at the end of every frame while stats are collected. The stats are overwritten by the next frame, so copy what you keep.
+         * @param stats the stats
+         */
+        void statsUpdated(PhysicsStats stats);
+    }
+}
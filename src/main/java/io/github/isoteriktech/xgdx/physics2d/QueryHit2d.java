@@ -0,0 +1,66 @@
+package io.github.isoteriktech.xgdx.physics2d;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Fixture;
+import io.github.isoteriktech.xgdx.GameObject;
+import io.github.isoteriktech.xgdx.physics2d.colliders.Collider;
+
+/**
+ * A fixture found by one of the spatial queries of {@link PhysicsManager2d}. Queries fill hits supplied by the caller, so the same hits
+ * can be reused for every query.
+ *
+ * @author isoteriksoftware
+ */
+public class QueryHit2d {
+    /**
+     * The fixture found
+     */
+    public Fixture fixture;
+
+    /**
+     * The collider that generated the fixture. This will be null if the fixture does not belong to a {@link RigidBody2d} (like the fixtures of an independent {@link com.badlogic.gdx.physics.box2d.Body})
+     */
+    public Collider collider;
+
+    /**
+     * The game object of the fixture's body. This will be null if the body does not belong to a game object
+     */
+    public GameObject gameObject;
+
+    /**
+     * The point where the ray hit the fixture in world coordinates. Only set by raycasts.
+     */
+    public final Vector2 point = new Vector2();
+
+    /**
+     * The surface normal at {@link #point} in world coordinates. Only set by raycasts.
+     */
+    public final Vector2 normal = new Vector2();
+
+    /**
+     * How far along the ray the hit is, from 0 at the start of the ray to 1 at its end. Only set by raycasts.
+     */
+    public float fraction;
+
+    /**
+     * Compares the tag of the game object found. If the game object is null, false will be returned.
+     * @param tag the tag to compare
+     * @return true if the game object has the given tag. false otherwise
+     */
+    public boolean compareTag(String tag) {
+        if (gameObject == null)
+            return false;
+
+        return gameObject.getTag().equals(tag);
+    }
+
+    /* Clears every reference so the hit doesn't keep destroyed objects alive */
+    void reset() {
+        fixture = null;
+        collider = null;
+        gameObject = null;
+        point.setZero();
+        normal.setZero();
+        fraction = 0;
+    }
+}
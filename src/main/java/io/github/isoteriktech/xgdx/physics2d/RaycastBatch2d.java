@@ -0,0 +1,115 @@
+package io.github.isoteriktech.xgdx.physics2d;
+
+/**
+ * Many rays cast together by {@link PhysicsManager2d#raycast(RaycastBatch2d)}. Ray i is described by index i of the input arrays and its
+ * closest hit is written to index i of the output arrays. A ray runs from its origin to origin + direction, so the length of the direction
+ * is the length of the ray.
+ * <p>
+ * Batches are meant to be filled and cast every frame: {@link #clear()} keeps the arrays, so a batch stops allocating once it is big enough.
+ *
+ * @author isoteriksoftware
+ */
+public class RaycastBatch2d {
+    /** The hit index of a ray that hit nothing */
+    public static final int NO_HIT = -1;
+
+    /** The hit index of a ray that hit a body that doesn't belong to a {@link RigidBody2d}, like a wall made with {@link io.github.isoteriktech.xgdx.physics2d.utils.Box2dUtil} */
+    public static final int OTHER_BODY = -2;
+
+    /** The number of rays in this batch */
+    public int size;
+
+    /** Only fixtures whose category bits share a bit with this mask are hit. Defaults to {@link PhysicsManager2d#ALL_CATEGORIES} */
+    public short maskBits = PhysicsManager2d.ALL_CATEGORIES;
+
+    /** The origin of every ray */
+    public float[] originX, originY;
+
+    /** The direction of every ray, scaled to its length */
+    public float[] directionX, directionY;
+
+    /** Output: how far along every ray its closest hit is, from 0 at the origin to 1 at the end of the ray. 1 if the ray hit nothing */
+    public float[] fraction;
+
+    /** Output: the surface normal at the closest hit of every ray. Zero if the ray hit nothing */
+    public float[] normalX, normalY;
+
+    /**
+     * Output: the registry index of the {@link RigidBody2d} hit by every ray, {@link #NO_HIT} or {@link #OTHER_BODY}.
+     * Use {@link PhysicsManager2d#getRigidBody(int)} to get the rigid body and its game object. Indices change when rigid bodies are added or removed.
+     */
+    public int[] hitIndex;
+
+    /** The number of rays of the last cast answered from the manager's per-step cache */
+    public int cacheHits;
+
+    /**
+     * Creates a new batch with room for the given number of rays.
+     * @param capacity the initial capacity
+     */
+    public RaycastBatch2d(int capacity) {
+        capacity = Math.max(1, capacity);
+        originX = new float[capacity];
+        originY = new float[capacity];
+        directionX = new float[capacity];
+        directionY = new float[capacity];
+        fraction = new float[capacity];
+        normalX = new float[capacity];
+        normalY = new float[capacity];
+        hitIndex = new int[capacity];
+    }
+
+    /**
+     * Adds a ray to this batch.
+     * @param originX the x-coordinate of the origin
+     * @param originY the y-coordinate of the origin
+     * @param directionX the x-component of the direction, scaled to the length of the ray
+     * @param directionY the y-component of the direction, scaled to the length of the ray
+     * @return the index of the ray
+     */
+    public int add(float originX, float originY, float directionX, float directionY) {
+        if (size == this.originX.length)
+            grow(size * 2);
+
+        int i = size++;
+        this.originX[i] = originX;
+        this.originY[i] = originY;
+        this.directionX[i] = directionX;
+        this.directionY[i] = directionY;
+        return i;
+    }
+
+    /**
+     *
+     * @param index the index of a ray
+     * @return whether the ray hit anything
+     */
+    public boolean isHit(int index)
+    { return hitIndex[index] != NO_HIT; }
+
+    /**
+     * Removes every ray. The arrays are kept.
+     */
+    public void clear()
+    { size = 0; }
+
+    private void grow(int capacity) {
+        originX = copy(originX, capacity);
+        originY = copy(originY, capacity);
+        directionX = copy(directionX, capacity);
+        directionY = copy(directionY, capacity);
+        fraction = copy(fraction, capacity);
+        normalX = copy(normalX, capacity);
+        normalY = copy(normalY, capacity);
+
+        int[] newHitIndex = new int[capacity];
+        System.arraycopy(hitIndex, 0, newHitIndex, 0, size);
+        hitIndex = newHitIndex;
+    }
+
+    private float[] copy(float[] array, int capacity) {
+        float[] newArray = new float[capacity];
+        System.arraycopy(array, 0, newArray, 0, size);
+        return newArray;
+    }
+}
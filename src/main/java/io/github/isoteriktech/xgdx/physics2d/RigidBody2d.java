@@ -5,6 +5,7 @@ import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.math.Vector3;
 import com.badlogic.gdx.physics.box2d.*;
 import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.FloatArray;
 import io.github.isoteriktech.xgdx.Component;
 import io.github.isoteriktech.xgdx.physics2d.colliders.Collider;
 
@@ -14,6 +15,9 @@ import io.github.isoteriktech.xgdx.physics2d.colliders.Collider;
  * It relies on one or more {@link io.github.isoteriktech.xgdx.physics2d.colliders.Collider}s to generate collision shapes for the host game object.
  *
  * <strong>Note:</strong> this component uses the host game object as the user data for the {@link com.badlogic.gdx.physics.box2d.Body} for internal uses. Do not override the user data!
+ * <p>
+ * A plain RigidBody2d overrides none of the contact callbacks, so it only receives {@link Physics2d#FIXED_UPDATE} events. Subclasses receive
+ * {@link Physics2d#ALL_EVENTS} by default, like any other Physics2d component, and can narrow that with {@link #setEventMask(int)}.
  *
  * @author isoteriksoftware
  */
@@ -27,8 +31,8 @@ public class RigidBody2d extends Physics2d {
     /** A kinematic body type. Kinematic bodies have zero mass and non-zero velocity set by user */
     public static final BodyDef.BodyType KinematicBody = BodyDef.BodyType.KinematicBody;
 
-    private Body body;
-    private BodyDef.BodyType bodyType;
+    Body body;
+    BodyDef.BodyType bodyType;
     private final PhysicsMaterial2d material;
 
     private Array<Collider> colliders;
@@ -37,6 +41,28 @@ public class RigidBody2d extends Physics2d {
 
     protected final PhysicsManager2d physicsManager2d;
 
+    /* This body's slot in the manager's registry of rigid bodies. */
+    int bodyIndex = -1;
+
+    /* The number given by the manager when this body was registered, in registration order. -1 while unregistered. */
+    int stableId = -1;
+
+    /* Whether the body was moved outside the simulation and needs its transform synced even if it is static or asleep. */
+    boolean transformDirty;
+
+    /* The Physics2d components of the host game object that want contact events and the union of their event masks.
+     * Rebuilt on the next contact after the components of the host game object or their event masks change. */
+    final Array<Physics2d> contactListeners = new Array<>(true, 4, Physics2d.class);
+    private int contactMask;
+    boolean contactListenersDirty = true;
+
+    /* A body created in bulk by PhysicsManager2d#createBodies, adopted instead of creating one when this component is attached. */
+    Body preparedBody;
+
+    /* The distance from the body's center to the farthest point of its fixtures, used to place ghosts in a partitioned world.
+     * Negative until measured and after the colliders change. */
+    float boundingRadius = -1;
+
     /**
      * Creates a new instance given a body type and a physics material to use by default if a collider doesn't provide one.
      * @param bodyType the body type
@@ -48,8 +74,12 @@ public class RigidBody2d extends Physics2d {
         this.material = material;
         this.physicsManager2d = physicsManager2d;
 
-        colliders = new Array<>();
+        colliders = new Array<>(true, 4, Collider.class);
         interpolate = true;
+
+        // Only subclasses can override the contact callbacks
+        if (getClass() == RigidBody2d.class)
+            eventMask = FIXED_UPDATE;
     }
 
     /**
@@ -64,20 +94,178 @@ public class RigidBody2d extends Physics2d {
     /**
      * This creates the physics body if it is not created yet and returns it.
      * <strong>Note:</strong> null will be returned if this component is not attached to a game object yet. If there is an existing body,
-     * that body will be returned
+     * that body will be returned. While a pipelined step is in flight the body belongs to the physics thread: it must not be changed
+     * directly, and a body that is not created yet is created at the step boundary, so null is returned until then.
      * @return the created physics body or null if this component is not attached yet.
      */
     public Body getBody() {
         if (body != null)
             return body;
 
-        if (gameObject == null)
+        if (gameObject == null || physicsManager2d.stepInFlight)
             return null;
 
-        createBody(physicsManager2d.getPhysicsWorld());
+        createBody();
         return body;
     }
 
+    /**
+     *
+     * @return the type of the physics body
+     */
+    public BodyDef.BodyType getBodyType()
+    { return bodyType; }
+
+    /**
+     * Moves the physics body and makes sure the host game object follows it after the next step, even if the body is static or asleep.
+     * The move is treated as a teleport, so it is not interpolated. Prefer this over calling {@link Body#setTransform(float, float, float)} directly.
+     * @param x the x-coordinate of the body's center in world units
+     * @param y the y-coordinate of the body's center in world units
+     * @param angle the angle of the body in radians
+     */
+    public void setTransform(float x, float y, float angle) {
+        if (physicsManager2d.stepInFlight) {
+            physicsManager2d.commands.add(BodyCommandQueue.SET_TRANSFORM, this, x, y, angle, 0, 0);
+            return;
+        }
+
+        Body body = getBody();
+        if (body == null)
+            return;
+
+        body.setTransform(x, y, angle);
+        transformDirty = true;
+
+        if (bodyIndex != -1)
+            physicsManager2d.bodyStates.reset(bodyIndex, x, y, angle);
+    }
+
+    /**
+     * Sets the linear velocity of the center of mass of the physics body.
+     * Like every mutator of this class, the change is queued until the step boundary while a pipelined step is in flight.
+     * @param x the x-component of the velocity in world units per second
+     * @param y the y-component of the velocity in world units per second
+     */
+    public void setLinearVelocity(float x, float y) {
+        if (physicsManager2d.stepInFlight) {
+            physicsManager2d.commands.add(BodyCommandQueue.SET_LINEAR_VELOCITY, this, x, y, 0, 0, 0);
+            return;
+        }
+
+        Body body = getBody();
+        if (body != null)
+            body.setLinearVelocity(x, y);
+    }
+
+    /**
+     * Sets the angular velocity of the physics body.
+     * @param omega the angular velocity in radians per second
+     */
+    public void setAngularVelocity(float omega) {
+        if (physicsManager2d.stepInFlight) {
+            physicsManager2d.commands.add(BodyCommandQueue.SET_ANGULAR_VELOCITY, this, omega, 0, 0, 0, 0);
+            return;
+        }
+
+        Body body = getBody();
+        if (body != null)
+            body.setAngularVelocity(omega);
+    }
+
+    /**
+     * Applies a force at a world point of the physics body.
+     * @param forceX the x-component of the force in Newtons
+     * @param forceY the y-component of the force in Newtons
+     * @param pointX the x-coordinate of the point in world units
+     * @param pointY the y-coordinate of the point in world units
+     * @param wake whether the body should be woken up
+     */
+    public void applyForce(float forceX, float forceY, float pointX, float pointY, boolean wake) {
+        if (physicsManager2d.stepInFlight) {
+            physicsManager2d.commands.add(BodyCommandQueue.APPLY_FORCE, this, forceX, forceY, pointX, pointY, wake ? 1 : 0);
+            return;
+        }
+
+        Body body = getBody();
+        if (body != null)
+            body.applyForce(forceX, forceY, pointX, pointY, wake);
+    }
+
+    /**
+     * Applies a force at the center of mass of the physics body.
+     * @param forceX the x-component of the force in Newtons
+     * @param forceY the y-component of the force in Newtons
+     * @param wake whether the body should be woken up
+     */
+    public void applyForceToCenter(float forceX, float forceY, boolean wake) {
+        if (physicsManager2d.stepInFlight) {
+            physicsManager2d.commands.add(BodyCommandQueue.APPLY_FORCE_TO_CENTER, this, forceX, forceY, 0, 0, wake ? 1 : 0);
+            return;
+        }
+
+        Body body = getBody();
+        if (body != null)
+            body.applyForceToCenter(forceX, forceY, wake);
+    }
+
+    /**
+     * Applies an impulse at a world point of the physics body.
+     * @param impulseX the x-component of the impulse in Newton-seconds
+     * @param impulseY the y-component of the impulse in Newton-seconds
+     * @param pointX the x-coordinate of the point in world units
+     * @param pointY the y-coordinate of the point in world units
+     * @param wake whether the body should be woken up
+     */
+    public void applyLinearImpulse(float impulseX, float impulseY, float pointX, float pointY, boolean wake) {
+        if (physicsManager2d.stepInFlight) {
+            physicsManager2d.commands.add(BodyCommandQueue.APPLY_LINEAR_IMPULSE, this, impulseX, impulseY, pointX, pointY, wake ? 1 : 0);
+            return;
+        }
+
+        Body body = getBody();
+        if (body != null)
+            body.applyLinearImpulse(impulseX, impulseY, pointX, pointY, wake);
+    }
+
+    /**
+     * Applies a torque to the physics body.
+     * @param torque the torque in Newton-meters
+     * @param wake whether the body should be woken up
+     */
+    public void applyTorque(float torque, boolean wake) {
+        if (physicsManager2d.stepInFlight) {
+            physicsManager2d.commands.add(BodyCommandQueue.APPLY_TORQUE, this, torque, 0, 0, 0, wake ? 1 : 0);
+            return;
+        }
+
+        Body body = getBody();
+        if (body != null)
+            body.applyTorque(torque, wake);
+    }
+
+    /**
+     * Applies an angular impulse to the physics body.
+     * @param impulse the angular impulse in kg*m*m/s
+     * @param wake whether the body should be woken up
+     */
+    public void applyAngularImpulse(float impulse, boolean wake) {
+        if (physicsManager2d.stepInFlight) {
+            physicsManager2d.commands.add(BodyCommandQueue.APPLY_ANGULAR_IMPULSE, this, impulse, 0, 0, 0, wake ? 1 : 0);
+            return;
+        }
+
+        Body body = getBody();
+        if (body != null)
+            body.applyAngularImpulse(impulse, wake);
+    }
+
+    /**
+     * Flags the physics body as moved so the host game object gets synced after the next step, even if the body is static or asleep.
+     * Call this after moving the body returned by {@link #getBody()} directly.
+     */
+    public void markTransformDirty()
+    { transformDirty = true; }
+
     /**
      * Determines if the physics body is interpolated to prevent temporal aliasing
      * @param interpolate if interpolation should be enabled
@@ -94,14 +282,47 @@ public class RigidBody2d extends Physics2d {
         return interpolate;
     }
 
-    private void createAndAttachCollider(Collider collider) {
-        FixtureDef fdef = collider.__getFixtureDef();
-        if (fdef == null)
-            return;
+    /**
+     * Returns the number the manager gave this body when it was registered. Bodies are numbered in the order they are registered, so peers
+     * that create the same bodies in the same order agree on the numbers. See {@link PhysicsManager2d#setDeterministic(boolean)}.
+     * @return the number of this body or -1 if it is not registered
+     */
+    public int getStableId()
+    { return stableId; }
 
+    /* Returns the material of a collider or the default material of this body if the collider has none */
+    private PhysicsMaterial2d getMaterial(Collider collider) {
         PhysicsMaterial2d material = collider.getMaterial();
-        if (material == null)
-            material = this.material;
+        return material != null ? material : this.material;
+    }
+
+    private void createAndAttachCollider(Collider collider) {
+        // Colliders with the same geometry share one native shape. Box2D copies the shape into the fixture.
+        // A shared shape skips __getFixtureDef(), so implicit sizes are resolved here.
+        collider.__resolveImplicitSize();
+        ShapeCache shapeCache = physicsManager2d.shapeCache;
+        FloatArray signature = physicsManager2d.shapeSignature;
+        signature.clear();
+        boolean cacheable = shapeCache.isEnabled() && collider.__writeSignature(signature);
+
+        Shape cachedShape = cacheable ? shapeCache.obtain(signature) : null;
+        FixtureDef fdef;
+        if (cachedShape != null) {
+            fdef = physicsManager2d.fixtureDef;
+            fdef.shape = cachedShape;
+        }
+        else {
+            fdef = collider.__getFixtureDef();
+            if (fdef == null)
+                return;
+
+            if (cacheable) {
+                cachedShape = fdef.shape;
+                shapeCache.put(signature, cachedShape);
+            }
+        }
+
+        PhysicsMaterial2d material = getMaterial(collider);
 
         fdef.friction = material.friction;
         fdef.restitution = material.bounciness;
@@ -114,25 +335,53 @@ public class RigidBody2d extends Physics2d {
         Fixture fixture = body.createFixture(fdef);
         fixture.setUserData(collider.getUserData());
         collider.__setFixture(fixture);
-        collider.__disposeShape();
+        physicsManager2d.invalidateRaycastCache();
+
+        if (cachedShape != null)
+            collider.__setCachedShape(cachedShape);
+        else
+            collider.__disposeShape();
+    }
+
+    /* Releases the cached shape a collider's fixture was created from */
+    private void releaseShape(Collider collider) {
+        Shape cachedShape = collider.__getCachedShape();
+        if (cachedShape == null)
+            return;
+
+        physicsManager2d.shapeCache.release(cachedShape);
+        collider.__setCachedShape(null);
     }
 
-    /* Creates the physics body for the host game object */
-    private void createBody(World physicsWorld) {
+    /* Creates the physics body for the host game object in the world at its position, or reuses a pooled one with the same colliders */
+    private void createBody() {
         // Offset the current game object position by half its dimension
-        Vector2 pos = new Vector2(gameObject.transform.position.x,
-                gameObject.transform.position.y);
-        pos.add(gameObject.transform.size.x * .5f,
-                gameObject.transform.size.y * .5f);
+        float halfWidth = gameObject.transform.size.x * .5f;
+        float halfHeight = gameObject.transform.size.y * .5f;
+        float x = gameObject.transform.position.x + halfWidth;
+        float y = gameObject.transform.position.y + halfHeight;
+        float angle = gameObject.transform.getRotation() * MathUtils.degreesToRadians;
 
         // The origin of the game object must be at the center for simulation to work
-        gameObject.transform.origin.set(gameObject.transform.size.x * .5f,
-                gameObject.transform.size.y * .5f, 0);
+        gameObject.transform.origin.set(halfWidth, halfHeight, 0);
+
+        // Pooled bodies can't be activated during a step, and they all live in the manager's own world
+        World physicsWorld = physicsManager2d.worldAt(x, y);
+        BodyPool bodyPool = physicsManager2d.bodyPool;
+        FloatArray signature = physicsManager2d.bodySignature;
+        if (bodyPool.isEnabled() && physicsWorld == physicsManager2d.getPhysicsWorld() && !physicsWorld.isLocked()
+                && writeSignature(signature)) {
+            Body pooled = bodyPool.obtain(signature);
+            if (pooled != null) {
+                adoptPooledBody(pooled, x, y, angle);
+                return;
+            }
+        }
 
-        BodyDef bdef = new BodyDef();
+        BodyDef bdef = physicsManager2d.bodyDef;
         bdef.type = bodyType;
-        bdef.angle = gameObject.transform.getRotation() * MathUtils.degreesToRadians;
-        bdef.position.set(pos);
+        bdef.angle = angle;
+        bdef.position.set(x, y);
 
         // Create the body
         body = physicsWorld.createBody(bdef);
@@ -144,50 +393,247 @@ public class RigidBody2d extends Physics2d {
         }
     }
 
+    /* Binds a body created by PhysicsManager2d#createBodies. Its fixtures were created in the same order as our colliders. */
+    private void adoptPreparedBody() {
+        body = preparedBody;
+        preparedBody = null;
+        body.setUserData(gameObject);
+
+        // The origin of the game object must be at the center for simulation to work
+        gameObject.transform.origin.set(gameObject.transform.size.x * .5f, gameObject.transform.size.y * .5f, 0);
+
+        Array<Fixture> fixtures = body.getFixtureList();
+        for (int i = 0, n = Math.min(fixtures.size, colliders.size); i < n; i++) {
+            Collider collider = colliders.get(i);
+            Fixture fixture = fixtures.get(i);
+            fixture.setUserData(collider.getUserData());
+            collider.__setFixture(fixture);
+        }
+    }
+
+    /* Writes the body type and the geometry of every collider. Returns false if the body can't be pooled. */
+    private boolean writeSignature(FloatArray signature) {
+        signature.clear();
+        signature.add(bodyType.ordinal());
+
+        Collider[] items = colliders.items;
+        for (int i = 0, n = colliders.size; i < n; i++) {
+            if (!items[i].__writeSignature(signature))
+                return false;
+        }
+
+        return true;
+    }
+
+    /* Resets a pooled body and binds its fixtures to our colliders. The fixtures are in the same order as the colliders that created them. */
+    private void adoptPooledBody(Body pooled, float x, float y, float angle) {
+        // Everything is reset while the body is still inactive, so nothing touches the broad-phase until it is activated
+        body = pooled;
+        body.setTransform(x, y, angle);
+        body.setLinearVelocity(0, 0);
+        body.setAngularVelocity(0);
+        body.setLinearDamping(0);
+        body.setAngularDamping(0);
+        body.setGravityScale(1);
+        body.setBullet(false);
+        body.setFixedRotation(false);
+        body.setSleepingAllowed(true);
+        body.setUserData(gameObject);
+
+        Array<Fixture> fixtures = body.getFixtureList();
+        for (int i = 0, n = colliders.size; i < n; i++) {
+            Collider collider = colliders.get(i);
+            Fixture fixture = fixtures.get(i);
+
+            PhysicsMaterial2d material = getMaterial(collider);
+            fixture.setFriction(material.friction);
+            fixture.setRestitution(material.bounciness);
+            fixture.setDensity(material.density);
+            fixture.setSensor(collider.isSensor());
+
+            Filter filter = fixture.getFilterData();
+            filter.categoryBits = collider.getCategoryBits();
+            filter.groupIndex = collider.getGroupIndex();
+            filter.maskBits = collider.getMaskBits();
+            fixture.setFilterData(filter);
+
+            fixture.setUserData(collider.getUserData());
+            collider.__setFixture(fixture);
+        }
+
+        body.resetMassData();
+        body.setActive(true);
+        body.setAwake(true);
+    }
+
     /**
      * Interpolates the physic body to avoid temporal aliasing.
+     * The host game object is placed between the previous and current physics states captured by the {@link PhysicsManager2d}, so no
+     * Box2D calls are made here.
      * This method is called internally by the system and should never be called directly.
      * @param alpha the ratio of the time spent by the renderer to a fixed time steps
      */
     public void __interpolate(float alpha) {
-        if (!interpolate)
-            return;
-
-        // We bail out if the body is either null or inactive
-        if (body == null || !body.isActive())
+        if (!interpolate || bodyIndex == -1 || !isEnabled())
             return;
 
-        // Get the transform data from the physics body
-        com.badlogic.gdx.physics.box2d.Transform transform =
-                body.getTransform();
-        Vector2 bodyPosition = transform.getPosition();
+        BodyStateBuffer states = physicsManager2d.bodyStates;
+        int i = bodyIndex;
+
+        float prevX = states.prevX[i];
+        float prevY = states.prevY[i];
+        float currX = states.x[i];
+        float currY = states.y[i];
+
+        // Rotate the short way round; captured angles may wrap at +/-PI
+        float currAngle = states.angle[i];
+        float deltaAngle = currAngle - states.prevAngle[i];
+        if (deltaAngle > MathUtils.PI)
+            deltaAngle -= MathUtils.PI2;
+        else if (deltaAngle < -MathUtils.PI)
+            deltaAngle += MathUtils.PI2;
+
+        if (physicsManager2d.extrapolate)
+            __applyBodyState(currX + (currX - prevX) * alpha, currY + (currY - prevY) * alpha,
+                    currAngle + deltaAngle * alpha);
+        else
+            __applyBodyState(prevX + (currX - prevX) * alpha, prevY + (currY - prevY) * alpha,
+                    currAngle - deltaAngle * (1f - alpha));
+    }
 
-        // Offset the current body position by half the dimension of the game object
+    /**
+     * Moves the host game object to the given physics body state.
+     * This method is called internally by the system and should never be called directly.
+     * @param x the x-coordinate of the body's center
+     * @param y the y-coordinate of the body's center
+     * @param angle the angle of the body in radians
+     */
+    public void __applyBodyState(float x, float y, float angle) {
+        // Offset the body position by half the dimension of the game object
         // This effectively move the position from the center of the physics body to its lower left
-        bodyPosition.sub(gameObject.transform.size.x * .5f,
-                gameObject.transform.size.y * .5f);
-
-        // Get the position of the game object
         Vector3 position = gameObject.transform.position;
-
-        // Get the rotation
-        float angle = gameObject.transform.getRotation();
+        position.x = x - gameObject.transform.size.x * .5f;
+        position.y = y - gameObject.transform.size.y * .5f;
 
         // Convert the physics body angle from radians to degrees
-        float bodyAngle = transform.getRotation() * MathUtils.radiansToDegrees;
+        gameObject.transform.setRotation(angle * MathUtils.radiansToDegrees);
+    }
+
+    /**
+     * Returns the union of the contact event masks of the Physics2d components of the host game object, rebuilding the cached list of
+     * contact listeners first if it is out of date.
+     * This method is called internally by the system and should never be called directly.
+     * @return the contact events wanted by at least one component of the host game object
+     */
+    public int __getContactMask() {
+        // The physics thread of a pipelined step reads the last list; the main thread rebuilds it at the step boundary
+        if (contactListenersDirty && !physicsManager2d.stepInFlight)
+            rebuildContactListeners();
+
+        return contactMask;
+    }
+
+    /* Caches the components that want contact events so contacts don't have to scan every component of the host game object */
+    private void rebuildContactListeners() {
+        contactListeners.clear();
+        contactMask = 0;
+
+        if (gameObject != null) {
+            Array<Physics2d> components = getComponents(Physics2d.class);
+            for (Physics2d component : components) {
+                int mask = component.eventMask & CONTACT_EVENTS;
+                if (mask != 0) {
+                    contactListeners.add(component);
+                    contactMask |= mask;
+                }
+            }
+        }
+
+        contactListenersDirty = false;
+    }
+
+    /* Whether the collider that generated a fixture of this body captures contact data */
+    boolean capturesContactData(Fixture fixture) {
+        Collider collider = findCollider(fixture);
+        return collider != null && collider.isCaptureContactData();
+    }
+
+    /* Binds the collider that generated a fixture to the fixture that replaced it */
+    void rebindFixture(Fixture fixture, Fixture replacement) {
+        Collider collider = findCollider(fixture);
+        if (collider != null)
+            collider.__setFixture(replacement);
+    }
+
+    /* Returns the collider that generated a fixture of this body or null if none did */
+    Collider findCollider(Fixture fixture) {
+        Collider[] items = colliders.items;
+        for (int i = 0, n = colliders.size; i < n; i++) {
+            if (items[i].getFixture() == fixture)
+                return items[i];
+        }
+
+        return null;
+    }
+
+    /* Registers this body with the manager and becomes the owner of the other Physics2d components of the host game object.
+     * Those components register themselves; the ones attached before this body couldn't find the manager, so they are registered here. */
+    private void registerWithManager() {
+        physicsManager2d.__registerRigidBody(this);
+        physicsManager2d.__registerPhysics2d(this);
+        owner = this;
+
+        Array<Physics2d> listeners = getComponents(Physics2d.class);
+        for (Physics2d listener : listeners) {
+            physicsManager2d.__registerPhysics2d(listener);
+            listener.owner = this;
+        }
+
+        contactListenersDirty = true;
+    }
+
+    /* Removes this body from the manager. The other Physics2d components of the host game object stay registered. */
+    private void unregisterFromManager() {
+        Array<Physics2d> listeners = getComponents(Physics2d.class);
+        for (Physics2d listener : listeners) {
+            if (listener.owner == this)
+                listener.owner = null;
+        }
 
-        // Interpolate the position
-        position.x = bodyPosition.x * alpha + position.x * (1.0f - alpha);
-        position.y = bodyPosition.y * alpha + position.y * (1.0f - alpha);
+        physicsManager2d.__unregisterPhysics2d(this);
+        physicsManager2d.__unregisterRigidBody(this);
+        owner = null;
 
-        // Interpolate the rotation
-        gameObject.transform.setRotation(bodyAngle * alpha + angle * (1.0f - alpha));
+        contactListeners.clear();
+        contactListenersDirty = true;
     }
 
     private void __disposeBody() {
         if (body == null)
             return;
 
+        for (Collider collider : colliders)
+            releaseShape(collider);
+
+        // Keep the body for reuse if it still has exactly one fixture per collider and no joints, which the next owner would inherit.
+        // Bodies can't be deactivated during a step, so those are destroyed as usual.
+        BodyPool bodyPool = physicsManager2d.bodyPool;
+        FloatArray signature = physicsManager2d.bodySignature;
+        World physicsWorld = body.getWorld();
+        if (bodyPool.isEnabled() && physicsWorld == physicsManager2d.getPhysicsWorld() && !physicsWorld.isLocked()
+                && body.getFixtureList().size == colliders.size && body.getJointList().size == 0 && writeSignature(signature)) {
+            body.setActive(false);
+            body.setUserData(null);
+            if (bodyPool.free(signature, body)) {
+                for (Collider collider : colliders)
+                    collider.__setFixture(null);
+
+                body = null;
+                colliders.clear();
+                return;
+            }
+        }
+
         physicsManager2d.destroyPhysicsBody(body);
         body = null;
         colliders.clear();
@@ -199,7 +645,17 @@ public class RigidBody2d extends Physics2d {
         if (hasComponent(RigidBody2d.class))
             throw new UnsupportedOperationException("A GameObject can have only one instance of RigidBody2d attached!");
 
+        // The world belongs to the physics thread until the step boundary
+        if (physicsManager2d.stepInFlight)
+            physicsManager2d.commands.add(BodyCommandQueue.ATTACH, this, null);
+        else
+            attachNow();
+    }
+
+    /* Creates or adopts the physics body and registers with the manager */
+    void attachNow() {
         body = null;
+        boundingRadius = -1;
         colliders.clear();
 
         // Grab available colliders
@@ -210,48 +666,98 @@ public class RigidBody2d extends Physics2d {
             }
         }
 
-        // Creates the physics body
-        createBody(physicsManager2d.getPhysicsWorld());
+        // Creates the physics body, unless the manager already created it in bulk
+        if (preparedBody != null)
+            adoptPreparedBody();
+        else
+            createBody();
+
+        // The manager only updates components it knows about
+        registerWithManager();
     }
 
     @Override
     public void detach() {
+        if (physicsManager2d.stepInFlight)
+            physicsManager2d.commands.add(BodyCommandQueue.DETACH, this, null);
+        else
+            detachNow();
+    }
+
+    /* Unregisters from the manager and disposes the physics body */
+    void detachNow() {
+        unregisterFromManager();
+
         // Destroy the physics body associated with this RigidBody
         this.__disposeBody();
     }
 
     @Override
     public void componentAdded(Component component) {
+        // Physics2d components register themselves; this body dispatches their contact events
+        if (component instanceof Physics2d && bodyIndex != -1) {
+            Physics2d physics2d = (Physics2d)component;
+            physics2d.owner = this;
+            contactListenersDirty = true;
+            return;
+        }
+
         // If the component added is a Collider then we have to add it to our list of colliders
 
         if (component instanceof Collider) {
-            Collider collider = (Collider)component;
-            if (!colliders.contains(collider,true)) {
-                colliders.add(collider);
+            if (physicsManager2d.stepInFlight)
+                physicsManager2d.commands.add(BodyCommandQueue.ADD_COLLIDER, this, component);
+            else
+                addCollider((Collider)component);
+        }
+    }
 
-                // If we have a non-null physics body already then we have to attach this collider immediately
-                if (body != null) {
-                    createAndAttachCollider(collider);
-                }
+    /* Adds a collider and creates its fixture if the body exists */
+    void addCollider(Collider collider) {
+        if (!colliders.contains(collider,true)) {
+            colliders.add(collider);
+            boundingRadius = -1;
+
+            // If we have a non-null physics body already then we have to attach this collider immediately
+            if (body != null) {
+                createAndAttachCollider(collider);
             }
         }
     }
 
     @Override
     public void componentRemoved(Component component) {
+        if (component instanceof Physics2d) {
+            Physics2d physics2d = (Physics2d)component;
+            if (physics2d.owner == this)
+                physics2d.owner = null;
+            contactListenersDirty = true;
+            return;
+        }
+
         // If the component removed is a Collider then we have to remove it from our list of colliders.
-        // We also need to detach it from the body
+        // We also need to detach it from the body. This can happen during a step, so the fixture is destroyed at the end of the frame.
 
         if (component instanceof Collider) {
-            Collider collider = (Collider)component;
-            if (!colliders.contains(collider,true))
-                return;
+            if (physicsManager2d.stepInFlight)
+                physicsManager2d.commands.add(BodyCommandQueue.REMOVE_COLLIDER, this, component);
+            else
+                removeCollider((Collider)component);
+        }
+    }
 
-            colliders.removeValue(collider, true);
+    /* Removes a collider and queues its fixture for destruction */
+    void removeCollider(Collider collider) {
+        if (!colliders.contains(collider,true))
+            return;
 
-            if (body != null) {
-                body.destroyFixture(collider.getFixture());
-            }
+        colliders.removeValue(collider, true);
+        boundingRadius = -1;
+
+        if (body != null) {
+            physicsManager2d.destroyFixture(collider.getFixture());
+            collider.__setFixture(null);
+            releaseShape(collider);
         }
     }
 
@@ -260,23 +766,33 @@ public class RigidBody2d extends Physics2d {
         // Attempt to create a body if none exists.
         // This should never happen but just in case
         if (body == null)
-            createBody(physicsManager2d.getPhysicsWorld());
+            createBody();
 
+        // The manager syncs all bodies in one pass after each step
+        if (!physicsManager2d.batchTransformSync)
+            __syncTransform();
+    }
+
+    /**
+     * Reads the physics body's transform and moves the host game object to it.
+     * This is the per-body alternative to {@link PhysicsManager2d#setBatchTransformSync(boolean)}.
+     * This method is called internally by the system and should never be called directly.
+     */
+    public void __syncTransform() {
         // Apply updates only when we have a valid body
         if (body != null) {
             Transform transform = body.getTransform();
             Vector2 pos = transform.getPosition();
             float rotation = transform.getRotation();
 
-            // Offset the position from the origin (center)
-            pos.sub(gameObject.transform.size.x * 0.5f, gameObject.transform.size.y * 0.5f);
+            transformDirty = false;
 
-            // Convert the angle to degrees
-            rotation *= MathUtils.radiansToDegrees;
+            // Record the new state for interpolation
+            if (bodyIndex != -1)
+                physicsManager2d.__captureBodyState(bodyIndex, pos.x, pos.y, rotation);
 
             // Update the transform
-            gameObject.transform.position.set(pos, 0);
-            gameObject.transform.setRotation(rotation);
+            __applyBodyState(pos.x, pos.y, rotation);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,214 @@
+package io.github.isoteriktech.xgdx.physics2d;
+
+import com.badlogic.gdx.physics.box2d.Shape;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IdentityMap;
+import com.badlogic.gdx.utils.ObjectMap;
+
+/**
+ * Shares one native {@link Shape} between all colliders with the same geometry. Box2D copies the shape into every fixture created from it,
+ * so a single shape can create any number of fixtures.
+ * Shapes are keyed by the geometry signature of their collider (shape type, dimensions, center, angle and vertices) and reference counted:
+ * a shape is in use while a fixture created from it exists. Shapes that are no longer in use stay cached for reuse until more than
+ * {@link #getMaxIdleShapes()} are idle; the least recently used idle shapes are then disposed.
+ *
+ * @author isoteriksoftware
+ */
+public class ShapeCache implements Disposable {
+    private final ObjectMap<GeometrySignature, Entry> entries = new ObjectMap<>();
+    private final IdentityMap<Shape, Entry> entriesByShape = new IdentityMap<>();
+
+    /* Wraps the signature being looked up so lookups don't allocate */
+    private final GeometrySignature lookup = new GeometrySignature();
+
+    /* Idle entries from least to most recently used */
+    private Entry idleHead, idleTail;
+    private int idleCount;
+
+    private boolean enabled = true;
+    private int maxIdleShapes = 256;
+    private int hits, misses;
+
+    /**
+     * Enables or disables caching. When disabled, every collider builds and disposes its own shape. Defaults to true.
+     * @param enabled whether shapes should be shared
+     */
+    public void setEnabled(boolean enabled)
+    { this.enabled = enabled; }
+
+    /**
+     *
+     * @return whether shapes are shared
+     */
+    public boolean isEnabled()
+    { return enabled; }
+
+    /**
+     * Sets the maximum number of shapes kept after their last user releases them. Idle shapes beyond this are disposed, least recently used first.
+     * Defaults to 256.
+     * @param maxIdleShapes the maximum number of idle shapes
+     * @throws IllegalArgumentException if maxIdleShapes is negative
+     */
+    public void setMaxIdleShapes(int maxIdleShapes) throws IllegalArgumentException {
+        if (maxIdleShapes < 0)
+            throw new IllegalArgumentException("maxIdleShapes cannot be negative!");
+
+        this.maxIdleShapes = maxIdleShapes;
+        trim(maxIdleShapes);
+    }
+
+    /**
+     *
+     * @return the maximum number of shapes kept after their last user releases them
+     */
+    public int getMaxIdleShapes()
+    { return maxIdleShapes; }
+
+    /**
+     *
+     * @return the number of cached shapes, in use or idle
+     */
+    public int size()
+    { return entries.size; }
+
+    /**
+     *
+     * @return the number of cached shapes that are not in use
+     */
+    public int getIdleCount()
+    { return idleCount; }
+
+    /**
+     *
+     * @return the number of times a cached shape was reused
+     */
+    public int getHits()
+    { return hits; }
+
+    /**
+     *
+     * @return the number of times a shape had to be built
+     */
+    public int getMisses()
+    { return misses; }
+
+    /**
+     * Resets the hit and miss counters.
+     */
+    public void resetCounters()
+    { hits = misses = 0; }
+
+    /**
+     * Returns the cached shape for a geometry and adds a reference to it.
+     * @param signature the geometry signature
+     * @return the cached shape or null if there is none
+     */
+    public Shape obtain(FloatArray signature) {
+        Entry entry = entries.get(lookup.wrap(signature));
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+
+        hits++;
+        if (entry.references++ == 0)
+            unlinkIdle(entry);
+
+        return entry.shape;
+    }
+
+    /**
+     * Caches a newly built shape for a geometry with one reference. The cache owns the shape from now on.
+     * @param signature the geometry signature
+     * @param shape the shape
+     */
+    public void put(FloatArray signature, Shape shape) {
+        Entry entry = new Entry();
+        entry.signature = new GeometrySignature().copy(signature);
+        entry.shape = shape;
+        entry.references = 1;
+
+        entries.put(entry.signature, entry);
+        entriesByShape.put(shape, entry);
+    }
+
+    /**
+     * Removes a reference from a cached shape. A shape without references becomes idle.
+     * @param shape the shape
+     */
+    public void release(Shape shape) {
+        Entry entry = entriesByShape.get(shape);
+        if (entry == null || entry.references == 0)
+            return;
+
+        if (--entry.references == 0) {
+            linkIdle(entry);
+            trim(maxIdleShapes);
+        }
+    }
+
+    /**
+     * Disposes every idle shape. Shapes in use stay cached.
+     */
+    public void clear()
+    { trim(0); }
+
+    /**
+     * Disposes every cached shape, including the ones in use.
+     */
+    @Override
+    public void dispose() {
+        for (Entry entry : entries.values())
+            entry.shape.dispose();
+
+        entries.clear();
+        entriesByShape.clear();
+        idleHead = idleTail = null;
+        idleCount = 0;
+    }
+
+    /* Disposes the least recently used idle shapes until no more than the given number are idle */
+    private void trim(int maxIdleShapes) {
+        while (idleCount > maxIdleShapes) {
+            Entry entry = idleHead;
+            unlinkIdle(entry);
+            entries.remove(entry.signature);
+            entriesByShape.remove(entry.shape);
+            entry.shape.dispose();
+        }
+    }
+
+    private void linkIdle(Entry entry) {
+        entry.previous = idleTail;
+        entry.next = null;
+        if (idleTail != null)
+            idleTail.next = entry;
+        else
+            idleHead = entry;
+        idleTail = entry;
+        idleCount++;
+    }
+
+    private void unlinkIdle(Entry entry) {
+        if (entry.previous != null)
+            entry.previous.next = entry.next;
+        else
+            idleHead = entry.next;
+
+        if (entry.next != null)
+            entry.next.previous = entry.previous;
+        else
+            idleTail = entry.previous;
+
+        entry.previous = entry.next = null;
+        idleCount--;
+    }
+
+    private static class Entry {
+        GeometrySignature signature;
+        Shape shape;
+        int references;
+        Entry previous, next;
+    }
+}
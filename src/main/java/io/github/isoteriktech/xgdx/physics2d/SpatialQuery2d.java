@@ -0,0 +1,375 @@
+package io.github.isoteriktech.xgdx.physics2d;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.*;
+
+/**
+ * Runs the spatial queries of {@link PhysicsManager2d}. The Box2D callbacks and every scratch value are created once and reused, so queries
+ * don't allocate once the caller's result buffers are filled with hits.
+ * Box2D only finds fixtures whose bounding boxes overlap the query; overlap queries then test the actual shapes.
+ * When the world is partitioned, every region is queried and ghosts are skipped, so every body is found once.
+ *
+ * @author isoteriksoftware
+ */
+final class SpatialQuery2d implements QueryCallback, RayCastCallback {
+    private static final int OVERLAP_BOX = 0, OVERLAP_CIRCLE = 1, POINT = 2, RAYCAST = 3, RAYCAST_ALL = 4;
+
+    private final PhysicsManager2d physicsManager2d;
+
+    /* The query in progress */
+    private int query;
+    private short maskBits;
+    private boolean hitSensors;
+    private float minX, minY, maxX, maxY;
+    private float centerX, centerY, radius;
+    private QueryHit2d[] results;
+    private QueryHit2d closest;
+    private int count;
+
+    /* The world vertices of the convex shape being tested: a polygon or one segment of an edge or chain */
+    private final float[] vertices = new float[2 * 8];
+    private final Vector2 vertex = new Vector2();
+
+    SpatialQuery2d(PhysicsManager2d physicsManager2d) {
+        this.physicsManager2d = physicsManager2d;
+    }
+
+    int overlapBox(float x, float y, float width, float height, short maskBits, boolean hitSensors, QueryHit2d[] results) {
+        begin(OVERLAP_BOX, maskBits, hitSensors, results);
+        minX = x;
+        minY = y;
+        maxX = x + width;
+        maxY = y + height;
+        queryAABB(minX, minY, maxX, maxY);
+        return end();
+    }
+
+    int overlapCircle(float x, float y, float radius, short maskBits, boolean hitSensors, QueryHit2d[] results) {
+        begin(OVERLAP_CIRCLE, maskBits, hitSensors, results);
+        centerX = x;
+        centerY = y;
+        this.radius = radius;
+        queryAABB(x - radius, y - radius, x + radius, y + radius);
+        return end();
+    }
+
+    int pointQuery(float x, float y, short maskBits, boolean hitSensors, QueryHit2d[] results) {
+        begin(POINT, maskBits, hitSensors, results);
+        centerX = x;
+        centerY = y;
+        queryAABB(x - .001f, y - .001f, x + .001f, y + .001f);
+        return end();
+    }
+
+    boolean raycast(float x1, float y1, float x2, float y2, short maskBits, boolean hitSensors, QueryHit2d hit) {
+        begin(RAYCAST, maskBits, hitSensors, null);
+        closest = hit;
+        hit.reset();
+        hit.fraction = 1;
+        if (x1 != x2 || y1 != y2)
+            rayCast(x1, y1, x2, y2);
+
+        closest = null;
+        return end() > 0;
+    }
+
+    int raycastAll(float x1, float y1, float x2, float y2, short maskBits, boolean hitSensors, QueryHit2d[] results) {
+        begin(RAYCAST_ALL, maskBits, hitSensors, results);
+        if (x1 != x2 || y1 != y2)
+            rayCast(x1, y1, x2, y2);
+
+        // Box2D reports hits in no particular order
+        for (int i = 1; i < count; i++) {
+            QueryHit2d hit = results[i];
+            int j = i - 1;
+            while (j >= 0 && results[j].fraction > hit.fraction) {
+                results[j + 1] = results[j];
+                j--;
+            }
+            results[j + 1] = hit;
+        }
+        return end();
+    }
+
+    /* Queries every world until the results are full */
+    private void queryAABB(float minX, float minY, float maxX, float maxY) {
+        for (World world : physicsManager2d.worlds) {
+            world.QueryAABB(this, minX, minY, maxX, maxY);
+            if (count == results.length)
+                break;
+        }
+    }
+
+    private void rayCast(float x1, float y1, float x2, float y2) {
+        for (World world : physicsManager2d.worlds)
+            world.rayCast(this, x1, y1, x2, y2);
+    }
+
+    private void begin(int query, short maskBits, boolean hitSensors, QueryHit2d[] results) {
+        this.query = query;
+        this.maskBits = maskBits;
+        this.hitSensors = hitSensors;
+        this.results = results;
+        count = 0;
+    }
+
+    private int end() {
+        results = null;
+        return count;
+    }
+
+    @Override
+    public boolean reportFixture(Fixture fixture) {
+        if (!accepts(fixture))
+            return true;
+
+        // Chains have one proxy per edge, so the same fixture can be reported more than once
+        for (int i = 0; i < count; i++) {
+            if (results[i].fixture == fixture)
+                return true;
+        }
+
+        boolean hit;
+        switch (query) {
+            case OVERLAP_BOX:
+                hit = overlapsBox(fixture);
+                break;
+            case OVERLAP_CIRCLE:
+                hit = overlapsCircle(fixture);
+                break;
+            default:
+                hit = fixture.testPoint(centerX, centerY);
+                break;
+        }
+
+        if (hit) {
+            QueryHit2d result = obtain(count++);
+            result.reset();
+            set(result, fixture);
+        }
+
+        // Stop once the buffer is full
+        return count < results.length;
+    }
+
+    @Override
+    public float reportRayFixture(Fixture fixture, Vector2 point, Vector2 normal, float fraction) {
+        if (!accepts(fixture))
+            return -1;
+
+        if (query == RAYCAST) {
+            // A closer hit may have been found in another world already
+            if (count > 0 && fraction >= closest.fraction)
+                return closest.fraction;
+
+            set(closest, fixture);
+            closest.point.set(point);
+            closest.normal.set(normal);
+            closest.fraction = fraction;
+            count = 1;
+
+            // Clip the ray so only closer fixtures are reported from now on
+            return fraction;
+        }
+
+        QueryHit2d result;
+        if (count < results.length)
+            result = obtain(count++);
+        else {
+            // Keep the closest hits when there are more than the buffer holds
+            result = results[0];
+            for (int i = 1; i < count; i++) {
+                if (results[i].fraction > result.fraction)
+                    result = results[i];
+            }
+            if (fraction >= result.fraction)
+                return 1;
+        }
+
+        set(result, fixture);
+        result.point.set(point);
+        result.normal.set(normal);
+        result.fraction = fraction;
+        return 1;
+    }
+
+    private boolean accepts(Fixture fixture) {
+        if (fixture.isSensor() && !hitSensors)
+            return false;
+
+        if (physicsManager2d.isGhost(fixture.getBody()))
+            return false;
+
+        return (fixture.getFilterData().categoryBits & maskBits) != 0;
+    }
+
+    /* Returns the result at an index, creating it the first time the buffer is used */
+    private QueryHit2d obtain(int index) {
+        QueryHit2d result = results[index];
+        if (result == null)
+            results[index] = result = new QueryHit2d();
+
+        return result;
+    }
+
+    private void set(QueryHit2d result, Fixture fixture) {
+        Body body = fixture.getBody();
+        RigidBody2d owner = physicsManager2d.bodyOwners.get(body);
+        result.fixture = fixture;
+        result.collider = owner != null ? owner.findCollider(fixture) : null;
+        result.gameObject = PhysicsManager2d.toGameObject(body);
+    }
+
+    private boolean overlapsBox(Fixture fixture) {
+        Shape shape = fixture.getShape();
+        Transform transform = fixture.getBody().getTransform();
+        switch (shape.getType()) {
+            case Circle: {
+                CircleShape circle = (CircleShape)shape;
+                transform.mul(vertex.set(circle.getPosition()));
+                float dx = vertex.x - Math.max(minX, Math.min(vertex.x, maxX));
+                float dy = vertex.y - Math.max(minY, Math.min(vertex.y, maxY));
+                return dx * dx + dy * dy <= circle.getRadius() * circle.getRadius();
+            }
+            case Polygon:
+                return convexOverlapsBox(loadPolygon((PolygonShape)shape, transform));
+            case Edge:
+                return convexOverlapsBox(loadEdge((EdgeShape)shape, transform));
+            case Chain: {
+                ChainShape chain = (ChainShape)shape;
+                for (int i = 0, n = chain.getVertexCount() - 1; i < n; i++) {
+                    if (convexOverlapsBox(loadChainSegment(chain, i, transform)))
+                        return true;
+                }
+                return false;
+            }
+            default:
+                return false;
+        }
+    }
+
+    private boolean overlapsCircle(Fixture fixture) {
+        Shape shape = fixture.getShape();
+        Transform transform = fixture.getBody().getTransform();
+        switch (shape.getType()) {
+            case Circle: {
+                CircleShape circle = (CircleShape)shape;
+                transform.mul(vertex.set(circle.getPosition()));
+                float dx = vertex.x - centerX, dy = vertex.y - centerY;
+                float r = radius + circle.getRadius();
+                return dx * dx + dy * dy <= r * r;
+            }
+            case Polygon:
+                return convexOverlapsCircle(loadPolygon((PolygonShape)shape, transform));
+            case Edge:
+                return convexOverlapsCircle(loadEdge((EdgeShape)shape, transform));
+            case Chain: {
+                ChainShape chain = (ChainShape)shape;
+                for (int i = 0, n = chain.getVertexCount() - 1; i < n; i++) {
+                    if (convexOverlapsCircle(loadChainSegment(chain, i, transform)))
+                        return true;
+                }
+                return false;
+            }
+            default:
+                return false;
+        }
+    }
+
+    private int loadPolygon(PolygonShape polygon, Transform transform) {
+        int n = Math.min(polygon.getVertexCount(), vertices.length / 2);
+        for (int i = 0; i < n; i++) {
+            polygon.getVertex(i, vertex);
+            transform.mul(vertex);
+            vertices[2 * i] = vertex.x;
+            vertices[2 * i + 1] = vertex.y;
+        }
+        return n;
+    }
+
+    private int loadEdge(EdgeShape edge, Transform transform) {
+        edge.getVertex1(vertex);
+        transform.mul(vertex);
+        vertices[0] = vertex.x;
+        vertices[1] = vertex.y;
+
+        edge.getVertex2(vertex);
+        transform.mul(vertex);
+        vertices[2] = vertex.x;
+        vertices[3] = vertex.y;
+        return 2;
+    }
+
+    private int loadChainSegment(ChainShape chain, int index, Transform transform) {
+        chain.getVertex(index, vertex);
+        transform.mul(vertex);
+        vertices[0] = vertex.x;
+        vertices[1] = vertex.y;
+
+        chain.getVertex(index + 1, vertex);
+        transform.mul(vertex);
+        vertices[2] = vertex.x;
+        vertices[3] = vertex.y;
+        return 2;
+    }
+
+    /* Separating axis test between the query box and the loaded vertices (a counterclockwise polygon or a segment) */
+    private boolean convexOverlapsBox(int n) {
+        float polygonMinX = Float.MAX_VALUE, polygonMinY = Float.MAX_VALUE;
+        float polygonMaxX = -Float.MAX_VALUE, polygonMaxY = -Float.MAX_VALUE;
+        for (int i = 0; i < n; i++) {
+            polygonMinX = Math.min(polygonMinX, vertices[2 * i]);
+            polygonMaxX = Math.max(polygonMaxX, vertices[2 * i]);
+            polygonMinY = Math.min(polygonMinY, vertices[2 * i + 1]);
+            polygonMaxY = Math.max(polygonMaxY, vertices[2 * i + 1]);
+        }
+        if (polygonMaxX < minX || polygonMinX > maxX || polygonMaxY < minY || polygonMinY > maxY)
+            return false;
+
+        // A segment has one edge
+        int edges = n == 2 ? 1 : n;
+        for (int i = 0; i < edges; i++) {
+            int j = (i + 1) % n;
+            float normalX = vertices[2 * j + 1] - vertices[2 * i + 1];
+            float normalY = vertices[2 * i] - vertices[2 * j];
+
+            float edgeProjection = normalX * vertices[2 * i] + normalY * vertices[2 * i + 1];
+            float boxMin = Float.MAX_VALUE, boxMax = -Float.MAX_VALUE;
+            for (int corner = 0; corner < 4; corner++) {
+                float projection = normalX * (corner < 2 ? minX : maxX) + normalY * ((corner & 1) == 0 ? minY : maxY);
+                boxMin = Math.min(boxMin, projection);
+                boxMax = Math.max(boxMax, projection);
+            }
+
+            // A segment separates on either side; a polygon's other vertices are all behind its edges
+            if (boxMin > edgeProjection || (n == 2 && boxMax < edgeProjection))
+                return false;
+        }
+
+        return true;
+    }
+
+    /* Whether the query circle overlaps the loaded vertices (a counterclockwise polygon or a segment) */
+    private boolean convexOverlapsCircle(int n) {
+        boolean inside = n > 2;
+        float radiusSquared = radius * radius;
+        int edges = n == 2 ? 1 : n;
+        for (int i = 0; i < edges; i++) {
+            int j = (i + 1) % n;
+            float ax = vertices[2 * i], ay = vertices[2 * i + 1];
+            float ex = vertices[2 * j] - ax, ey = vertices[2 * j + 1] - ay;
+            float px = centerX - ax, py = centerY - ay;
+
+            if (ex * py - ey * px < 0)
+                inside = false;
+
+            float lengthSquared = ex * ex + ey * ey;
+            float t = lengthSquared > 0 ? Math.max(0, Math.min(1, (px * ex + py * ey) / lengthSquared)) : 0;
+            float dx = px - t * ex, dy = py - t * ey;
+            if (dx * dx + dy * dy <= radiusSquared)
+                return true;
+        }
+
+        return inside;
+    }
+}
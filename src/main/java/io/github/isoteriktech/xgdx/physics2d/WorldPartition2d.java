@@ -0,0 +1,331 @@
+package io.github.isoteriktech.xgdx.physics2d;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.*;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IdentityMap;
+
+/**
+ * Splits the play area of a {@link PhysicsManager2d} into a grid of regions, each simulated by its own Box2D {@link World}, so the regions
+ * can be stepped in parallel. See {@link PhysicsManager2d#setPartition(float, float, float, float, int, int, float)}.
+ * <p>
+ * Before every step, bodies whose center left their region move to the region they are in now, and every body near or across a border gets a
+ * ghost in each neighbouring region it reaches: a copy of its fixtures that follows it and pushes the bodies of that region. Ghosts are
+ * kinematic, so bodies pushed by a ghost don't push back; they push the real body through their own ghosts instead. Results near borders are
+ * therefore approximate.
+ *
+ * @author isoteriksoftware
+ */
+final class WorldPartition2d {
+    private final PhysicsManager2d physicsManager2d;
+
+    final Region[] regions;
+    private final float x, y, regionWidth, regionHeight;
+    private final int columns, rows;
+    private final float ghostMargin;
+
+    /* The ghosts of every rigid body that has any, indexed by region */
+    private final IdentityMap<RigidBody2d, Body[]> ghosts = new IdentityMap<>();
+
+    /* Every ghost body, mapped to the rigid body it follows */
+    private final IdentityMap<Body, RigidBody2d> ghostOwners = new IdentityMap<>();
+
+    /* Scratch for copying bodies */
+    private final BodyDef bodyDef = new BodyDef();
+    private final FixtureDef fixtureDef = new FixtureDef();
+    private final Vector2 vertex = new Vector2();
+
+    WorldPartition2d(PhysicsManager2d physicsManager2d, float x, float y, float regionWidth, float regionHeight, int columns, int rows,
+                     float ghostMargin) {
+        this.physicsManager2d = physicsManager2d;
+        this.x = x;
+        this.y = y;
+        this.regionWidth = regionWidth;
+        this.regionHeight = regionHeight;
+        this.columns = columns;
+        this.rows = rows;
+        this.ghostMargin = ghostMargin;
+
+        // The manager's own world becomes the first region
+        World world = physicsManager2d.getPhysicsWorld();
+        regions = new Region[columns * rows];
+        for (int i = 0; i < regions.length; i++) {
+            World regionWorld = i == 0 ? world : new World(world.getGravity(), true);
+            regions[i] = new Region(regionWorld, x + (i % columns) * regionWidth, y + (i / columns) * regionHeight);
+            regionWorld.setContactListener(regions[i]);
+        }
+    }
+
+    /* Returns the index of the region a point is in. Points outside the play area belong to the nearest region. */
+    int regionIndexAt(float px, float py) {
+        int column = Math.max(0, Math.min(columns - 1, (int)Math.floor((px - x) / regionWidth)));
+        int row = Math.max(0, Math.min(rows - 1, (int)Math.floor((py - y) / regionHeight)));
+        return row * columns + column;
+    }
+
+    World worldAt(float px, float py)
+    { return regions[regionIndexAt(px, py)].world; }
+
+    /* Returns the world of every region, in region order */
+    World[] getWorlds() {
+        World[] worlds = new World[regions.length];
+        for (int i = 0; i < regions.length; i++)
+            worlds[i] = regions[i].world;
+        return worlds;
+    }
+
+    /* Returns the index of the region simulating a world */
+    private int regionIndexOf(World world) {
+        for (int i = 0; i < regions.length; i++) {
+            if (regions[i].world == world)
+                return i;
+        }
+        return -1;
+    }
+
+    boolean isGhost(Body body)
+    { return ghostOwners.containsKey(body); }
+
+    /* Moves the bodies that crossed a border and updates every ghost. Must run while no world is locked. */
+    void update(Array<RigidBody2d> rigidBodies) {
+        RigidBody2d[] items = rigidBodies.items;
+        for (int i = 0, n = rigidBodies.size; i < n; i++) {
+            RigidBody2d rigidBody2d = items[i];
+            Body body = rigidBody2d.body;
+            if (body == null)
+                continue;
+
+            Vector2 position = body.getPosition();
+            float px = position.x, py = position.y;
+            int home = regionIndexOf(body.getWorld());
+
+            // A little slack keeps bodies on a border from moving back and forth every step. Jointed bodies can't leave their world,
+            // and bodies with fixtures queued for destruction wait until those are gone.
+            if (body.getType() != BodyDef.BodyType.StaticBody && !regions[home].contains(px, py, ghostMargin * .25f)
+                    && body.getJointList().size == 0 && !hasQueuedFixtures(body)) {
+                home = regionIndexAt(px, py);
+                migrate(rigidBody2d, regions[home].world);
+                body = rigidBody2d.body;
+            }
+
+            updateGhosts(rigidBody2d, body, home, px, py);
+        }
+    }
+
+    private void updateGhosts(RigidBody2d rigidBody2d, Body body, int home, float px, float py) {
+        // The colliders changed, so the ghosts are out of date too
+        if (rigidBody2d.boundingRadius < 0) {
+            rigidBody2d.boundingRadius = boundingRadius(body);
+            removeGhosts(rigidBody2d);
+        }
+
+        float reach = rigidBody2d.boundingRadius + ghostMargin;
+        Body[] bodyGhosts = ghosts.get(rigidBody2d);
+        boolean moving = body.getType() != BodyDef.BodyType.StaticBody;
+
+        for (int r = 0; r < regions.length; r++) {
+            boolean needed = r != home && regions[r].contains(px, py, reach);
+            Body ghost = bodyGhosts != null ? bodyGhosts[r] : null;
+
+            if (!needed) {
+                if (ghost != null) {
+                    destroyGhost(ghost);
+                    bodyGhosts[r] = null;
+                }
+                continue;
+            }
+
+            if (ghost == null) {
+                if (bodyGhosts == null) {
+                    bodyGhosts = new Body[regions.length];
+                    ghosts.put(rigidBody2d, bodyGhosts);
+                }
+
+                ghost = copyBody(body, regions[r].world, moving ? BodyDef.BodyType.KinematicBody : BodyDef.BodyType.StaticBody);
+                bodyGhosts[r] = ghost;
+                ghostOwners.put(ghost, rigidBody2d);
+            }
+            else if (moving) {
+                ghost.setTransform(px, py, body.getAngle());
+                ghost.setLinearVelocity(body.getLinearVelocity());
+                ghost.setAngularVelocity(body.getAngularVelocity());
+            }
+        }
+    }
+
+    /* Destroys the ghosts of a rigid body. The ghosts are deactivated unless their world is locked and destroyed at the end of the frame. */
+    void removeGhosts(RigidBody2d rigidBody2d) {
+        Body[] bodyGhosts = ghosts.remove(rigidBody2d);
+        if (bodyGhosts == null)
+            return;
+
+        for (Body ghost : bodyGhosts) {
+            if (ghost != null)
+                destroyGhost(ghost);
+        }
+    }
+
+    private void destroyGhost(Body ghost) {
+        ghostOwners.remove(ghost);
+        if (!ghost.getWorld().isLocked())
+            ghost.setActive(false);
+        physicsManager2d.destroyPhysicsBody(ghost);
+    }
+
+    /* Moves a body to another world by copying it there. Its colliders are bound to the new fixtures. */
+    private void migrate(RigidBody2d rigidBody2d, World world) {
+        Body old = rigidBody2d.body;
+        Body body = copyBody(old, world, old.getType());
+
+        Array<Fixture> oldFixtures = old.getFixtureList();
+        Array<Fixture> fixtures = body.getFixtureList();
+        for (int i = 0; i < fixtures.size; i++) {
+            Fixture oldFixture = oldFixtures.get(i);
+            fixtures.get(i).setUserData(oldFixture.getUserData());
+            rigidBody2d.rebindFixture(oldFixture, fixtures.get(i));
+        }
+
+        physicsManager2d.replaceBody(rigidBody2d, body);
+
+        // The ghosts follow the old body; they are rebuilt for the new one
+        removeGhosts(rigidBody2d);
+        old.getWorld().destroyBody(old);
+    }
+
+    private boolean hasQueuedFixtures(Body body) {
+        Array<Fixture> fixtures = body.getFixtureList();
+        for (int i = 0; i < fixtures.size; i++) {
+            if (physicsManager2d.isQueuedForDestruction(fixtures.get(i)))
+                return true;
+        }
+        return false;
+    }
+
+    /* Creates a copy of a body and its fixtures in a world. Fixtures queued for destruction are left out. */
+    private Body copyBody(Body source, World world, BodyDef.BodyType type) {
+        bodyDef.type = type;
+        bodyDef.position.set(source.getPosition());
+        bodyDef.angle = source.getAngle();
+        bodyDef.linearVelocity.set(source.getLinearVelocity());
+        bodyDef.angularVelocity = source.getAngularVelocity();
+        bodyDef.linearDamping = source.getLinearDamping();
+        bodyDef.angularDamping = source.getAngularDamping();
+        bodyDef.gravityScale = source.getGravityScale();
+        bodyDef.fixedRotation = source.isFixedRotation();
+        bodyDef.bullet = source.isBullet();
+        bodyDef.allowSleep = source.isSleepingAllowed();
+        bodyDef.awake = source.isAwake();
+
+        Body body = world.createBody(bodyDef);
+        body.setUserData(source.getUserData());
+
+        Array<Fixture> fixtures = source.getFixtureList();
+        for (int i = 0; i < fixtures.size; i++) {
+            Fixture fixture = fixtures.get(i);
+            if (physicsManager2d.isQueuedForDestruction(fixture))
+                continue;
+
+            Filter filter = fixture.getFilterData();
+
+            // Box2D copies the shape, so the source fixture's shape can be used as is
+            fixtureDef.shape = fixture.getShape();
+            fixtureDef.density = fixture.getDensity();
+            fixtureDef.friction = fixture.getFriction();
+            fixtureDef.restitution = fixture.getRestitution();
+            fixtureDef.isSensor = fixture.isSensor();
+            fixtureDef.filter.categoryBits = filter.categoryBits;
+            fixtureDef.filter.maskBits = filter.maskBits;
+            fixtureDef.filter.groupIndex = filter.groupIndex;
+            body.createFixture(fixtureDef);
+        }
+        fixtureDef.shape = null;
+
+        return body;
+    }
+
+    /* The distance from the body's origin to the farthest point of its fixtures */
+    private float boundingRadius(Body body) {
+        float radius = 0;
+        Array<Fixture> fixtures = body.getFixtureList();
+        for (int i = 0; i < fixtures.size; i++) {
+            Shape shape = fixtures.get(i).getShape();
+            switch (shape.getType()) {
+                case Circle:
+                    radius = Math.max(radius, ((CircleShape)shape).getPosition().len() + shape.getRadius());
+                    break;
+                case Polygon: {
+                    PolygonShape polygon = (PolygonShape)shape;
+                    for (int v = 0, n = polygon.getVertexCount(); v < n; v++) {
+                        polygon.getVertex(v, vertex);
+                        radius = Math.max(radius, vertex.len());
+                    }
+                    break;
+                }
+                case Edge: {
+                    EdgeShape edge = (EdgeShape)shape;
+                    edge.getVertex1(vertex);
+                    radius = Math.max(radius, vertex.len());
+                    edge.getVertex2(vertex);
+                    radius = Math.max(radius, vertex.len());
+                    break;
+                }
+                case Chain: {
+                    ChainShape chain = (ChainShape)shape;
+                    for (int v = 0, n = chain.getVertexCount(); v < n; v++) {
+                        chain.getVertex(v, vertex);
+                        radius = Math.max(radius, vertex.len());
+                    }
+                    break;
+                }
+            }
+        }
+        return radius;
+    }
+
+    /* Disposes the worlds of every region but the manager's own */
+    void dispose() {
+        for (int i = 1; i < regions.length; i++)
+            regions[i].world.dispose();
+    }
+
+    /* A region world. Its contact events are always deferred while it is being stepped, since regions may be stepped on worker threads. */
+    final class Region implements ContactListener, Runnable {
+        final World world;
+        final ContactEventQueue contactEvents = new ContactEventQueue(64);
+        private final float minX, minY, maxX, maxY;
+
+        Region(World world, float minX, float minY) {
+            this.world = world;
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = minX + regionWidth;
+            this.maxY = minY + regionHeight;
+        }
+
+        /* Whether a circle overlaps this region */
+        boolean contains(float px, float py, float radius) {
+            float dx = px - Math.max(minX, Math.min(px, maxX));
+            float dy = py - Math.max(minY, Math.min(py, maxY));
+            return dx * dx + dy * dy <= radius * radius;
+        }
+
+        @Override
+        public void run()
+        { physicsManager2d.stepRegion(world); }
+
+        @Override
+        public void beginContact(Contact contact)
+        { physicsManager2d.dispatchContact(contact, Physics2d.COLLISION_ENTER, Physics2d.SENSOR_ENTER, contactEvents, world.isLocked()); }
+
+        @Override
+        public void endContact(Contact contact)
+        { physicsManager2d.dispatchContact(contact, Physics2d.COLLISION_EXIT, Physics2d.SENSOR_EXIT, contactEvents, world.isLocked()); }
+
+        @Override
+        public void preSolve(Contact contact, Manifold oldManifold) {}
+
+        @Override
+        public void postSolve(Contact contact, ContactImpulse impulse)
+        { physicsManager2d.dispatchImpulse(contact, impulse, contactEvents, world.isLocked()); }
+    }
+}
@@ -3,6 +3,7 @@ package io.github.isoteriktech.xgdx.physics2d.colliders;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.FixtureDef;
 import com.badlogic.gdx.physics.box2d.PolygonShape;
+import com.badlogic.gdx.utils.FloatArray;
 import io.github.isoteriktech.xgdx.physics2d.PhysicsMaterial2d;
 
 /**
@@ -105,11 +106,31 @@ public class BoxCollider extends Collider {
     }
 
     @Override
-    public FixtureDef __getFixtureDef() {
+    public void __resolveImplicitSize() {
         // If the size is zero, assume the size of the host game object
         if (size.isZero())
             size.set(gameObject.transform.size.x, gameObject.transform.size.y);
+    }
 
+    @Override
+    public boolean __writeSignature(FloatArray signature) {
+        float width = size.x, height = size.y;
+        if (size.isZero()) {
+            width = gameObject.transform.size.x;
+            height = gameObject.transform.size.y;
+        }
+
+        if (width == 0 && height == 0)
+            return false;
+
+        signature.add(1, width, height);
+        signature.add(center.x, center.y, angle);
+        return true;
+    }
+
+    @Override
+    public FixtureDef __getFixtureDef() {
+        __resolveImplicitSize();
         if (size.isZero())
             return null;
 
@@ -3,6 +3,7 @@ package io.github.isoteriktech.xgdx.physics2d.colliders;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.CircleShape;
 import com.badlogic.gdx.physics.box2d.FixtureDef;
+import com.badlogic.gdx.utils.FloatArray;
 import io.github.isoteriktech.xgdx.physics2d.PhysicsMaterial2d;
 
 /**
@@ -61,11 +62,22 @@ public class CircleCollider extends Collider {
     { return radius; }
 
     @Override
-    public FixtureDef __getFixtureDef() {
+    public void __resolveImplicitSize() {
         // Assumes the radius of the host game object if the radius is <= 0
         if (radius <= 0)
             radius = gameObject.transform.size.x * .5f;
+    }
 
+    @Override
+    public boolean __writeSignature(FloatArray signature) {
+        float radius = this.radius <= 0 ? gameObject.transform.size.x * .5f : this.radius;
+        signature.add(2, radius, position.x, position.y);
+        return true;
+    }
+
+    @Override
+    public FixtureDef __getFixtureDef() {
+        __resolveImplicitSize();
         shape = new CircleShape();
         shape.setRadius(radius);
         ((CircleShape)shape).setPosition(position);
@@ -3,6 +3,7 @@ package io.github.isoteriktech.xgdx.physics2d.colliders;
 import com.badlogic.gdx.physics.box2d.Fixture;
 import com.badlogic.gdx.physics.box2d.FixtureDef;
 import com.badlogic.gdx.physics.box2d.Shape;
+import com.badlogic.gdx.utils.FloatArray;
 import io.github.isoteriktech.xgdx.Component;
 import io.github.isoteriktech.xgdx.physics2d.PhysicsMaterial2d;
 
@@ -39,6 +40,16 @@ public abstract class Collider extends Component {
      */
     protected Object userData;
 
+    /**
+     * The shared shape the fixture of this collider was created from, if it came from a {@link io.github.isoteriktech.xgdx.physics2d.ShapeCache}.
+     */
+    protected Shape cachedShape;
+
+    /**
+     * Whether contacts of this collider capture their normal, points and solver impulses.
+     */
+    protected boolean captureContactData;
+
     protected short groupIndex = 0;
     protected short categoryBits = 0x0001;
     protected short maskBits = -1;
@@ -76,6 +87,24 @@ public abstract class Collider extends Component {
     public boolean isSensor()
     { return isSensor; }
 
+    /**
+     * Determines if contacts of this collider capture contact data. When enabled, the {@link io.github.isoteriktech.xgdx.physics2d.Collision2d}
+     * passed to the contact callbacks of the host game object carries the contact normal and points, and the solver impulses are reported through
+     * {@link io.github.isoteriktech.xgdx.physics2d.Physics2d#onCollisionImpulse2d(io.github.isoteriktech.xgdx.physics2d.Collision2d)}.
+     * Capturing costs a few extra native calls per contact, so it is disabled by default.
+     * This method can be called even after the fixture is generated.
+     * @param captureContactData whether contact data should be captured
+     */
+    public void setCaptureContactData(boolean captureContactData)
+    { this.captureContactData = captureContactData; }
+
+    /**
+     *
+     * @return whether contacts of this collider capture contact data
+     */
+    public boolean isCaptureContactData()
+    { return captureContactData; }
+
     /**
      * Sets the user data for the fixture generated by this collider.
      * <strong>Note:</strong> This method can be called even after the fixture is generated.
@@ -155,13 +184,33 @@ public abstract class Collider extends Component {
     { return fixture; }
 
     /**
-     * Returns the shape generated by this collider.
+     * Returns the shape generated by this collider. When the fixture was created from a shape shared through the shape cache, that shape is
+     * returned; it belongs to the cache and must not be changed or disposed.
      * @return the shape generated by this collider.
      */
     public Shape getShape() {
-        return shape;
+        return cachedShape != null ? cachedShape : shape;
+    }
+
+    /**
+     * Sets the shared shape the fixture of this collider was created from. The shape belongs to the cache, so this collider no longer keeps
+     * its own shape.
+     * This is called internally by the system and should never be called
+     * @param cachedShape the shared shape or null
+     */
+    public void __setCachedShape(Shape cachedShape) {
+        this.cachedShape = cachedShape;
+        if (cachedShape != null)
+            shape = null;
     }
 
+    /**
+     *
+     * @return the shared shape the fixture of this collider was created from, or null if the collider built its own shape
+     */
+    public Shape __getCachedShape()
+    { return cachedShape; }
+
     /**
      * Disposes the {@link Shape} used by this collider.
      * This is called internally by the system and should never be called
@@ -172,6 +221,26 @@ public abstract class Collider extends Component {
             shape.dispose();
     }
 
+    /**
+     * Replaces sizes left for the host game object to decide, like a zero box size, with the size of the game object, as
+     * {@link #__getFixtureDef()} does. Called before the signature of the collider is written, since a shared shape may be used instead of
+     * calling {@link #__getFixtureDef()}.
+     * This is called internally by the system and should never be called
+     */
+    public void __resolveImplicitSize()
+    {}
+
+    /**
+     * Appends the geometry of the fixture this collider generates to a signature. Bodies whose colliders write the same signature have identical
+     * fixtures and can be reused through {@link io.github.isoteriktech.xgdx.physics2d.BodyPool}. Colliders that cannot describe their geometry
+     * return false, and their bodies are never pooled.
+     * This is called internally by the system and should never be called
+     * @param signature the signature to append to
+     * @return whether the geometry was written
+     */
+    public boolean __writeSignature(FloatArray signature)
+    { return false; }
+
     /**
      * Creates a {@link FixtureDef} for this collider and return it.
      * null can be returned if it's not possible to create the fixture
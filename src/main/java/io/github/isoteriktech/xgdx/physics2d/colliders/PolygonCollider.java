@@ -2,6 +2,7 @@ package io.github.isoteriktech.xgdx.physics2d.colliders;
 
 import com.badlogic.gdx.physics.box2d.FixtureDef;
 import com.badlogic.gdx.physics.box2d.PolygonShape;
+import com.badlogic.gdx.utils.FloatArray;
 import io.github.isoteriktech.xgdx.physics2d.PhysicsMaterial2d;
 
 /**
@@ -31,6 +32,13 @@ public class PolygonCollider extends Collider {
         return this;
     }
 
+    @Override
+    public boolean __writeSignature(FloatArray signature) {
+        signature.add(3, vertices.length);
+        signature.addAll(vertices);
+        return true;
+    }
+
     @Override
     public FixtureDef __getFixtureDef() {
         shape = new PolygonShape();
@@ -0,0 +1,126 @@
+package io.github.isoteriktech.xgdx.physics2d.concurrent;
+
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import io.github.isoteriktech.xgdx.physics2d.PhysicsManager2d;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Phaser;
+
+/**
+ * Steps the regions of a partitioned {@link PhysicsManager2d} in parallel on an {@link Executor}. The calling thread runs the last task
+ * itself instead of waiting idle, and returns once every task is done. Contact events and callbacks still run on the calling thread.
+ * See {@link PhysicsManager2d#setPartition(float, float, float, float, int, int, float)} and {@link PhysicsManager2d#setTaskRunner(PhysicsManager2d.TaskRunner)}.
+ * <p>
+ * This class is not available on GWT.
+ *
+ * @author isoteriksoftware
+ */
+public class ExecutorTaskRunner implements PhysicsManager2d.TaskRunner {
+    private final Executor executor;
+
+    /* The wrappers of the tasks, reused across calls */
+    private Task[] wrappers = new Task[0];
+
+    /* Every call waits on the same barrier: the calling thread stays registered and every task registers for its call */
+    private final Phaser barrier = new Phaser(1);
+    private volatile Throwable failure;
+
+    /**
+     * Creates a new runner that runs tasks on the given executor.
+     * @param executor the executor
+     */
+    public ExecutorTaskRunner(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Creates a new runner that runs tasks on the common {@link ForkJoinPool}.
+     */
+    public ExecutorTaskRunner()
+    { this(ForkJoinPool.commonPool()); }
+
+    /**
+     * Runs the tasks and blocks until all of them are done.
+     * @param tasks the tasks
+     * @param count the number of tasks to run, from the start of the array
+     * @throws GdxRuntimeException if a task failed or the calling thread was interrupted
+     */
+    @Override
+    public void run(Runnable[] tasks, int count) throws GdxRuntimeException {
+        if (count == 0)
+            return;
+
+        if (wrappers.length < count) {
+            Task[] newWrappers = new Task[count];
+            System.arraycopy(wrappers, 0, newWrappers, 0, wrappers.length);
+            for (int i = wrappers.length; i < count; i++)
+                newWrappers[i] = new Task();
+            wrappers = newWrappers;
+        }
+
+        for (int i = 0; i < count; i++)
+            wrappers[i].task = tasks[i];
+
+        // The calling thread runs the last task itself instead of waiting idle
+        barrier.bulkRegister(count);
+        int submitted = 0;
+        try {
+            for (int i = 0; i < count - 1; i++) {
+                executor.execute(wrappers[i]);
+                submitted++;
+            }
+        } catch (Throwable t) {
+            // The tasks that won't run, the last one included, must not hold up this call or the next
+            for (int i = submitted; i < count; i++)
+                barrier.arriveAndDeregister();
+            barrier.awaitAdvance(barrier.arrive());
+            clearFailure(t);
+            throw t;
+        }
+        wrappers[count - 1].run();
+
+        int phase = barrier.arrive();
+        try {
+            barrier.awaitAdvanceInterruptibly(phase);
+        } catch (InterruptedException e) {
+            // The other tasks are still running; the caller must not go on until they are done
+            barrier.awaitAdvance(phase);
+            Thread.currentThread().interrupt();
+            GdxRuntimeException exception = new GdxRuntimeException("Interrupted while running tasks", e);
+            clearFailure(exception);
+            throw exception;
+        }
+
+        Throwable failure = this.failure;
+        if (failure != null) {
+            this.failure = null;
+            throw new GdxRuntimeException("A task failed", failure);
+        }
+    }
+
+    /* Forgets the failure of a task, so it isn't reported by the next call, and attaches it to the exception thrown instead */
+    private void clearFailure(Throwable exception) {
+        Throwable failure = this.failure;
+        if (failure != null) {
+            this.failure = null;
+            exception.addSuppressed(failure);
+        }
+    }
+
+    /* Runs one task and arrives at the barrier, recording its failure */
+    private class Task implements Runnable {
+        Runnable task;
+
+        @Override
+        public void run() {
+            try {
+                task.run();
+            } catch (Throwable t) {
+                failure = t;
+            } finally {
+                barrier.arriveAndDeregister();
+            }
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package io.github.isoteriktech.xgdx.physics2d.concurrent;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import io.github.isoteriktech.xgdx.physics2d.PhysicsManager2d;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Phaser;
+
+/**
+ * Steps many independent {@link PhysicsManager2d}s in parallel, such as the worlds of the matches hosted by one server.
+ * Every call to {@link #step(float)} runs the fixed steps each manager owes in rounds: the Box2D steps of one round run in parallel on the
+ * executor, one task per world, then the thread that called {@link #step(float)} dispatches the contact events and fixedUpdate2d() callbacks
+ * of every world before the next round starts. A world is only ever used by one thread at a time and every listener runs on the calling thread,
+ * which should be the thread that owns the scenes. The task that steps a world also copies the new body positions to the transforms of its
+ * game objects, so transforms are written on executor threads; nothing else should touch them while {@link #step(float)} runs.
+ * <p>
+ * Added managers get their contact events deferred (see {@link PhysicsManager2d#setDeferContactEvents(boolean)}) and are no longer stepped
+ * by their own {@link PhysicsManager2d#update(float)}, which keeps destroying the bodies queued for destruction. Any {@link Executor}
+ * works; the default is the common {@link ForkJoinPool}. On Java 21 and later, {@code Executors.newVirtualThreadPerTaskExecutor()} can be
+ * used as well. Deterministic managers (see {@link PhysicsManager2d#setDeterministic(boolean)}) are stepped by their own
+ * {@link PhysicsManager2d#advance()} and can't be added.
+ * <p>
+ * This class is not available on GWT.
+ *
+ * @author isoteriksoftware
+ */
+public class ParallelWorldStepper {
+    private final Executor executor;
+    private final Array<WorldTask> tasks = new Array<>(true, 16, WorldTask.class);
+
+    /* Every round waits on the same barrier: the calling thread stays registered and every world task registers for its round */
+    private final Phaser barrier = new Phaser(1);
+    private volatile Throwable failure;
+
+    /**
+     * Creates a new stepper that steps worlds on the given executor.
+     * @param executor the executor
+     */
+    public ParallelWorldStepper(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Creates a new stepper that steps worlds on the common {@link ForkJoinPool}.
+     */
+    public ParallelWorldStepper()
+    { this(ForkJoinPool.commonPool()); }
+
+    /**
+     * Adds a manager to be stepped by this stepper. Its contact events are deferred from now on.
+     * @param physicsManager2d the manager
+     * @throws IllegalArgumentException if the manager is deterministic
+     */
+    public void add(PhysicsManager2d physicsManager2d) throws IllegalArgumentException {
+        if (physicsManager2d.isDeterministic())
+            throw new IllegalArgumentException("Deterministic managers can't be stepped in parallel");
+
+        for (WorldTask task : tasks) {
+            if (task.physicsManager2d == physicsManager2d)
+                return;
+        }
+
+        physicsManager2d.setDeferContactEvents(true);
+        physicsManager2d.__setSteppedExternally(true);
+        tasks.add(new WorldTask(physicsManager2d));
+    }
+
+    /**
+     * Removes a manager from this stepper. Its own {@link PhysicsManager2d#update(float)} steps it again; its contact events stay deferred.
+     * @param physicsManager2d the manager
+     * @return true if the manager was stepped by this stepper
+     */
+    public boolean remove(PhysicsManager2d physicsManager2d) {
+        for (int i = 0; i < tasks.size; i++) {
+            if (tasks.get(i).physicsManager2d == physicsManager2d) {
+                tasks.removeIndex(i);
+                physicsManager2d.__setSteppedExternally(false);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     *
+     * @return the number of managers stepped by this stepper
+     */
+    public int size()
+    { return tasks.size; }
+
+    /**
+     * Steps every manager. Blocks until all of them are done. Every manager whose frame was started gets it ended, even if stepping or a
+     * callback of another world throws.
+     * @param deltaTime the time elapsed since the last step
+     * @throws GdxRuntimeException if stepping a world failed or the calling thread was interrupted
+     * @throws IllegalStateException if a manager was made deterministic after it was added
+     */
+    public void step(float deltaTime) throws GdxRuntimeException, IllegalStateException {
+        WorldTask[] items = tasks.items;
+        int n = tasks.size;
+
+        for (int i = 0; i < n; i++) {
+            if (items[i].physicsManager2d.isDeterministic())
+                throw new IllegalStateException("Deterministic managers can't be stepped in parallel");
+        }
+
+        try {
+            int rounds = 0;
+            for (int i = 0; i < n; i++) {
+                WorldTask task = items[i];
+                if (task.physicsManager2d.isSimulatePhysics()) {
+                    task.began = true;
+                    task.steps = task.physicsManager2d.__beginStep(deltaTime);
+                }
+                rounds = Math.max(rounds, task.steps);
+            }
+
+            for (int round = 0; round < rounds; round++) {
+                int count = 0;
+                WorldTask last = null;
+                for (int i = 0; i < n; i++) {
+                    if (items[i].steps > round) {
+                        count++;
+                        last = items[i];
+                    }
+                }
+
+                // The calling thread steps the last world itself instead of waiting idle
+                barrier.bulkRegister(count);
+                int submitted = 0;
+                try {
+                    for (int i = 0; i < n; i++) {
+                        if (items[i].steps > round && items[i] != last) {
+                            executor.execute(items[i]);
+                            submitted++;
+                        }
+                    }
+                } catch (Throwable t) {
+                    abortRound(count - submitted, t);
+                    throw t;
+                }
+                last.run();
+                await();
+
+                for (int i = 0; i < n; i++) {
+                    if (items[i].steps > round)
+                        items[i].physicsManager2d.__dispatchStep();
+                }
+            }
+        } finally {
+            for (int i = 0; i < n; i++) {
+                WorldTask task = items[i];
+                task.steps = 0;
+                if (task.began) {
+                    task.began = false;
+                    task.physicsManager2d.__endStep();
+                }
+            }
+        }
+    }
+
+    /* Deregisters the tasks of a round that won't run, the last world's included, and waits for the ones already submitted */
+    private void abortRound(int unsubmitted, Throwable cause) {
+        for (int i = 0; i < unsubmitted; i++)
+            barrier.arriveAndDeregister();
+        barrier.awaitAdvance(barrier.arrive());
+
+        Throwable failure = this.failure;
+        if (failure != null) {
+            this.failure = null;
+            cause.addSuppressed(failure);
+        }
+    }
+
+    private void await() throws GdxRuntimeException {
+        int phase = barrier.arrive();
+        try {
+            barrier.awaitAdvanceInterruptibly(phase);
+        } catch (InterruptedException e) {
+            // The worlds of the round are still being stepped; they must be done before their frames are ended
+            barrier.awaitAdvance(phase);
+            Thread.currentThread().interrupt();
+            throw new GdxRuntimeException("Interrupted while stepping worlds", e);
+        }
+
+        Throwable failure = this.failure;
+        if (failure != null) {
+            this.failure = null;
+            throw new GdxRuntimeException("Failed to step a world", failure);
+        }
+    }
+
+    /* Takes one fixed step of a single world */
+    private class WorldTask implements Runnable {
+        final PhysicsManager2d physicsManager2d;
+        int steps;
+        boolean began;
+
+        WorldTask(PhysicsManager2d physicsManager2d) {
+            this.physicsManager2d = physicsManager2d;
+        }
+
+        @Override
+        public void run() {
+            try {
+                physicsManager2d.__simulateStep();
+            } catch (Throwable t) {
+                failure = t;
+            } finally {
+                barrier.arriveAndDeregister();
+            }
+        }
+    }
+}
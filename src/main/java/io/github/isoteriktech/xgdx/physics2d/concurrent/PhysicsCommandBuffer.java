@@ -0,0 +1,379 @@
+package io.github.isoteriktech.xgdx.physics2d.concurrent;
+
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.BodyDef;
+import io.github.isoteriktech.xgdx.GameObject;
+import io.github.isoteriktech.xgdx.Scene;
+import io.github.isoteriktech.xgdx.physics2d.PhysicsManager2d;
+import io.github.isoteriktech.xgdx.physics2d.PhysicsMaterial2d;
+import io.github.isoteriktech.xgdx.physics2d.RigidBody2d;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lets any thread change bodies of a {@link PhysicsManager2d} without touching Box2D: commands are recorded into a bounded lock-free queue
+ * and applied by the thread that steps the manager, right before the steps of every frame. Networking and AI threads can push commands
+ * without locks and without allocating; the manager's own thread drains them.
+ * <p>
+ * The queue is a ring of preallocated slots, each with a sequence number that tells producers and the consumer whose turn it is (a bounded
+ * multi-producer queue after Dmitry Vyukov). Producers claim a slot with a single compare-and-set, write it and publish it with an ordered
+ * store; nothing is allocated per command. When the queue is full, commands are rejected and counted rather than blocking the producer.
+ * <p>
+ * Commands that spawn and destroy game objects run on the stepping thread too. A spawned game object is built by the producer with its
+ * colliders but without a {@link RigidBody2d}, since attaching one creates a body; the rigid body is added when the command is applied and
+ * the game object is then added to the scene hosting the manager.
+ * <p>
+ * This class is not available on GWT.
+ *
+ * @author isoteriksoftware
+ */
+public class PhysicsCommandBuffer implements PhysicsManager2d.CommandSource {
+    private static final int APPLY_FORCE = 0, APPLY_FORCE_TO_CENTER = 1, APPLY_LINEAR_IMPULSE = 2, APPLY_ANGULAR_IMPULSE = 3,
+            APPLY_TORQUE = 4, SET_LINEAR_VELOCITY = 5, SET_ANGULAR_VELOCITY = 6, SET_TRANSFORM = 7, SET_ACTIVE = 8, SPAWN = 9, DESTROY = 10;
+
+    private static final int ARGS = 5;
+
+    private final int mask;
+
+    /* The slots */
+    private final int[] ops;
+    private final Object[] targets, extras;
+    private final float[] args;
+
+    /* The sequence of every slot: its position when free to write, its position + 1 when written */
+    private final AtomicLongArray sequences;
+
+    /* The next position to write, claimed by producers */
+    private final AtomicLong tail = new AtomicLong();
+
+    /* The next position to read. Only the consumer touches it. */
+    private long head;
+
+    /* Metrics */
+    private final AtomicLong rejected = new AtomicLong();
+    private volatile int lastDrainCount;
+    private volatile long lastDrainTime, totalDrained;
+    private volatile int peakDepth;
+
+    /**
+     * Creates a new buffer with room for at least the given number of commands and makes it the command source of a manager.
+     * @param physicsManager2d the manager whose bodies are changed
+     * @param capacity the minimum capacity. Rounded up to a power of two
+     * @throws IllegalArgumentException if the capacity is not positive
+     */
+    public PhysicsCommandBuffer(PhysicsManager2d physicsManager2d, int capacity) throws IllegalArgumentException {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("The capacity must be positive");
+
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity)
+            size <<= 1;
+
+        mask = size - 1;
+        ops = new int[size];
+        targets = new Object[size];
+        extras = new Object[size];
+        args = new float[size * ARGS];
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++)
+            sequences.set(i, i);
+
+        physicsManager2d.setCommandSource(this);
+    }
+
+    /**
+     * Queues a force at a world point of a body.
+     * @param rigidBody2d the body
+     * @param forceX the x-component of the force in Newtons
+     * @param forceY the y-component of the force in Newtons
+     * @param pointX the x-coordinate of the point in world units
+     * @param pointY the y-coordinate of the point in world units
+     * @param wake whether the body should be woken up
+     * @return false if the buffer is full and the command was dropped
+     */
+    public boolean applyForce(RigidBody2d rigidBody2d, float forceX, float forceY, float pointX, float pointY, boolean wake)
+    { return offer(APPLY_FORCE, rigidBody2d, null, forceX, forceY, pointX, pointY, wake ? 1 : 0); }
+
+    /**
+     * Queues a force at the center of mass of a body.
+     * @param rigidBody2d the body
+     * @param forceX the x-component of the force in Newtons
+     * @param forceY the y-component of the force in Newtons
+     * @param wake whether the body should be woken up
+     * @return false if the buffer is full and the command was dropped
+     */
+    public boolean applyForceToCenter(RigidBody2d rigidBody2d, float forceX, float forceY, boolean wake)
+    { return offer(APPLY_FORCE_TO_CENTER, rigidBody2d, null, forceX, forceY, 0, 0, wake ? 1 : 0); }
+
+    /**
+     * Queues an impulse at a world point of a body.
+     * @param rigidBody2d the body
+     * @param impulseX the x-component of the impulse in Newton-seconds
+     * @param impulseY the y-component of the impulse in Newton-seconds
+     * @param pointX the x-coordinate of the point in world units
+     * @param pointY the y-coordinate of the point in world units
+     * @param wake whether the body should be woken up
+     * @return false if the buffer is full and the command was dropped
+     */
+    public boolean applyLinearImpulse(RigidBody2d rigidBody2d, float impulseX, float impulseY, float pointX, float pointY, boolean wake)
+    { return offer(APPLY_LINEAR_IMPULSE, rigidBody2d, null, impulseX, impulseY, pointX, pointY, wake ? 1 : 0); }
+
+    /**
+     * Queues an angular impulse on a body.
+     * @param rigidBody2d the body
+     * @param impulse the angular impulse in kg*m*m/s
+     * @param wake whether the body should be woken up
+     * @return false if the buffer is full and the command was dropped
+     */
+    public boolean applyAngularImpulse(RigidBody2d rigidBody2d, float impulse, boolean wake)
+    { return offer(APPLY_ANGULAR_IMPULSE, rigidBody2d, null, impulse, 0, 0, 0, wake ? 1 : 0); }
+
+    /**
+     * Queues a torque on a body.
+     * @param rigidBody2d the body
+     * @param torque the torque in Newton-meters
+     * @param wake whether the body should be woken up
+     * @return false if the buffer is full and the command was dropped
+     */
+    public boolean applyTorque(RigidBody2d rigidBody2d, float torque, boolean wake)
+    { return offer(APPLY_TORQUE, rigidBody2d, null, torque, 0, 0, 0, wake ? 1 : 0); }
+
+    /**
+     * Queues a new linear velocity for a body.
+     * @param rigidBody2d the body
+     * @param x the x-component of the velocity in world units per second
+     * @param y the y-component of the velocity in world units per second
+     * @return false if the buffer is full and the command was dropped
+     */
+    public boolean setLinearVelocity(RigidBody2d rigidBody2d, float x, float y)
+    { return offer(SET_LINEAR_VELOCITY, rigidBody2d, null, x, y, 0, 0, 0); }
+
+    /**
+     * Queues a new angular velocity for a body.
+     * @param rigidBody2d the body
+     * @param omega the angular velocity in radians per second
+     * @return false if the buffer is full and the command was dropped
+     */
+    public boolean setAngularVelocity(RigidBody2d rigidBody2d, float omega)
+    { return offer(SET_ANGULAR_VELOCITY, rigidBody2d, null, omega, 0, 0, 0, 0); }
+
+    /**
+     * Queues a teleport of a body. See {@link RigidBody2d#setTransform(float, float, float)}.
+     * @param rigidBody2d the body
+     * @param x the x-coordinate of the body's center in world units
+     * @param y the y-coordinate of the body's center in world units
+     * @param angle the angle of the body in radians
+     * @return false if the buffer is full and the command was dropped
+     */
+    public boolean setTransform(RigidBody2d rigidBody2d, float x, float y, float angle)
+    { return offer(SET_TRANSFORM, rigidBody2d, null, x, y, angle, 0, 0); }
+
+    /**
+     * Queues activating or deactivating a body. Inactive bodies are not simulated and don't collide.
+     * @param rigidBody2d the body
+     * @param active whether the body should be active
+     * @return false if the buffer is full and the command was dropped
+     */
+    public boolean setActive(RigidBody2d rigidBody2d, boolean active)
+    { return offer(SET_ACTIVE, rigidBody2d, null, active ? 1 : 0, 0, 0, 0, 0); }
+
+    /**
+     * Queues spawning a game object. When applied, a {@link RigidBody2d} is added to the game object and the game object is added to the
+     * scene hosting the manager. The game object must have its transform and colliders set and no rigid body.
+     * @param gameObject the game object
+     * @param bodyType the type of the body
+     * @param material the default material of the body or null to use a default {@link PhysicsMaterial2d#PhysicsMaterial2d()}
+     * @return false if the buffer is full and the command was dropped
+     */
+    public boolean spawn(GameObject gameObject, BodyDef.BodyType bodyType, PhysicsMaterial2d material)
+    { return offer(SPAWN, gameObject, material, bodyType.ordinal(), 0, 0, 0, 0); }
+
+    /**
+     * Queues removing a game object from the scene hosting the manager, which destroys its body.
+     * @param gameObject the game object
+     * @return false if the buffer is full and the command was dropped
+     */
+    public boolean destroy(GameObject gameObject)
+    { return offer(DESTROY, gameObject, null, 0, 0, 0, 0, 0); }
+
+    private boolean offer(int op, Object target, Object extra, float a0, float a1, float a2, float a3, float a4) {
+        long position;
+        int slot;
+        while (true) {
+            position = tail.get();
+            slot = (int)position & mask;
+            long difference = sequences.get(slot) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1))
+                    break;
+            }
+            else if (difference < 0) {
+                // The consumer hasn't freed this slot yet: the buffer is full
+                rejected.incrementAndGet();
+                return false;
+            }
+        }
+
+        ops[slot] = op;
+        targets[slot] = target;
+        extras[slot] = extra;
+        int a = slot * ARGS;
+        args[a] = a0;
+        args[a + 1] = a1;
+        args[a + 2] = a2;
+        args[a + 3] = a3;
+        args[a + 4] = a4;
+
+        // Publish the slot to the consumer
+        sequences.lazySet(slot, position + 1);
+        return true;
+    }
+
+    /**
+     * Applies every queued command in the order the commands were claimed. Commands queued while draining wait for the next drain.
+     * This is called by the manager on the thread that steps it and should never be called directly.
+     * @param physicsManager2d the manager
+     */
+    @Override
+    public void drainCommands(PhysicsManager2d physicsManager2d) {
+        long start = System.nanoTime();
+        long end = tail.get();
+        int depth = (int)(end - head);
+        if (depth > peakDepth)
+            peakDepth = depth;
+
+        int count = 0;
+        while (head < end) {
+            int slot = (int)head & mask;
+
+            // A producer claimed the slot but hasn't published it yet; it goes out with the next drain
+            if (sequences.get(slot) != head + 1)
+                break;
+
+            apply(physicsManager2d, slot);
+            targets[slot] = null;
+            extras[slot] = null;
+            sequences.lazySet(slot, head + mask + 1);
+            head++;
+            count++;
+        }
+
+        lastDrainCount = count;
+        totalDrained += count;
+        lastDrainTime = System.nanoTime() - start;
+    }
+
+    private void apply(PhysicsManager2d physicsManager2d, int slot) {
+        int a = slot * ARGS;
+        float a0 = args[a], a1 = args[a + 1], a2 = args[a + 2], a3 = args[a + 3];
+        boolean wake = args[a + 4] != 0;
+
+        int op = ops[slot];
+        if (op == SPAWN) {
+            GameObject gameObject = (GameObject)targets[slot];
+            BodyDef.BodyType bodyType = BodyDef.BodyType.values()[(int)a0];
+            PhysicsMaterial2d material = (PhysicsMaterial2d)extras[slot];
+            gameObject.addComponent(material != null ? new RigidBody2d(bodyType, material, physicsManager2d)
+                    : new RigidBody2d(bodyType, physicsManager2d));
+
+            Scene scene = physicsManager2d.getHostScene();
+            if (scene != null)
+                scene.addGameObject(gameObject);
+            return;
+        }
+        if (op == DESTROY) {
+            Scene scene = physicsManager2d.getHostScene();
+            if (scene != null)
+                scene.removeGameObject((GameObject)targets[slot]);
+            return;
+        }
+
+        // Bodies removed since the command was queued are skipped
+        RigidBody2d rigidBody2d = (RigidBody2d)targets[slot];
+        if (rigidBody2d.getGameObject() == null)
+            return;
+
+        switch (op) {
+            case APPLY_FORCE:
+                rigidBody2d.applyForce(a0, a1, a2, a3, wake);
+                break;
+            case APPLY_FORCE_TO_CENTER:
+                rigidBody2d.applyForceToCenter(a0, a1, wake);
+                break;
+            case APPLY_LINEAR_IMPULSE:
+                rigidBody2d.applyLinearImpulse(a0, a1, a2, a3, wake);
+                break;
+            case APPLY_ANGULAR_IMPULSE:
+                rigidBody2d.applyAngularImpulse(a0, wake);
+                break;
+            case APPLY_TORQUE:
+                rigidBody2d.applyTorque(a0, wake);
+                break;
+            case SET_LINEAR_VELOCITY:
+                rigidBody2d.setLinearVelocity(a0, a1);
+                break;
+            case SET_ANGULAR_VELOCITY:
+                rigidBody2d.setAngularVelocity(a0);
+                break;
+            case SET_TRANSFORM:
+                rigidBody2d.setTransform(a0, a1, a2);
+                break;
+            case SET_ACTIVE: {
+                Body body = rigidBody2d.getBody();
+                if (body != null)
+                    body.setActive(a0 != 0);
+                break;
+            }
+        }
+    }
+
+    /**
+     *
+     * @return the number of commands queued and not drained yet. Approximate while producers are pushing
+     */
+    public int getDepth()
+    { return (int)Math.max(0, tail.get() - head); }
+
+    /**
+     *
+     * @return the number of commands this buffer holds
+     */
+    public int getCapacity()
+    { return mask + 1; }
+
+    /**
+     *
+     * @return the highest depth seen at the start of a drain
+     */
+    public int getPeakDepth()
+    { return peakDepth; }
+
+    /**
+     *
+     * @return the number of commands dropped because the buffer was full
+     */
+    public long getRejectedCount()
+    { return rejected.get(); }
+
+    /**
+     *
+     * @return the number of commands applied by the last drain
+     */
+    public int getLastDrainCount()
+    { return lastDrainCount; }
+
+    /**
+     *
+     * @return the time taken by the last drain in nanoseconds
+     */
+    public long getLastDrainTime()
+    { return lastDrainTime; }
+
+    /**
+     *
+     * @return the number of commands applied since this buffer was created
+     */
+    public long getTotalDrained()
+    { return totalDrained; }
+}
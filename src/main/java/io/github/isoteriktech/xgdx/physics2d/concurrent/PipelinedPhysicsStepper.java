@@ -0,0 +1,164 @@
+package io.github.isoteriktech.xgdx.physics2d.concurrent;
+
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import io.github.isoteriktech.xgdx.physics2d.PhysicsManager2d;
+import io.github.isoteriktech.xgdx.physics2d.RigidBody2d;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Steps a {@link PhysicsManager2d} on a dedicated physics thread while the main thread updates and renders the scene.
+ * Every call to {@link #step(float)} first waits for the step started by the previous call and runs its step boundary on the calling thread:
+ * the transforms read by the physics thread are written to the game objects, the {@link RigidBody2d} mutations queued meanwhile are applied,
+ * contact events and fixedUpdate2d() callbacks are dispatched and queued bodies are destroyed. It then interpolates the transforms for the
+ * frame and starts the next step on the physics thread, so rendering frame N overlaps with simulating frame N+1. What is rendered is one
+ * frame behind the simulation.
+ * <p>
+ * Only one fixed step is ever in flight. The callbacks of a step must run before the next step is taken, as they do when the manager steps
+ * itself, so a frame that owes several steps takes all but the last one on the calling thread, each followed by its callbacks, and only
+ * hands the last one to the physics thread.
+ * <p>
+ * While a step is in flight the world belongs to the physics thread: the mutators of {@link RigidBody2d} (forces, impulses, velocities,
+ * {@link RigidBody2d#setTransform(float, float, float)}) and adding or removing rigid bodies and colliders are queued until the step boundary,
+ * and the spatial queries of the manager throw. Code that needs the world right away, like queries, belongs in fixedUpdate2d() and the
+ * contact callbacks, which run at the step boundary; or call {@link #finish()} first. Bodies returned by {@link RigidBody2d#getBody()} must
+ * not be changed directly while a step is in flight.
+ * <p>
+ * The manager gets its contact events deferred (see {@link PhysicsManager2d#setDeferContactEvents(boolean)}) and is no longer stepped by its
+ * own {@link PhysicsManager2d#update(float)}. Call {@link #step(float)} once per frame from the thread that owns the scene, before the
+ * scene is updated and rendered. Deterministic managers (see {@link PhysicsManager2d#setDeterministic(boolean)}) are stepped by their own
+ * {@link PhysicsManager2d#advance()} and can't be pipelined.
+ * <p>
+ * This class is not available on GWT.
+ *
+ * @author isoteriksoftware
+ */
+public class PipelinedPhysicsStepper implements Disposable {
+    private final PhysicsManager2d physicsManager2d;
+    private final Thread thread;
+
+    /* Released by the main thread to start a step and by the physics thread when it is done */
+    private final Semaphore started = new Semaphore(0), done = new Semaphore(0);
+
+    private boolean inFlight;
+
+    private volatile boolean running = true;
+    private volatile Throwable failure;
+
+    /**
+     * Creates a new stepper for a manager and starts its physics thread.
+     * @param physicsManager2d the manager
+     * @throws IllegalArgumentException if the manager is deterministic
+     */
+    public PipelinedPhysicsStepper(PhysicsManager2d physicsManager2d) throws IllegalArgumentException {
+        if (physicsManager2d.isDeterministic())
+            throw new IllegalArgumentException("Deterministic managers can't be pipelined");
+
+        this.physicsManager2d = physicsManager2d;
+        physicsManager2d.setDeferContactEvents(true);
+        physicsManager2d.__setSteppedExternally(true);
+
+        thread = new Thread(this::simulate, "physics");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Finishes the step in flight, then takes the fixed steps owed for this frame. The last one runs on the physics thread.
+     * @param deltaTime the time elapsed since the last frame
+     * @throws GdxRuntimeException if the last step failed or the calling thread was interrupted
+     * @throws IllegalStateException if the manager was made deterministic after this stepper was created
+     */
+    public void step(float deltaTime) throws GdxRuntimeException, IllegalStateException {
+        finish();
+
+        // Interpolate the state just published for this frame's render
+        physicsManager2d.__endStep();
+
+        if (physicsManager2d.isDeterministic())
+            throw new IllegalStateException("Deterministic managers can't be pipelined");
+
+        if (!physicsManager2d.isSimulatePhysics())
+            return;
+
+        int steps = physicsManager2d.__beginStep(deltaTime);
+        if (steps == 0)
+            return;
+
+        // Every step but the last dispatches its callbacks before the next one is taken
+        for (int i = 1; i < steps; i++) {
+            physicsManager2d.__simulateStep();
+            physicsManager2d.__dispatchStep();
+        }
+
+        physicsManager2d.__beginPipelinedStep();
+        inFlight = true;
+        started.release();
+    }
+
+    /**
+     * Waits for the step in flight, if any, and runs its step boundary. The world can then be used directly until the next {@link #step(float)}.
+     * @throws GdxRuntimeException if the step failed or the calling thread was interrupted
+     */
+    public void finish() throws GdxRuntimeException {
+        if (!inFlight)
+            return;
+
+        try {
+            done.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GdxRuntimeException("Interrupted while waiting for the physics thread", e);
+        }
+
+        inFlight = false;
+        physicsManager2d.__finishPipelinedStep();
+
+        Throwable failure = this.failure;
+        if (failure != null) {
+            this.failure = null;
+            throw new GdxRuntimeException("Failed to step the world", failure);
+        }
+    }
+
+    /**
+     *
+     * @return whether a step is running on the physics thread
+     */
+    public boolean isInFlight()
+    { return inFlight; }
+
+    /**
+     * Finishes the step in flight and stops the physics thread. The manager is stepped by its own {@link PhysicsManager2d#update(float)} again.
+     */
+    @Override
+    public void dispose() {
+        try {
+            finish();
+        } finally {
+            running = false;
+            thread.interrupt();
+            physicsManager2d.__setSteppedExternally(false);
+        }
+    }
+
+    /* The physics thread: takes the fixed step in flight every time it is started */
+    private void simulate() {
+        while (running) {
+            try {
+                started.acquire();
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            try {
+                physicsManager2d.__simulateStep();
+            } catch (Throwable t) {
+                failure = t;
+            } finally {
+                done.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package io.github.isoteriktech.xgdx.physics2d.serialization;
+
+import java.nio.ByteOrder;
+
+/**
+ * The layout of a physics scene file, shared by {@link PhysicsSceneWriter} and {@link PhysicsSceneLoader}. Everything is little-endian and
+ * read front to back:
+ * <ol>
+ *     <li>Header, {@value #HEADER_SIZE} bytes: magic, version (short), reserved flags (short), material count, body count, fixture count,
+ *     joint count and the largest vertex count of any fixture (ints).</li>
+ *     <li>Materials, {@value #MATERIAL_SIZE} bytes each: friction, restitution and density. Fixtures refer to them by index, so fixtures that
+ *     share a material store it once.</li>
+ *     <li>Bodies, {@value #BODY_SIZE} bytes each: type and flags (bytes), reserved (short), position, angle, linear and angular velocity,
+ *     linear and angular damping, gravity scale (floats) and fixture count (int). The fixtures of the body follow it.</li>
+ *     <li>Fixtures, {@value #FIXTURE_SIZE} bytes plus their vertices: shape and flags (bytes), category, mask and group (shorts), material index
+ *     (int), radius (float), vertex count (int), then the vertices as x, y float pairs. A circle has its center as its only vertex; an edge has
+ *     its ghost vertex 0, its two vertices and its ghost vertex 3. A chain flagged as a loop stores every vertex once, without the copy of
+ *     the first vertex Box2D adds to close it. A polygon flagged as a box is an axis-aligned rectangle, which the loader rebuilds with
+ *     {@link com.badlogic.gdx.physics.box2d.PolygonShape#setAsBox(float, float, com.badlogic.gdx.math.Vector2, float)} instead of computing
+ *     the convex hull of its vertices again.</li>
+ *     <li>Joints, {@value #JOINT_SIZE} bytes each: Box2D joint type and flags (bytes), reserved (short), the indices of both bodies in file order
+ *     (ints) and {@value #JOINT_FLOATS} floats whose meaning depends on the type, unused ones zero.</li>
+ * </ol>
+ * A version bump is required for any change to this layout.
+ *
+ * @author isoteriksoftware
+ */
+final class PhysicsSceneFormat {
+    /* "XP2D" */
+    static final int MAGIC = 0x44325058;
+    static final short VERSION = 1;
+    static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    static final int HEADER_SIZE = 28;
+    static final int MATERIAL_SIZE = 12;
+    static final int BODY_SIZE = 44;
+    static final int FIXTURE_SIZE = 20;
+    static final int JOINT_FLOATS = 11;
+    static final int JOINT_SIZE = 12 + JOINT_FLOATS * 4;
+
+    /* Body types, as Box2D numbers them */
+    static final byte STATIC = 0, KINEMATIC = 1, DYNAMIC = 2;
+
+    /* Body flags */
+    static final byte AWAKE = 1, ACTIVE = 2, BULLET = 4, FIXED_ROTATION = 8, SLEEPING_ALLOWED = 16;
+
+    /* Shape types, as Box2D numbers them */
+    static final byte CIRCLE = 0, EDGE = 1, POLYGON = 2, CHAIN = 3;
+
+    /* Fixture flags */
+    static final byte SENSOR = 1, LOOP = 2, HAS_VERTEX0 = 4, HAS_VERTEX3 = 8, BOX = 16;
+
+    /* The most vertices Box2D allows in a polygon, and how close consecutive vertices of a chain may be */
+    static final int MAX_POLYGON_VERTICES = 8;
+    static final float LINEAR_SLOP = .005f;
+
+    /* Joint flags */
+    static final byte COLLIDE_CONNECTED = 1, ENABLE_LIMIT = 2, ENABLE_MOTOR = 4;
+
+    private PhysicsSceneFormat() {
+    }
+}
@@ -0,0 +1,512 @@
+package io.github.isoteriktech.xgdx.physics2d.serialization;
+
+import com.badlogic.gdx.Files;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.*;
+import com.badlogic.gdx.physics.box2d.joints.*;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import io.github.isoteriktech.xgdx.physics2d.PhysicsManager2d;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static io.github.isoteriktech.xgdx.physics2d.serialization.PhysicsSceneFormat.*;
+
+/**
+ * Loads a physics scene saved by {@link PhysicsSceneWriter} into the world of a {@link PhysicsManager2d}. Files on disk are memory-mapped and
+ * read in place: every record goes straight from the mapping into reused Box2D definitions and shapes, so loading builds no intermediate
+ * objects besides the bodies, fixtures and joints themselves. Files that can't be mapped, like classpath files and internal files packed in an
+ * APK or JAR, are read into memory first.
+ * <p>
+ * Fixtures of dynamic bodies are created without density and get it afterwards, so the mass of a body is computed once after all its
+ * fixtures are created instead of once per fixture, as {@link Body#createFixture(FixtureDef)} would. Boxes are rebuilt from their size
+ * instead of their corners; see {@link PhysicsSceneFormat}.
+ * <p>
+ * Loaded bodies belong to no {@link io.github.isoteriktech.xgdx.physics2d.RigidBody2d}, like walls made with
+ * {@link io.github.isoteriktech.xgdx.physics2d.utils.Box2dUtil}. If a load fails, the bodies it created are destroyed again.
+ * Dispose the loader when done with it to free its shapes.
+ *
+ * @author isoteriksoftware
+ */
+public class PhysicsSceneLoader implements Disposable {
+    /* Definitions and shapes reused by every record */
+    private final BodyDef bodyDef = new BodyDef();
+    private final FixtureDef fixtureDef = new FixtureDef();
+    private final CircleShape circleShape = new CircleShape();
+    private final PolygonShape polygonShape = new PolygonShape();
+    private final EdgeShape edgeShape = new EdgeShape();
+    private final DistanceJointDef distanceJointDef = new DistanceJointDef();
+    private final RevoluteJointDef revoluteJointDef = new RevoluteJointDef();
+    private final PrismaticJointDef prismaticJointDef = new PrismaticJointDef();
+    private final WeldJointDef weldJointDef = new WeldJointDef();
+    private final RopeJointDef ropeJointDef = new RopeJointDef();
+    private final WheelJointDef wheelJointDef = new WheelJointDef();
+    private final FrictionJointDef frictionJointDef = new FrictionJointDef();
+    private final MotorJointDef motorJointDef = new MotorJointDef();
+    private final Vector2 vertex = new Vector2();
+
+    /* Scratch grown to the largest scene loaded */
+    private float[] materials = new float[3 * 16];
+    private float[] vertices = new float[2 * 16];
+    private Body[] bodies = new Body[256];
+
+    private int materialCount;
+
+    /* What the current or last load created */
+    private int bodyCount, fixtureCount, jointCount;
+
+    /**
+     * Loads a scene file into the world of a manager. See {@link #load(ByteBuffer, PhysicsManager2d, Array, Array)}.
+     * @param file the file
+     * @param physicsManager2d the manager
+     * @param bodiesOut receives the loaded bodies in file order, or null
+     * @param jointsOut receives the loaded joints in file order, or null
+     * @throws GdxRuntimeException if the file can't be read or is not a valid scene
+     * @throws IllegalStateException if the world is being stepped
+     * @throws UnsupportedOperationException if the world is partitioned
+     */
+    public void load(FileHandle file, PhysicsManager2d physicsManager2d, Array<Body> bodiesOut, Array<Joint> jointsOut)
+            throws GdxRuntimeException, IllegalStateException, UnsupportedOperationException {
+        load(map(file), physicsManager2d, bodiesOut, jointsOut);
+    }
+
+    /**
+     * Loads a scene from a buffer into the world of a manager. The buffer is read from its position, which is left after the scene, and its
+     * byte order is set to little-endian.
+     * @param buffer the buffer
+     * @param physicsManager2d the manager
+     * @param bodiesOut receives the loaded bodies in file order, or null
+     * @param jointsOut receives the loaded joints in file order, or null
+     * @throws GdxRuntimeException if the buffer doesn't hold a valid scene
+     * @throws IllegalStateException if the world is being stepped
+     * @throws UnsupportedOperationException if the world is partitioned
+     */
+    public void load(ByteBuffer buffer, PhysicsManager2d physicsManager2d, Array<Body> bodiesOut, Array<Joint> jointsOut)
+            throws GdxRuntimeException, IllegalStateException, UnsupportedOperationException {
+        if (physicsManager2d.isPartitioned())
+            throw new UnsupportedOperationException("Scenes can't be loaded into partitioned worlds");
+
+        World world = physicsManager2d.getPhysicsWorld();
+        if (physicsManager2d.isStepInFlight() || world.isLocked())
+            throw new IllegalStateException("The world is being stepped");
+
+        buffer.order(ORDER);
+        bodyCount = fixtureCount = jointCount = 0;
+        int jointsOutSize = jointsOut != null ? jointsOut.size : 0;
+
+        try {
+            int count = readHeader(buffer);
+            for (int i = 0; i < count; i++)
+                readBody(buffer, world);
+
+            for (int i = 0, n = jointCount; i < n; i++) {
+                Joint joint = readJoint(buffer, world);
+                if (jointsOut != null)
+                    jointsOut.add(joint);
+            }
+        } catch (RuntimeException e) {
+            // Joints are destroyed with their bodies
+            for (int i = 0; i < bodyCount; i++)
+                world.destroyBody(bodies[i]);
+            if (jointsOut != null)
+                jointsOut.truncate(jointsOutSize);
+            clearBodies();
+            bodyCount = fixtureCount = jointCount = 0;
+
+            if (e instanceof BufferUnderflowException)
+                throw new GdxRuntimeException("The physics scene is truncated", e);
+            throw e;
+        }
+
+        if (bodiesOut != null)
+            bodiesOut.addAll(bodies, 0, bodyCount);
+        clearBodies();
+
+        // Cached raycast hits don't know about the new fixtures
+        physicsManager2d.invalidateRaycastCache();
+    }
+
+    /**
+     *
+     * @return the number of bodies created by the last load
+     */
+    public int getBodyCount()
+    { return bodyCount; }
+
+    /**
+     *
+     * @return the number of fixtures created by the last load
+     */
+    public int getFixtureCount()
+    { return fixtureCount; }
+
+    /**
+     *
+     * @return the number of joints created by the last load
+     */
+    public int getJointCount()
+    { return jointCount; }
+
+    /* Maps a file, or reads it when it has no file on disk */
+    private static ByteBuffer map(FileHandle file) throws GdxRuntimeException {
+        File onDisk = file.type() == Files.FileType.Classpath ? null : file.file();
+        if (onDisk == null || !onDisk.isFile())
+            return ByteBuffer.wrap(file.readBytes());
+
+        // The mapping stays valid after the channel is closed
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(onDisk, "r")) {
+            FileChannel channel = randomAccessFile.getChannel();
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Error mapping file: " + file, e);
+        }
+    }
+
+    /* Reads the header and the materials. Returns the number of bodies and leaves the number of joints in jointCount. */
+    private int readHeader(ByteBuffer buffer) throws GdxRuntimeException {
+        if (buffer.getInt() != MAGIC)
+            throw new GdxRuntimeException("Not a physics scene");
+
+        short version = buffer.getShort();
+        if (version != VERSION)
+            throw new GdxRuntimeException("Unsupported physics scene version: " + version);
+        buffer.getShort();
+
+        int materialCount = buffer.getInt();
+        int bodyCount = buffer.getInt();
+        int fixtureCount = buffer.getInt();
+        int jointCount = buffer.getInt();
+        int maxVertexCount = buffer.getInt();
+        // Counts no file of this size could hold are corrupt, and mustn't size the scratch
+        int remaining = buffer.remaining();
+        if (materialCount < 0 || bodyCount < 0 || fixtureCount < 0 || jointCount < 0 || maxVertexCount < 0
+                || materialCount > remaining / MATERIAL_SIZE || bodyCount > remaining / BODY_SIZE || maxVertexCount > remaining / 8)
+            throw new GdxRuntimeException("Corrupt physics scene header");
+
+        if (materials.length < materialCount * 3)
+            materials = new float[materialCount * 3];
+        if (vertices.length < maxVertexCount * 2)
+            vertices = new float[maxVertexCount * 2];
+        if (bodies.length < bodyCount)
+            bodies = new Body[bodyCount];
+
+        float[] materials = this.materials;
+        for (int i = 0, n = materialCount * 3; i < n; i++)
+            materials[i] = buffer.getFloat();
+
+        this.materialCount = materialCount;
+        this.jointCount = jointCount;
+        return bodyCount;
+    }
+
+    private void readBody(ByteBuffer buffer, World world) throws GdxRuntimeException {
+        BodyDef bodyDef = this.bodyDef;
+        byte type = buffer.get();
+        int flags = buffer.get();
+        buffer.getShort();
+
+        switch (type) {
+            case STATIC:
+                bodyDef.type = BodyDef.BodyType.StaticBody;
+                break;
+            case KINEMATIC:
+                bodyDef.type = BodyDef.BodyType.KinematicBody;
+                break;
+            case DYNAMIC:
+                bodyDef.type = BodyDef.BodyType.DynamicBody;
+                break;
+            default:
+                throw new GdxRuntimeException("Unknown body type: " + type);
+        }
+
+        bodyDef.position.set(buffer.getFloat(), buffer.getFloat());
+        bodyDef.angle = buffer.getFloat();
+        bodyDef.linearVelocity.set(buffer.getFloat(), buffer.getFloat());
+        bodyDef.angularVelocity = buffer.getFloat();
+        bodyDef.linearDamping = buffer.getFloat();
+        bodyDef.angularDamping = buffer.getFloat();
+        bodyDef.gravityScale = buffer.getFloat();
+        bodyDef.awake = (flags & AWAKE) != 0;
+        bodyDef.active = (flags & ACTIVE) != 0;
+        bodyDef.bullet = (flags & BULLET) != 0;
+        bodyDef.fixedRotation = (flags & FIXED_ROTATION) != 0;
+        bodyDef.allowSleep = (flags & SLEEPING_ALLOWED) != 0;
+        int fixtures = buffer.getInt();
+
+        // Remembered right away, so a failure further on destroys it
+        Body body = world.createBody(bodyDef);
+        bodies[bodyCount++] = body;
+
+        // Only dynamic bodies have mass
+        boolean dynamic = type == DYNAMIC;
+        boolean hasMass = false;
+        for (int f = 0; f < fixtures; f++)
+            hasMass |= readFixture(buffer, body, dynamic);
+
+        if (hasMass)
+            body.resetMassData();
+    }
+
+    /* Creates a fixture. The density of fixtures of dynamic bodies is set afterwards; returns whether it was. */
+    private boolean readFixture(ByteBuffer buffer, Body body, boolean deferDensity) throws GdxRuntimeException {
+        FixtureDef fixtureDef = this.fixtureDef;
+        byte type = buffer.get();
+        int flags = buffer.get();
+        fixtureDef.filter.categoryBits = buffer.getShort();
+        fixtureDef.filter.maskBits = buffer.getShort();
+        fixtureDef.filter.groupIndex = buffer.getShort();
+        int material = buffer.getInt();
+        float radius = buffer.getFloat();
+        int vertexCount = buffer.getInt();
+
+        if (material < 0 || material >= materialCount)
+            throw new GdxRuntimeException("Unknown material: " + material);
+        if (vertexCount < 0 || vertexCount > vertices.length / 2)
+            throw new GdxRuntimeException("Corrupt vertex count: " + vertexCount);
+
+        // Box2D asserts on bad vertex counts instead of throwing, which takes the whole process down
+        switch (type) {
+            case CIRCLE:
+                checkVertexCount(vertexCount, 1, 1);
+                break;
+            case EDGE:
+                checkVertexCount(vertexCount, 4, 4);
+                break;
+            case POLYGON:
+                if ((flags & BOX) != 0)
+                    checkVertexCount(vertexCount, 4, 4);
+                else
+                    checkVertexCount(vertexCount, 3, MAX_POLYGON_VERTICES);
+                break;
+            case CHAIN:
+                checkVertexCount(vertexCount, (flags & LOOP) != 0 ? 3 : 2, Integer.MAX_VALUE);
+                break;
+            default:
+                throw new GdxRuntimeException("Unknown shape type: " + type);
+        }
+        if (vertexCount > buffer.remaining() / 8)
+            throw new GdxRuntimeException("The physics scene is truncated");
+
+        float[] vertices = this.vertices;
+        for (int i = 0, n = vertexCount * 2; i < n; i++)
+            vertices[i] = buffer.getFloat();
+
+        ChainShape chainShape = null;
+        switch (type) {
+            case CIRCLE:
+                circleShape.setRadius(radius);
+                circleShape.setPosition(vertex.set(vertices[0], vertices[1]));
+                fixtureDef.shape = circleShape;
+                break;
+            case EDGE:
+                edgeShape.set(vertices[2], vertices[3], vertices[4], vertices[5]);
+                edgeShape.setVertex0(vertices[0], vertices[1]);
+                edgeShape.setVertex3(vertices[6], vertices[7]);
+                edgeShape.setHasVertex0((flags & HAS_VERTEX0) != 0);
+                edgeShape.setHasVertex3((flags & HAS_VERTEX3) != 0);
+                fixtureDef.shape = edgeShape;
+                break;
+            case POLYGON:
+                if ((flags & BOX) != 0)
+                    setAsBox(vertices);
+                else
+                    polygonShape.set(vertices, 0, vertexCount * 2);
+                fixtureDef.shape = polygonShape;
+                break;
+            case CHAIN:
+                for (int i = 2, n = vertexCount * 2; i < n; i += 2) {
+                    float dx = vertices[i] - vertices[i - 2], dy = vertices[i + 1] - vertices[i - 1];
+                    if (!(dx * dx + dy * dy > LINEAR_SLOP * LINEAR_SLOP))
+                        throw new GdxRuntimeException("Chain vertices are too close together");
+                }
+
+                // Box2D can't refill a chain shape, so every chain gets its own
+                chainShape = new ChainShape();
+                if ((flags & LOOP) != 0)
+                    chainShape.createLoop(vertices, 0, vertexCount * 2);
+                else
+                    chainShape.createChain(vertices, 0, vertexCount * 2);
+                fixtureDef.shape = chainShape;
+                break;
+        }
+
+        float[] materials = this.materials;
+        int m = material * 3;
+        float density = materials[m + 2];
+        fixtureDef.friction = materials[m];
+        fixtureDef.restitution = materials[m + 1];
+        fixtureDef.density = deferDensity ? 0 : density;
+        fixtureDef.isSensor = (flags & SENSOR) != 0;
+
+        Fixture fixture;
+        try {
+            fixture = body.createFixture(fixtureDef);
+        } finally {
+            fixtureDef.shape = null;
+            if (chainShape != null)
+                chainShape.dispose();
+        }
+        fixtureCount++;
+
+        if (!deferDensity || density == 0)
+            return false;
+
+        fixture.setDensity(density);
+        return true;
+    }
+
+    /* Rebuilds an axis-aligned box from its corners. Box2D would compute the hull of the corners again otherwise, which costs more than the rest of the fixture. */
+    private void setAsBox(float[] v) {
+        float minX = Math.min(Math.min(v[0], v[2]), Math.min(v[4], v[6]));
+        float maxX = Math.max(Math.max(v[0], v[2]), Math.max(v[4], v[6]));
+        float minY = Math.min(Math.min(v[1], v[3]), Math.min(v[5], v[7]));
+        float maxY = Math.max(Math.max(v[1], v[3]), Math.max(v[5], v[7]));
+        polygonShape.setAsBox((maxX - minX) * .5f, (maxY - minY) * .5f, vertex.set((minX + maxX) * .5f, (minY + maxY) * .5f), 0);
+    }
+
+    private static void checkVertexCount(int vertexCount, int min, int max) throws GdxRuntimeException {
+        if (vertexCount < min || vertexCount > max)
+            throw new GdxRuntimeException("Corrupt vertex count: " + vertexCount);
+    }
+
+    private Joint readJoint(ByteBuffer buffer, World world) throws GdxRuntimeException {
+        int type = buffer.get();
+        int flags = buffer.get();
+        buffer.getShort();
+        Body bodyA = bodyAt(buffer.getInt());
+        Body bodyB = bodyAt(buffer.getInt());
+        int end = buffer.position() + JOINT_FLOATS * 4;
+
+        JointDef jointDef;
+        switch (type < 0 || type >= JointDef.JointType.valueTypes.length ? JointDef.JointType.Unknown : JointDef.JointType.valueTypes[type]) {
+            case DistanceJoint: {
+                DistanceJointDef def = distanceJointDef;
+                getVertex(buffer, def.localAnchorA);
+                getVertex(buffer, def.localAnchorB);
+                def.length = buffer.getFloat();
+                def.frequencyHz = buffer.getFloat();
+                def.dampingRatio = buffer.getFloat();
+                jointDef = def;
+                break;
+            }
+            case RevoluteJoint: {
+                RevoluteJointDef def = revoluteJointDef;
+                getVertex(buffer, def.localAnchorA);
+                getVertex(buffer, def.localAnchorB);
+                def.referenceAngle = buffer.getFloat();
+                def.lowerAngle = buffer.getFloat();
+                def.upperAngle = buffer.getFloat();
+                def.motorSpeed = buffer.getFloat();
+                def.maxMotorTorque = buffer.getFloat();
+                def.enableLimit = (flags & ENABLE_LIMIT) != 0;
+                def.enableMotor = (flags & ENABLE_MOTOR) != 0;
+                jointDef = def;
+                break;
+            }
+            case PrismaticJoint: {
+                PrismaticJointDef def = prismaticJointDef;
+                getVertex(buffer, def.localAnchorA);
+                getVertex(buffer, def.localAnchorB);
+                getVertex(buffer, def.localAxisA);
+                def.referenceAngle = buffer.getFloat();
+                def.lowerTranslation = buffer.getFloat();
+                def.upperTranslation = buffer.getFloat();
+                def.motorSpeed = buffer.getFloat();
+                def.maxMotorForce = buffer.getFloat();
+                def.enableLimit = (flags & ENABLE_LIMIT) != 0;
+                def.enableMotor = (flags & ENABLE_MOTOR) != 0;
+                jointDef = def;
+                break;
+            }
+            case WeldJoint: {
+                WeldJointDef def = weldJointDef;
+                getVertex(buffer, def.localAnchorA);
+                getVertex(buffer, def.localAnchorB);
+                def.referenceAngle = buffer.getFloat();
+                def.frequencyHz = buffer.getFloat();
+                def.dampingRatio = buffer.getFloat();
+                jointDef = def;
+                break;
+            }
+            case RopeJoint: {
+                RopeJointDef def = ropeJointDef;
+                getVertex(buffer, def.localAnchorA);
+                getVertex(buffer, def.localAnchorB);
+                def.maxLength = buffer.getFloat();
+                jointDef = def;
+                break;
+            }
+            case WheelJoint: {
+                WheelJointDef def = wheelJointDef;
+                getVertex(buffer, def.localAnchorA);
+                getVertex(buffer, def.localAnchorB);
+                getVertex(buffer, def.localAxisA);
+                def.motorSpeed = buffer.getFloat();
+                def.maxMotorTorque = buffer.getFloat();
+                def.frequencyHz = buffer.getFloat();
+                def.dampingRatio = buffer.getFloat();
+                def.enableMotor = (flags & ENABLE_MOTOR) != 0;
+                jointDef = def;
+                break;
+            }
+            case FrictionJoint: {
+                FrictionJointDef def = frictionJointDef;
+                getVertex(buffer, def.localAnchorA);
+                getVertex(buffer, def.localAnchorB);
+                def.maxForce = buffer.getFloat();
+                def.maxTorque = buffer.getFloat();
+                jointDef = def;
+                break;
+            }
+            case MotorJoint: {
+                MotorJointDef def = motorJointDef;
+                getVertex(buffer, def.linearOffset);
+                def.angularOffset = buffer.getFloat();
+                def.maxForce = buffer.getFloat();
+                def.maxTorque = buffer.getFloat();
+                def.correctionFactor = buffer.getFloat();
+                jointDef = def;
+                break;
+            }
+            default:
+                throw new GdxRuntimeException("Unsupported joint type: " + type);
+        }
+        buffer.position(end);
+
+        jointDef.bodyA = bodyA;
+        jointDef.bodyB = bodyB;
+        jointDef.collideConnected = (flags & COLLIDE_CONNECTED) != 0;
+        Joint joint = world.createJoint(jointDef);
+        jointDef.bodyA = jointDef.bodyB = null;
+        return joint;
+    }
+
+    private Body bodyAt(int index) throws GdxRuntimeException {
+        if (index < 0 || index >= bodyCount)
+            throw new GdxRuntimeException("Unknown body: " + index);
+        return bodies[index];
+    }
+
+    private static void getVertex(ByteBuffer buffer, Vector2 vertex)
+    { vertex.set(buffer.getFloat(), buffer.getFloat()); }
+
+    /* Doesn't keep the bodies of the world alive */
+    private void clearBodies() {
+        for (int i = 0; i < bodyCount; i++)
+            bodies[i] = null;
+    }
+
+    @Override
+    public void dispose() {
+        circleShape.dispose();
+        polygonShape.dispose();
+        edgeShape.dispose();
+    }
+}
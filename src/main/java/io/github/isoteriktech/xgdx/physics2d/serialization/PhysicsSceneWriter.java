@@ -0,0 +1,526 @@
+package io.github.isoteriktech.xgdx.physics2d.serialization;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.*;
+import com.badlogic.gdx.physics.box2d.joints.*;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.ObjectIntMap;
+import io.github.isoteriktech.xgdx.physics2d.BodyPool;
+import io.github.isoteriktech.xgdx.physics2d.PhysicsManager2d;
+
+import java.nio.ByteBuffer;
+
+import static io.github.isoteriktech.xgdx.physics2d.serialization.PhysicsSceneFormat.*;
+
+/**
+ * Saves the physics layer of a {@link PhysicsManager2d} in the binary format read by {@link PhysicsSceneLoader}: every body of its world with
+ * its fixtures, their materials and collision filters, and its joints. Bodies are written in the order of {@link World#getBodies(Array)}
+ * and come back from the loader in that order.
+ * <p>
+ * Only Box2D state is saved. Game objects, components and user data are not, so loaded bodies belong to no {@link io.github.isoteriktech.xgdx.physics2d.RigidBody2d};
+ * bind them by their index if needed. Bodies parked in the {@link BodyPool} are left out. Mass data set by hand is not saved, since loaded
+ * bodies get their mass from the densities of their fixtures. The ghost vertices of open chains can't be read back from Box2D and are lost.
+ * Mouse, pulley and gear joints are not supported and are left out; see {@link #getSkippedJointCount()}.
+ * <p>
+ * A writer keeps its buffer between writes, so saving the same scene again doesn't allocate it again.
+ *
+ * @author isoteriksoftware
+ */
+public class PhysicsSceneWriter {
+    private ByteBuffer buffer = ByteBuffer.allocate(4096).order(ORDER);
+
+    /* Scratch reused between writes */
+    private final Array<Body> bodies = new Array<>(true, 256, Body.class);
+    private final Array<Joint> joints = new Array<>(true, 16, Joint.class);
+    private final ObjectIntMap<Body> bodyIndices = new ObjectIntMap<>();
+    private final ObjectIntMap<MaterialKey> materialIndices = new ObjectIntMap<>();
+    private final MaterialKey lookup = new MaterialKey();
+    private final FloatArray materials = new FloatArray();
+    private final IntArray fixtureMaterials = new IntArray();
+    private final Vector2 vertex = new Vector2();
+    private float[] vertices = new float[2 * 16];
+
+    private int bodyCount, fixtureCount, jointCount, skippedJointCount, maxVertexCount;
+
+    /**
+     * Writes the physics layer of a manager to a file, replacing it.
+     * @param physicsManager2d the manager
+     * @param file the file
+     * @throws IllegalStateException if the world is being stepped
+     * @throws UnsupportedOperationException if the world is partitioned
+     */
+    public void write(PhysicsManager2d physicsManager2d, FileHandle file) throws IllegalStateException, UnsupportedOperationException {
+        ByteBuffer buffer = write(physicsManager2d);
+        file.writeBytes(buffer.array(), buffer.arrayOffset(), buffer.limit(), false);
+    }
+
+    /**
+     * Writes the physics layer of a manager to the buffer of this writer.
+     * @param physicsManager2d the manager
+     * @return the buffer, from position 0 to its limit. It is overwritten by the next write.
+     * @throws IllegalStateException if the world is being stepped
+     * @throws UnsupportedOperationException if the world is partitioned
+     */
+    public ByteBuffer write(PhysicsManager2d physicsManager2d) throws IllegalStateException, UnsupportedOperationException {
+        if (physicsManager2d.isPartitioned())
+            throw new UnsupportedOperationException("Partitioned worlds can't be saved");
+
+        World world = physicsManager2d.getPhysicsWorld();
+        if (physicsManager2d.isStepInFlight() || world.isLocked())
+            throw new IllegalStateException("The world is being stepped");
+
+        try {
+            int size = collect(world, physicsManager2d.getBodyPool());
+            ensureCapacity(size);
+
+            ByteBuffer buffer = this.buffer;
+            buffer.clear();
+            writeHeader(buffer);
+
+            float[] materials = this.materials.items;
+            for (int i = 0, n = this.materials.size; i < n; i++)
+                buffer.putFloat(materials[i]);
+
+            int fixtureIndex = 0;
+            Body[] bodies = this.bodies.items;
+            for (int i = 0; i < bodyCount; i++)
+                fixtureIndex = writeBody(buffer, bodies[i], fixtureIndex);
+
+            Joint[] joints = this.joints.items;
+            for (int i = 0, n = this.joints.size; i < n; i++)
+                writeJoint(buffer, joints[i]);
+
+            buffer.flip();
+            return buffer;
+        } finally {
+            // Don't keep the bodies of the world alive
+            bodies.clear();
+            joints.clear();
+            bodyIndices.clear();
+        }
+    }
+
+    /**
+     *
+     * @return the number of bodies written by the last write
+     */
+    public int getBodyCount()
+    { return bodyCount; }
+
+    /**
+     *
+     * @return the number of fixtures written by the last write
+     */
+    public int getFixtureCount()
+    { return fixtureCount; }
+
+    /**
+     *
+     * @return the number of joints written by the last write
+     */
+    public int getJointCount()
+    { return jointCount; }
+
+    /**
+     *
+     * @return the number of joints left out by the last write: mouse, pulley and gear joints, and joints to pooled bodies
+     */
+    public int getSkippedJointCount()
+    { return skippedJointCount; }
+
+    /**
+     *
+     * @return the number of distinct materials written by the last write
+     */
+    public int getMaterialCount()
+    { return materials.size / 3; }
+
+    /* Gathers the bodies, materials and joints to write. Returns the size of the file. */
+    private int collect(World world, BodyPool bodyPool) {
+        materials.clear();
+        materialIndices.clear();
+        fixtureMaterials.clear();
+        fixtureCount = 0;
+        jointCount = 0;
+        skippedJointCount = 0;
+        maxVertexCount = 0;
+        int size = HEADER_SIZE;
+
+        world.getBodies(bodies);
+        for (int i = bodies.size - 1; i >= 0; i--) {
+            // Pooled bodies are deactivated and have no user data
+            Body body = bodies.get(i);
+            if (!body.isActive() && body.getUserData() == null && bodyPool.contains(body))
+                bodies.removeIndex(i);
+        }
+
+        bodyCount = bodies.size;
+        for (int i = 0; i < bodyCount; i++) {
+            Body body = bodies.get(i);
+            bodyIndices.put(body, i);
+            size += BODY_SIZE;
+
+            Array<Fixture> fixtures = body.getFixtureList();
+            for (int f = 0, n = fixtures.size; f < n; f++) {
+                Fixture fixture = fixtures.get(f);
+                fixtureMaterials.add(materialIndex(fixture.getFriction(), fixture.getRestitution(), fixture.getDensity()));
+
+                int vertexCount = vertexCount(fixture.getShape());
+                maxVertexCount = Math.max(maxVertexCount, vertexCount);
+                if (vertices.length < vertexCount * 2)
+                    vertices = new float[vertexCount * 2];
+                size += FIXTURE_SIZE + vertexCount * 8;
+                fixtureCount++;
+            }
+        }
+        size += materials.size * 4;
+
+        world.getJoints(joints);
+        for (int i = joints.size - 1; i >= 0; i--) {
+            Joint joint = joints.get(i);
+            if (!isSupported(joint.getType()) || !bodyIndices.containsKey(joint.getBodyA()) || !bodyIndices.containsKey(joint.getBodyB())) {
+                joints.removeIndex(i);
+                skippedJointCount++;
+            }
+        }
+        jointCount = joints.size;
+        size += jointCount * JOINT_SIZE;
+
+        return size;
+    }
+
+    private void writeHeader(ByteBuffer buffer) {
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.putShort((short)0);
+        buffer.putInt(materials.size / 3);
+        buffer.putInt(bodyCount);
+        buffer.putInt(fixtureCount);
+        buffer.putInt(jointCount);
+        buffer.putInt(maxVertexCount);
+    }
+
+    /* Writes a body and its fixtures. Returns the index of the next fixture. */
+    private int writeBody(ByteBuffer buffer, Body body, int fixtureIndex) {
+        // The angle of the body, not of its transform, which is rebuilt from a sine and cosine
+        Vector2 position = body.getPosition();
+        float x = position.x, y = position.y, angle = body.getAngle();
+        Vector2 velocity = body.getLinearVelocity();
+
+        int flags = (body.isAwake() ? AWAKE : 0) | (body.isActive() ? ACTIVE : 0) | (body.isBullet() ? BULLET : 0)
+                | (body.isFixedRotation() ? FIXED_ROTATION : 0) | (body.isSleepingAllowed() ? SLEEPING_ALLOWED : 0);
+
+        Array<Fixture> fixtures = body.getFixtureList();
+        buffer.put((byte)body.getType().getValue());
+        buffer.put((byte)flags);
+        buffer.putShort((short)0);
+        buffer.putFloat(x);
+        buffer.putFloat(y);
+        buffer.putFloat(angle);
+        buffer.putFloat(velocity.x);
+        buffer.putFloat(velocity.y);
+        buffer.putFloat(body.getAngularVelocity());
+        buffer.putFloat(body.getLinearDamping());
+        buffer.putFloat(body.getAngularDamping());
+        buffer.putFloat(body.getGravityScale());
+        buffer.putInt(fixtures.size);
+
+        for (int f = 0, n = fixtures.size; f < n; f++)
+            writeFixture(buffer, fixtures.get(f), fixtureMaterials.get(fixtureIndex++));
+
+        return fixtureIndex;
+    }
+
+    private void writeFixture(ByteBuffer buffer, Fixture fixture, int material) {
+        Shape shape = fixture.getShape();
+        Filter filter = fixture.getFilterData();
+        int flags = fixture.isSensor() ? SENSOR : 0;
+
+        byte type;
+        switch (shape.getType()) {
+            case Circle:
+                type = CIRCLE;
+                break;
+            case Edge:
+                type = EDGE;
+                EdgeShape edge = (EdgeShape)shape;
+                flags |= (edge.hasVertex0() ? HAS_VERTEX0 : 0) | (edge.hasVertex3() ? HAS_VERTEX3 : 0);
+                break;
+            case Polygon:
+                type = POLYGON;
+                break;
+            default:
+                type = CHAIN;
+                flags |= isLoop((ChainShape)shape) ? LOOP : 0;
+                break;
+        }
+
+        int vertexCount = vertexCount(shape);
+        int start = buffer.position();
+        buffer.put(type);
+        buffer.put((byte)flags);
+        buffer.putShort(filter.categoryBits);
+        buffer.putShort(filter.maskBits);
+        buffer.putShort(filter.groupIndex);
+        buffer.putInt(material);
+        buffer.putFloat(shape.getRadius());
+        buffer.putInt(vertexCount);
+
+        Vector2 vertex = this.vertex;
+        switch (type) {
+            case CIRCLE:
+                putVertex(buffer, ((CircleShape)shape).getPosition());
+                break;
+            case EDGE:
+                EdgeShape edge = (EdgeShape)shape;
+                edge.getVertex0(vertex);
+                putVertex(buffer, vertex);
+                edge.getVertex1(vertex);
+                putVertex(buffer, vertex);
+                edge.getVertex2(vertex);
+                putVertex(buffer, vertex);
+                edge.getVertex3(vertex);
+                putVertex(buffer, vertex);
+                break;
+            case POLYGON:
+                PolygonShape polygon = (PolygonShape)shape;
+                float[] vertices = this.vertices;
+                for (int i = 0; i < vertexCount; i++) {
+                    polygon.getVertex(i, vertex);
+                    vertices[i * 2] = vertex.x;
+                    vertices[i * 2 + 1] = vertex.y;
+                    putVertex(buffer, vertex);
+                }
+
+                if (vertexCount == 4 && isBox(vertices))
+                    buffer.put(start + 1, (byte)(flags | BOX));
+                break;
+            default:
+                ChainShape chain = (ChainShape)shape;
+                for (int i = 0; i < vertexCount; i++) {
+                    chain.getVertex(i, vertex);
+                    putVertex(buffer, vertex);
+                }
+                break;
+        }
+    }
+
+    /* Whether four vertices make an axis-aligned rectangle that the loader rebuilds to the same vertices */
+    private static boolean isBox(float[] v) {
+        float minX = Math.min(Math.min(v[0], v[2]), Math.min(v[4], v[6]));
+        float maxX = Math.max(Math.max(v[0], v[2]), Math.max(v[4], v[6]));
+        float minY = Math.min(Math.min(v[1], v[3]), Math.min(v[5], v[7]));
+        float maxY = Math.max(Math.max(v[1], v[3]), Math.max(v[5], v[7]));
+
+        for (int i = 0; i < 8; i += 2) {
+            if ((v[i] != minX && v[i] != maxX) || (v[i + 1] != minY && v[i + 1] != maxY))
+                return false;
+        }
+
+        // Rounding may move a rebuilt corner by a bit; such boxes keep their corners
+        float halfWidth = (maxX - minX) * .5f, halfHeight = (maxY - minY) * .5f;
+        float centerX = (minX + maxX) * .5f, centerY = (minY + maxY) * .5f;
+        return halfWidth > 0 && halfHeight > 0 && centerX - halfWidth == minX && centerX + halfWidth == maxX
+                && centerY - halfHeight == minY && centerY + halfHeight == maxY;
+    }
+
+    private static void putVertex(ByteBuffer buffer, Vector2 vertex) {
+        buffer.putFloat(vertex.x);
+        buffer.putFloat(vertex.y);
+    }
+
+    private void writeJoint(ByteBuffer buffer, Joint joint) {
+        JointDef.JointType type = joint.getType();
+        int flags = joint.getCollideConnected() ? COLLIDE_CONNECTED : 0;
+        int start = buffer.position();
+
+        buffer.put((byte)type.getValue());
+        buffer.put((byte)0);
+        buffer.putShort((short)0);
+        buffer.putInt(bodyIndices.get(joint.getBodyA(), -1));
+        buffer.putInt(bodyIndices.get(joint.getBodyB(), -1));
+
+        switch (type) {
+            case DistanceJoint: {
+                DistanceJoint distance = (DistanceJoint)joint;
+                putVertex(buffer, distance.getLocalAnchorA());
+                putVertex(buffer, distance.getLocalAnchorB());
+                buffer.putFloat(distance.getLength());
+                buffer.putFloat(distance.getFrequency());
+                buffer.putFloat(distance.getDampingRatio());
+                break;
+            }
+            case RevoluteJoint: {
+                RevoluteJoint revolute = (RevoluteJoint)joint;
+                flags |= (revolute.isLimitEnabled() ? ENABLE_LIMIT : 0) | (revolute.isMotorEnabled() ? ENABLE_MOTOR : 0);
+                putVertex(buffer, revolute.getLocalAnchorA());
+                putVertex(buffer, revolute.getLocalAnchorB());
+                buffer.putFloat(revolute.getReferenceAngle());
+                buffer.putFloat(revolute.getLowerLimit());
+                buffer.putFloat(revolute.getUpperLimit());
+                buffer.putFloat(revolute.getMotorSpeed());
+                buffer.putFloat(revolute.getMaxMotorTorque());
+                break;
+            }
+            case PrismaticJoint: {
+                PrismaticJoint prismatic = (PrismaticJoint)joint;
+                flags |= (prismatic.isLimitEnabled() ? ENABLE_LIMIT : 0) | (prismatic.isMotorEnabled() ? ENABLE_MOTOR : 0);
+                putVertex(buffer, prismatic.getLocalAnchorA());
+                putVertex(buffer, prismatic.getLocalAnchorB());
+                putVertex(buffer, prismatic.getLocalAxisA());
+                buffer.putFloat(prismatic.getReferenceAngle());
+                buffer.putFloat(prismatic.getLowerLimit());
+                buffer.putFloat(prismatic.getUpperLimit());
+                buffer.putFloat(prismatic.getMotorSpeed());
+                buffer.putFloat(prismatic.getMaxMotorForce());
+                break;
+            }
+            case WeldJoint: {
+                WeldJoint weld = (WeldJoint)joint;
+                putVertex(buffer, weld.getLocalAnchorA());
+                putVertex(buffer, weld.getLocalAnchorB());
+                buffer.putFloat(weld.getReferenceAngle());
+                buffer.putFloat(weld.getFrequency());
+                buffer.putFloat(weld.getDampingRatio());
+                break;
+            }
+            case RopeJoint: {
+                RopeJoint rope = (RopeJoint)joint;
+                putVertex(buffer, rope.getLocalAnchorA());
+                putVertex(buffer, rope.getLocalAnchorB());
+                buffer.putFloat(rope.getMaxLength());
+                break;
+            }
+            case WheelJoint: {
+                WheelJoint wheel = (WheelJoint)joint;
+                flags |= wheel.isMotorEnabled() ? ENABLE_MOTOR : 0;
+                putVertex(buffer, wheel.getLocalAnchorA());
+                putVertex(buffer, wheel.getLocalAnchorB());
+                putVertex(buffer, wheel.getLocalAxisA());
+                buffer.putFloat(wheel.getMotorSpeed());
+                buffer.putFloat(wheel.getMaxMotorTorque());
+                buffer.putFloat(wheel.getSpringFrequencyHz());
+                buffer.putFloat(wheel.getSpringDampingRatio());
+                break;
+            }
+            case FrictionJoint: {
+                FrictionJoint friction = (FrictionJoint)joint;
+                putVertex(buffer, friction.getLocalAnchorA());
+                putVertex(buffer, friction.getLocalAnchorB());
+                buffer.putFloat(friction.getMaxForce());
+                buffer.putFloat(friction.getMaxTorque());
+                break;
+            }
+            default: {
+                MotorJoint motor = (MotorJoint)joint;
+                putVertex(buffer, motor.getLinearOffset());
+                buffer.putFloat(motor.getAngularOffset());
+                buffer.putFloat(motor.getMaxForce());
+                buffer.putFloat(motor.getMaxTorque());
+                buffer.putFloat(motor.getCorrectionFactor());
+                break;
+            }
+        }
+
+        // Unused floats stay zero
+        int end = start + JOINT_SIZE;
+        while (buffer.position() < end)
+            buffer.put((byte)0);
+
+        buffer.put(start + 1, (byte)flags);
+    }
+
+    private static boolean isSupported(JointDef.JointType type) {
+        switch (type) {
+            case DistanceJoint:
+            case RevoluteJoint:
+            case PrismaticJoint:
+            case WeldJoint:
+            case RopeJoint:
+            case WheelJoint:
+            case FrictionJoint:
+            case MotorJoint:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private int vertexCount(Shape shape) {
+        switch (shape.getType()) {
+            case Circle:
+                return 1;
+            case Edge:
+                return 4;
+            case Polygon:
+                return ((PolygonShape)shape).getVertexCount();
+            default:
+                // The vertex Box2D repeats to close a loop is added back by createLoop()
+                ChainShape chain = (ChainShape)shape;
+                return isLoop(chain) ? chain.getVertexCount() - 1 : chain.getVertexCount();
+        }
+    }
+
+    /* Whether a chain is a loop. The shape of a fixture doesn't know whether it was created as a loop, but Box2D closes a loop by repeating
+     * its first vertex at the end. */
+    private boolean isLoop(ChainShape chain) {
+        if (chain.isLooped())
+            return true;
+
+        int count = chain.getVertexCount();
+        if (count < 4)
+            return false;
+
+        Vector2 vertex = this.vertex;
+        chain.getVertex(0, vertex);
+        float x = vertex.x, y = vertex.y;
+        chain.getVertex(count - 1, vertex);
+        return vertex.x == x && vertex.y == y;
+    }
+
+    /* Returns the index of a material, adding it the first time it is seen */
+    private int materialIndex(float friction, float restitution, float density) {
+        MaterialKey lookup = this.lookup.set(friction, restitution, density);
+        int index = materialIndices.get(lookup, -1);
+        if (index != -1)
+            return index;
+
+        index = materials.size / 3;
+        materials.add(friction, restitution, density);
+        materialIndices.put(new MaterialKey().set(friction, restitution, density), index);
+        return index;
+    }
+
+    private void ensureCapacity(int size) {
+        if (buffer.capacity() < size)
+            buffer = ByteBuffer.allocate(Math.max(size, buffer.capacity() * 2)).order(ORDER);
+    }
+
+    /* A material compared by the bits of its values */
+    private static class MaterialKey {
+        int friction, restitution, density;
+
+        MaterialKey set(float friction, float restitution, float density) {
+            this.friction = Float.floatToIntBits(friction);
+            this.restitution = Float.floatToIntBits(restitution);
+            this.density = Float.floatToIntBits(density);
+            return this;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof MaterialKey))
+                return false;
+
+            MaterialKey other = (MaterialKey)o;
+            return friction == other.friction && restitution == other.restitution && density == other.density;
+        }
+
+        @Override
+        public int hashCode()
+        { return (friction * 31 + restitution) * 31 + density; }
+    }
+}
@@ -0,0 +1,66 @@
+package io.github.isoteriktech.xgdx.physics2d.utils;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Disposable;
+import io.github.isoteriktech.xgdx.physics2d.PhysicsManager2d;
+import io.github.isoteriktech.xgdx.physics2d.PhysicsStats;
+
+/**
+ * Writes the {@link PhysicsStats} of every frame to a CSV file, one row per frame under a header row. Rows are buffered in memory and
+ * appended to the file every few frames, so the file isn't opened every frame. Add it to the stats of a manager with
+ * {@link PhysicsStats#addListener(PhysicsStats.Listener)} and enable {@link PhysicsManager2d#setCollectStats(boolean)};
+ * {@link #dispose()} writes the rows still buffered.
+ *
+ * @author isoteriksoftware
+ */
+public class PhysicsStatsCsvWriter implements PhysicsStats.Listener, Disposable {
+    private final FileHandle file;
+    private final int flushInterval;
+    private final StringBuilder buffer = new StringBuilder(1024);
+    private int bufferedRows;
+
+    /**
+     * Creates a new writer that replaces the given file, flushing every 60 frames.
+     * @param file the file
+     */
+    public PhysicsStatsCsvWriter(FileHandle file)
+    { this(file, 60); }
+
+    /**
+     * Creates a new writer that replaces the given file.
+     * @param file the file
+     * @param flushInterval the number of rows buffered before they are written
+     * @throws IllegalArgumentException if flushInterval is less than 1
+     */
+    public PhysicsStatsCsvWriter(FileHandle file, int flushInterval) throws IllegalArgumentException {
+        if (flushInterval < 1)
+            throw new IllegalArgumentException("flushInterval must be at least 1!");
+
+        this.file = file;
+        this.flushInterval = flushInterval;
+        file.writeString(PhysicsStats.CSV_HEADER + "\n", false);
+    }
+
+    @Override
+    public void statsUpdated(PhysicsStats stats) {
+        stats.appendCsvRow(buffer).append('\n');
+        if (++bufferedRows >= flushInterval)
+            flush();
+    }
+
+    /**
+     * Appends the buffered rows to the file.
+     */
+    public void flush() {
+        if (bufferedRows == 0)
+            return;
+
+        file.writeString(buffer.toString(), true);
+        buffer.setLength(0);
+        bufferedRows = 0;
+    }
+
+    @Override
+    public void dispose()
+    { flush(); }
+}
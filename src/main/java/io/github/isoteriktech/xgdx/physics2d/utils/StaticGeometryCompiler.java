@@ -0,0 +1,349 @@
+package io.github.isoteriktech.xgdx.physics2d.utils;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.*;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
+import io.github.isoteriktech.xgdx.physics2d.PhysicsMaterial2d;
+
+import java.util.Arrays;
+
+/**
+ * Turns static level geometry into a few large static bodies, instead of the one body per wall piece that {@link Box2dUtil} creates.
+ * The input is either a grid of solid tiles or a list of axis-aligned boxes. Adjacent solid cells are merged in one of two ways:
+ * <ul>
+ *     <li>{@link Mode#RECTANGLES}: into maximal rectangles, each one a polygon fixture. Bodies can still catch on the seams between rectangles.</li>
+ *     <li>{@link Mode#OUTLINES}: into the outlines of the solid areas, each one a looped {@link ChainShape} fixture. Chain edges carry their
+ *     neighbours as ghost vertices, so bodies slide over the seams without snagging. Outlines are hollow: bodies inside a solid area are not
+ *     pushed out.</li>
+ * </ul>
+ * All fixtures of one compile go on a single static body, so the broad-phase holds one proxy per rectangle or outline edge instead of one per tile.
+ *
+ * @author isoteriksoftware
+ */
+public class StaticGeometryCompiler {
+    /** How solid cells are merged into fixtures */
+    public enum Mode {
+        /** Maximal rectangles as polygon fixtures */
+        RECTANGLES,
+        /** Outlines of solid areas as looped chain fixtures */
+        OUTLINES
+    }
+
+    /* Edge directions. Turning left adds one. */
+    private static final int RIGHT = 0, UP = 1, LEFT = 2, DOWN = 3;
+
+    /* Turns in order of preference when a corner starts two edges: left, straight, right */
+    private static final int[] TURNS = { 1, 0, 3 };
+
+    private PhysicsMaterial2d material = new PhysicsMaterial2d(.2f, 0, 0);
+    private short categoryBits = 0x0001, maskBits = -1, groupIndex;
+
+    private int fixtureCount, cellCount;
+
+    /* Scratch reused between compiles */
+    private final FixtureDef fixtureDef = new FixtureDef();
+    private final BodyDef bodyDef = new BodyDef();
+    private final Vector2 center = new Vector2();
+    private final IntArray edgeStarts = new IntArray(), edgeDirections = new IntArray();
+    private final IntArray loopStarts = new IntArray(), loopDirections = new IntArray();
+    private final FloatArray vertices = new FloatArray();
+    private final FloatArray xs = new FloatArray(), ys = new FloatArray();
+
+    /**
+     * Sets the material of the fixtures created from now on.
+     * @param material the physics material
+     */
+    public void setMaterial(PhysicsMaterial2d material)
+    { this.material = material; }
+
+    /**
+     *
+     * @return the material of the created fixtures
+     */
+    public PhysicsMaterial2d getMaterial()
+    { return material; }
+
+    /**
+     * Sets the collision filter of the fixtures created from now on.
+     * @param categoryBits the collision category bits
+     * @param maskBits the collision mask bits
+     * @param groupIndex the collision group index
+     */
+    public void setFilter(short categoryBits, short maskBits, short groupIndex) {
+        this.categoryBits = categoryBits;
+        this.maskBits = maskBits;
+        this.groupIndex = groupIndex;
+    }
+
+    /**
+     *
+     * @return the number of fixtures created by the last compile
+     */
+    public int getFixtureCount()
+    { return fixtureCount; }
+
+    /**
+     *
+     * @return the number of solid cells merged by the last compile. For a tile grid, this is the number of bodies the level would have
+     * had with one body per tile.
+     */
+    public int getCellCount()
+    { return cellCount; }
+
+    /**
+     * Compiles a grid of tiles into one static body.
+     * @param world the world to create the body in
+     * @param solid whether each tile is solid, row by row: tile (column, row) is at index row * columns + column and row 0 is the bottom row
+     * @param columns the number of columns
+     * @param rows the number of rows
+     * @param tileWidth the width of a tile
+     * @param tileHeight the height of a tile
+     * @param x the x-coordinate of the lower left corner of the grid
+     * @param y the y-coordinate of the lower left corner of the grid
+     * @param mode how solid tiles are merged
+     * @return the body or null if no tile is solid
+     * @throws IllegalArgumentException if the grid is smaller than columns * rows
+     */
+    public Body compileGrid(World world, boolean[] solid, int columns, int rows, float tileWidth, float tileHeight,
+                            float x, float y, Mode mode) throws IllegalArgumentException {
+        if (solid.length < columns * rows)
+            throw new IllegalArgumentException("Expected " + columns * rows + " tiles but got " + solid.length);
+
+        xs.clear();
+        for (int i = 0; i <= columns; i++)
+            xs.add(x + i * tileWidth);
+
+        ys.clear();
+        for (int i = 0; i <= rows; i++)
+            ys.add(y + i * tileHeight);
+
+        return compile(world, solid, columns, rows, mode);
+    }
+
+    /**
+     * Compiles a list of axis-aligned boxes into one static body. Overlapping and touching boxes are merged.
+     * The boxes are laid on a grid made of their own edges, so this suits level walls rather than thousands of unaligned boxes;
+     * use {@link #compileGrid(World, boolean[], int, int, float, float, float, float, Mode)} for tile maps.
+     * @param world the world to create the body in
+     * @param boxes the boxes as (x, y, width, height) quadruples, where (x, y) is the lower left corner
+     * @param mode how the boxes are merged
+     * @return the body or null if there are no boxes
+     */
+    public Body compileBoxes(World world, FloatArray boxes, Mode mode) {
+        xs.clear();
+        ys.clear();
+        for (int i = 0; i + 3 < boxes.size; i += 4) {
+            xs.add(boxes.items[i], boxes.items[i] + boxes.items[i + 2]);
+            ys.add(boxes.items[i + 1], boxes.items[i + 1] + boxes.items[i + 3]);
+        }
+        distinct(xs);
+        distinct(ys);
+
+        int columns = Math.max(0, xs.size - 1);
+        int rows = Math.max(0, ys.size - 1);
+        boolean[] solid = new boolean[columns * rows];
+        for (int i = 0; i + 3 < boxes.size; i += 4) {
+            float x = boxes.items[i], y = boxes.items[i + 1];
+            int column0 = Arrays.binarySearch(xs.items, 0, xs.size, x);
+            int column1 = Arrays.binarySearch(xs.items, 0, xs.size, x + boxes.items[i + 2]);
+            int row0 = Arrays.binarySearch(ys.items, 0, ys.size, y);
+            int row1 = Arrays.binarySearch(ys.items, 0, ys.size, y + boxes.items[i + 3]);
+
+            for (int row = row0; row < row1; row++)
+                Arrays.fill(solid, row * columns + column0, row * columns + column1, true);
+        }
+
+        return compile(world, solid, columns, rows, mode);
+    }
+
+    /* Sorts and removes duplicates */
+    private static void distinct(FloatArray values) {
+        values.sort();
+        int size = 0;
+        for (int i = 0; i < values.size; i++) {
+            if (size == 0 || values.items[i] != values.items[size - 1])
+                values.items[size++] = values.items[i];
+        }
+        values.size = size;
+    }
+
+    /* Compiles a grid whose column and row boundaries are in xs and ys */
+    private Body compile(World world, boolean[] solid, int columns, int rows, Mode mode) {
+        fixtureCount = cellCount = 0;
+        for (int i = 0, n = columns * rows; i < n; i++) {
+            if (solid[i])
+                cellCount++;
+        }
+
+        if (cellCount == 0)
+            return null;
+
+        bodyDef.type = BodyDef.BodyType.StaticBody;
+        Body body = world.createBody(bodyDef);
+
+        fixtureDef.friction = material.friction;
+        fixtureDef.restitution = material.bounciness;
+        fixtureDef.density = material.density;
+        fixtureDef.filter.categoryBits = categoryBits;
+        fixtureDef.filter.maskBits = maskBits;
+        fixtureDef.filter.groupIndex = groupIndex;
+
+        if (mode == Mode.RECTANGLES)
+            compileRectangles(body, solid, columns, rows);
+        else
+            compileOutlines(body, solid, columns, rows);
+
+        fixtureDef.shape = null;
+        return body;
+    }
+
+    /* Greedily grows each unmerged solid cell right, then up, into the largest rectangle of unmerged solid cells */
+    private void compileRectangles(Body body, boolean[] solid, int columns, int rows) {
+        boolean[] merged = new boolean[columns * rows];
+        PolygonShape shape = new PolygonShape();
+        fixtureDef.shape = shape;
+
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                int index = row * columns + column;
+                if (!solid[index] || merged[index])
+                    continue;
+
+                int lastColumn = column;
+                while (lastColumn + 1 < columns && solid[index + lastColumn + 1 - column] && !merged[index + lastColumn + 1 - column])
+                    lastColumn++;
+
+                int lastRow = row;
+                grow:
+                while (lastRow + 1 < rows) {
+                    int start = (lastRow + 1) * columns;
+                    for (int c = column; c <= lastColumn; c++) {
+                        if (!solid[start + c] || merged[start + c])
+                            break grow;
+                    }
+                    lastRow++;
+                }
+
+                for (int r = row; r <= lastRow; r++)
+                    Arrays.fill(merged, r * columns + column, r * columns + lastColumn + 1, true);
+
+                float x0 = xs.items[column], x1 = xs.items[lastColumn + 1];
+                float y0 = ys.items[row], y1 = ys.items[lastRow + 1];
+                center.set((x0 + x1) * .5f, (y0 + y1) * .5f);
+                shape.setAsBox((x1 - x0) * .5f, (y1 - y0) * .5f, center, 0);
+                body.createFixture(fixtureDef);
+                fixtureCount++;
+            }
+        }
+
+        shape.dispose();
+    }
+
+    /* Collects every cell side between a solid and an empty cell as an edge with the solid cell on its left, then follows the edges
+     * into closed loops. Outer outlines run counterclockwise and holes clockwise. */
+    private void compileOutlines(Body body, boolean[] solid, int columns, int rows) {
+        int stride = columns + 1;
+        edgeStarts.clear();
+        edgeDirections.clear();
+
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                if (!solid[row * columns + column])
+                    continue;
+
+                int corner = row * stride + column;
+                if (row == 0 || !solid[(row - 1) * columns + column])
+                    addEdge(corner, RIGHT);
+                if (column == columns - 1 || !solid[row * columns + column + 1])
+                    addEdge(corner + 1, UP);
+                if (row == rows - 1 || !solid[(row + 1) * columns + column])
+                    addEdge(corner + stride + 1, LEFT);
+                if (column == 0 || !solid[row * columns + column - 1])
+                    addEdge(corner + stride, DOWN);
+            }
+        }
+
+        // Every corner starts at most two edges; two only where solid cells touch diagonally
+        int[] firstOut = new int[stride * (rows + 1)];
+        int[] secondOut = new int[firstOut.length];
+        Arrays.fill(firstOut, -1);
+        Arrays.fill(secondOut, -1);
+        for (int i = 0; i < edgeStarts.size; i++) {
+            int start = edgeStarts.items[i];
+            if (firstOut[start] == -1)
+                firstOut[start] = i;
+            else
+                secondOut[start] = i;
+        }
+
+        boolean[] visited = new boolean[edgeStarts.size];
+        for (int first = 0; first < edgeStarts.size; first++) {
+            if (visited[first])
+                continue;
+
+            loopStarts.clear();
+            loopDirections.clear();
+            int edge = first;
+            do {
+                visited[edge] = true;
+                int direction = edgeDirections.items[edge];
+                loopStarts.add(edgeStarts.items[edge]);
+                loopDirections.add(direction);
+
+                int end = edgeStarts.items[edge] + step(direction, stride);
+                edge = nextEdge(firstOut[end], secondOut[end], direction);
+            } while (edge != first && !visited[edge]);
+
+            // Only corners are kept; vertices between collinear edges are dropped
+            vertices.clear();
+            for (int i = 0, n = loopStarts.size; i < n; i++) {
+                if (loopDirections.items[i] == loopDirections.items[(i + n - 1) % n])
+                    continue;
+
+                int corner = loopStarts.items[i];
+                vertices.add(xs.items[corner % stride], ys.items[corner / stride]);
+            }
+
+            ChainShape shape = new ChainShape();
+            shape.createLoop(vertices.items, 0, vertices.size);
+            fixtureDef.shape = shape;
+            body.createFixture(fixtureDef);
+            shape.dispose();
+            fixtureCount++;
+        }
+    }
+
+    private void addEdge(int start, int direction) {
+        edgeStarts.add(start);
+        edgeDirections.add(direction);
+    }
+
+    private static int step(int direction, int stride) {
+        switch (direction) {
+            case RIGHT:
+                return 1;
+            case UP:
+                return stride;
+            case LEFT:
+                return -1;
+            default:
+                return -stride;
+        }
+    }
+
+    /* Picks the edge that turns left the most, so loops hug their solid cells and diagonal neighbours get separate loops */
+    private int nextEdge(int first, int second, int direction) {
+        if (second == -1)
+            return first;
+
+        for (int turn : TURNS) {
+            int wanted = (direction + turn) & 3;
+            if (edgeDirections.items[first] == wanted)
+                return first;
+            if (edgeDirections.items[second] == wanted)
+                return second;
+        }
+        return first;
+    }
+}
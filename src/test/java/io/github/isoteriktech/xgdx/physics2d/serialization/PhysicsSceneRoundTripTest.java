@@ -0,0 +1,117 @@
+package io.github.isoteriktech.xgdx.physics2d.serialization;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.*;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import io.github.isoteriktech.xgdx.physics2d.PhysicsManager2d;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static io.github.isoteriktech.xgdx.physics2d.serialization.PhysicsSceneFormat.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Writes scenes with {@link PhysicsSceneWriter} and loads them back with {@link PhysicsSceneLoader}.
+ *
+ * @author isoteriksoftware
+ */
+public class PhysicsSceneRoundTripTest {
+    /* Where the first fixture of a scene with one material and one body starts, and where its vertex count is stored */
+    private static final int FIRST_FIXTURE = HEADER_SIZE + MATERIAL_SIZE + BODY_SIZE;
+    private static final int FIRST_VERTEX_COUNT = FIRST_FIXTURE + 16;
+
+    private final PhysicsManager2d source = new PhysicsManager2d(new Vector2());
+    private final PhysicsManager2d target = new PhysicsManager2d(new Vector2());
+    private final PhysicsSceneLoader loader = new PhysicsSceneLoader();
+    private final Array<Body> bodies = new Array<>();
+
+    @BeforeAll
+    public static void initBox2d() {
+        Box2D.init();
+    }
+
+    @AfterEach
+    public void dispose() {
+        loader.dispose();
+        source.destroy();
+        target.destroy();
+    }
+
+    @Test
+    public void chainsKeepTheirVertices() {
+        Body body = source.getPhysicsWorld().createBody(new BodyDef());
+
+        ChainShape loop = new ChainShape();
+        loop.createLoop(new float[] {0, 0, 2, 0, 2, 2, 0, 2});
+        ChainShape chain = new ChainShape();
+        chain.createChain(new float[] {5, 5, 6, 5, 7, 6});
+        body.createFixture(loop, 0);
+        body.createFixture(chain, 0);
+        loop.dispose();
+        chain.dispose();
+
+        loader.load(new PhysicsSceneWriter().write(source), target, bodies, null);
+
+        assertEquals(1, bodies.size);
+        Array<Fixture> written = body.getFixtureList(), loaded = bodies.first().getFixtureList();
+        assertEquals(written.size, loaded.size);
+        for (int i = 0; i < written.size; i++) {
+            ChainShape expected = (ChainShape)written.get(i).getShape(), actual = (ChainShape)loaded.get(i).getShape();
+            assertEquals(expected.getVertexCount(), actual.getVertexCount());
+
+            Vector2 expectedVertex = new Vector2(), actualVertex = new Vector2();
+            for (int v = 0; v < expected.getVertexCount(); v++) {
+                expected.getVertex(v, expectedVertex);
+                actual.getVertex(v, actualVertex);
+                assertEquals(expectedVertex, actualVertex);
+            }
+        }
+    }
+
+    @Test
+    public void loopsSurviveASecondRoundTrip() {
+        Body body = source.getPhysicsWorld().createBody(new BodyDef());
+        ChainShape loop = new ChainShape();
+        loop.createLoop(new float[] {0, 0, 2, 0, 2, 2, 0, 2});
+        body.createFixture(loop, 0);
+        loop.dispose();
+
+        ByteBuffer first = new PhysicsSceneWriter().write(source);
+        assertEquals(LOOP, first.get(FIRST_FIXTURE + 1) & LOOP);
+        assertEquals(4, first.getInt(FIRST_VERTEX_COUNT));
+
+        loader.load(first.duplicate(), target, null, null);
+        ByteBuffer second = new PhysicsSceneWriter().write(target);
+
+        assertEquals(first.remaining(), second.remaining());
+        assertEquals(first, second);
+    }
+
+    @Test
+    public void corruptScenesAreRejected() {
+        Body body = source.getPhysicsWorld().createBody(new BodyDef());
+        PolygonShape triangle = new PolygonShape();
+        triangle.set(new float[] {0, 0, 1, 0, 0, 1});
+        body.createFixture(triangle, 0);
+        triangle.dispose();
+
+        ByteBuffer scene = new PhysicsSceneWriter().write(source);
+        assertEquals(3, scene.getInt(FIRST_VERTEX_COUNT));
+
+        for (int count : new int[] {-1, 0, 2, 9, Integer.MAX_VALUE}) {
+            ByteBuffer corrupt = scene.duplicate().order(ORDER);
+            corrupt.putInt(FIRST_VERTEX_COUNT, count);
+            assertThrows(GdxRuntimeException.class, () -> loader.load(corrupt, target, null, null));
+            assertEquals(0, target.getPhysicsWorld().getBodyCount());
+        }
+
+        ByteBuffer truncated = scene.duplicate();
+        truncated.limit(truncated.limit() - 4);
+        assertThrows(GdxRuntimeException.class, () -> loader.load(truncated, target, null, null));
+        assertEquals(0, target.getPhysicsWorld().getBodyCount());
+    }
+}